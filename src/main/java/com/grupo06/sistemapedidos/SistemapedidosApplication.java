@@ -6,21 +6,22 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 import com.grupo06.sistemapedidos.utilities.ColorUtils;
 import java.net.Socket;
+import java.sql.Connection;
 import javax.sql.DataSource;
 
 /**
  * Clase principal de la aplicación Spring Boot
  * @SpringBootApplication es una anotación que indica que esta clase es la
  * clase principal de la aplicación y habilita la configuración automática de Spring
- * @EnableRetry es una anotación que habilita la funcionalidad de reintento en los métodos
+ * @EnableScheduling habilita las tareas programadas (@Scheduled), como la conciliación nocturna del total gastado
  * @Been es una anotación que indica que el método devuelve un objeto que debe ser
  * administrado por el contenedor de Spring
  */
-@EnableRetry
+@EnableScheduling
 @SpringBootApplication
 public class SistemapedidosApplication {
 
@@ -36,9 +37,12 @@ public class SistemapedidosApplication {
 	@Bean
 	CommandLineRunner checkConnection(DataSource dataSource) {
 		return args -> {
-			try {
-				dataSource.getConnection();
-				System.out.println(ColorUtils.pintarVerde("Conexión exitosa a la base de datos PostgreSQL"));
+			// La conexión se devuelve al pool al cerrar el try-with-resources
+			try (Connection connection = dataSource.getConnection()) {
+				if (connection.isValid(2))
+					System.out.println(ColorUtils.pintarVerde("Conexión exitosa a la base de datos PostgreSQL"));
+				else
+					System.err.println(ColorUtils.pintarRojo("La conexión a la base de datos no responde"));
 			} catch (Exception e) {
 				System.err.println(ColorUtils.pintarVerde("Error al conectar a la base de datos: " + e.getMessage()));
 			}
@@ -54,9 +58,13 @@ public class SistemapedidosApplication {
 	CommandLineRunner checkKafka(KafkaTemplate<String, String> kafkaTemplate) {
 		return args -> {
 			try {
-				// Enviamos el mensaje al topic "test-topic" para verificar la conexión
-				kafkaTemplate.send("test-topic", "Mensaje de prueba desde la aplicación").get();
-				System.out.println(ColorUtils.pintarVerde("Kafka se inició correctamente y se pudo enviar mensaje a 'test-topic'"));
+				// Enviamos el mensaje al topic "test-topic" para verificar la conexión, sin esperar a la confirmación
+				kafkaTemplate.send("test-topic", "Mensaje de prueba desde la aplicación").whenComplete((resultado, e) -> {
+					if (e == null)
+						System.out.println(ColorUtils.pintarVerde("Kafka se inició correctamente y se pudo enviar mensaje a 'test-topic'"));
+					else
+						System.err.println(ColorUtils.pintarRojo("Error al conectar con Kafka: " + e.getMessage()));
+				});
 			} catch (Exception e) {
 				System.err.println(ColorUtils.pintarRojo("Error al conectar con Kafka: " + e.getMessage()));
 			}
@@ -0,0 +1,89 @@
+package com.grupo06.sistemapedidos.config;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.CacheSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+
+/**
+ * Clase de configuración de la caché de segundo nivel de Hibernate.
+ *
+ * Las entidades que se leen mucho más de lo que se modifican (Producto y Roles) y sus consultas por nombre se
+ * guardan en una caché Caffeine accedida mediante JCache. El tamaño máximo y el tiempo de vida de cada región
+ * se definen en el fichero caffeine.conf. Hibernate invalida las entradas automáticamente cuando se modifican
+ * las entidades a través de JPA, así que los servicios no necesitan hacerlo a mano.
+ *
+ * Las estadísticas de cada región (aciertos, fallos, inserciones y desalojos) se publican en Micrometer y se
+ * pueden consultar en /actuator/metrics/cache.* y /actuator/metrics/hibernate.second.level.cache.*
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Regiones de caché que se registran en Micrometer.
+     * Las regiones de entidades se nombran en su anotación @Cache (Caffeine no admite puntos en el nombre de la caché),
+     * las de consultas usan los nombres por defecto de Hibernate.
+     */
+    public static final String[] REGIONS = {
+        "producto",
+        "roles",
+        "default-query-results-region",
+        "default-update-timestamps-region"
+    };
+
+    @Value("${pedidos.cache.config:classpath:caffeine.conf}")
+    private String cacheConfig;
+
+    /**
+     * Crea el CacheManager JCache de Caffeine con la configuración de las regiones.
+     *
+     * @return CacheManager compartido con Hibernate.
+     * @throws URISyntaxException si la ruta de la configuración no es válida.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager jcacheManager() throws URISyntaxException {
+        return Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(new URI(cacheConfig), getClass().getClassLoader());
+    }
+
+    /**
+     * Activa la caché de segundo nivel y la caché de consultas de Hibernate sobre el CacheManager anterior.
+     * Si falta la configuración de alguna región el arranque falla, en lugar de crear una caché sin límites.
+     *
+     * @param cacheManager CacheManager JCache de Caffeine.
+     * @return Personalizador de las propiedades de Hibernate.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager cacheManager) {
+        return properties -> {
+            properties.put(CacheSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(CacheSettings.USE_QUERY_CACHE, true);
+            properties.put(CacheSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    /**
+     * Registra las métricas de cada región en Micrometer (cache.gets, cache.puts, cache.evictions, ...).
+     *
+     * @param cacheManager CacheManager JCache de Caffeine.
+     * @return MeterBinder con las métricas de las regiones.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager cacheManager) {
+        return registry -> {
+            for (String region : REGIONS)
+                JCacheMetrics.monitor(registry, cacheManager.getCache(region));
+        };
+    }
+}
@@ -1,16 +1,32 @@
 package com.grupo06.sistemapedidos.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.sql.DataSource;
 
 /**
  * Clase de configuración para la conexión a la base de datos.
  * Define y expone el bean DataSource que será utilizado por Spring Data JPA.
+ *
+ * El DataSource es un pool de conexiones HikariCP: las conexiones físicas se abren una vez y se reutilizan
+ * entre peticiones, en lugar de abrir una conexión nueva (TCP + autenticación) por cada operación JPA.
+ * Las métricas del pool (conexiones activas, inactivas, pendientes y tiempo de espera) se publican en
+ * Micrometer y se pueden consultar en /actuator/metrics/hikaricp.*
+ *
+ * Si se configuran réplicas de lectura (spring.datasource.replicas.urls), las transacciones de solo lectura
+ * (@Transactional(readOnly = true)) se envían a las réplicas y el resto al principal. Ver {@link ReplicaRoutingDataSource}.
  */
 @Configuration
 @EnableJpaRepositories(basePackages = "com.grupo06.sistemapedidos.repository")
@@ -22,23 +38,112 @@ public class DatabaseConfig {
     private String dbUsername;
     @Value("${spring.datasource.password}")
     private String dbPassword;
+    @Value("${spring.datasource.driver-class-name:org.postgresql.Driver}")
+    private String driverClassName;
+
+    // Configuración del pool, todas las propiedades tienen un valor por defecto razonable
+    @Value("${spring.datasource.hikari.pool-name:pedidos-pool}")
+    private String poolName;
+    @Value("${spring.datasource.hikari.minimum-idle:5}")
+    private int minimumIdle;
+    @Value("${spring.datasource.hikari.maximum-pool-size:20}")
+    private int maximumPoolSize;
+    @Value("${spring.datasource.hikari.idle-timeout:600000}")
+    private long idleTimeout;
+    @Value("${spring.datasource.hikari.max-lifetime:1800000}")
+    private long maxLifetime;
+    @Value("${spring.datasource.hikari.connection-timeout:30000}")
+    private long connectionTimeout;
+    @Value("${spring.datasource.hikari.leak-detection-threshold:0}")
+    private long leakDetectionThreshold;
+    @Value("${spring.datasource.hikari.connection-test-query:}")
+    private String connectionTestQuery;
+
+    // Réplicas de lectura, lista de URLs separadas por comas (vacía = sin réplicas)
+    @Value("${spring.datasource.replicas.urls:}")
+    private List<String> replicaUrls;
+    @Value("${spring.datasource.replicas.username:${spring.datasource.username}}")
+    private String replicaUsername;
+    @Value("${spring.datasource.replicas.password:${spring.datasource.password}}")
+    private String replicaPassword;
+    @Value("${spring.datasource.replicas.connection-timeout:2000}")
+    private long replicaConnectionTimeout;
+    @Value("${spring.datasource.replicas.down-cooldown:30000}")
+    private long replicaDownCooldown;
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
 
     /**
      * Crea y configura el bean DataSource que se utilizará para conectar a la base de datos PostgreSQL.
      *
+     * @param meterRegistry registro de métricas de Actuator, si está disponible se registran las métricas del pool.
      * @return DataSource configurado con los valores proporcionados.
      */
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+    public DataSource dataSource(ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource primary = createPool(poolName, dbUrl, dbUsername, dbPassword, connectionTimeout, false, meterRegistry);
+
+        List<String> urls = replicaUrls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+        if (urls.isEmpty())
+            return primary;
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++)
+            replicas.add(createPool(poolName + "-replica-" + i, urls.get(i), replicaUsername, replicaPassword,
+                    replicaConnectionTimeout, true, meterRegistry));
 
-        // Se especifica el driver para PostgreSQL
-        dataSource.setDriverClassName("org.postgresql.Driver");
+        // El proxy retrasa la obtención de la conexión hasta la primera sentencia, cuando ya se sabe
+        // si la transacción es de solo lectura, y elige entonces entre el principal y las réplicas
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replicas, replicaDownCooldown));
+        return proxy;
+    }
+
+    /**
+     * Crea un pool de conexiones HikariCP con la configuración común.
+     */
+    private HikariDataSource createPool(String name, String url, String username, String password,
+                                        long timeout, boolean readOnly, ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariConfig config = new HikariConfig();
+
+        // Se especifica el driver, por defecto PostgreSQL
+        config.setDriverClassName(driverClassName);
         // Se asignan los valores de conexión desde las propiedades externas
-        dataSource.setUrl(dbUrl);
-        dataSource.setUsername(dbUsername);
-        dataSource.setPassword(dbPassword);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+
+        // Tamaño y tiempos del pool
+        config.setPoolName(name);
+        config.setMinimumIdle(minimumIdle);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setIdleTimeout(idleTimeout);
+        config.setMaxLifetime(maxLifetime);
+        config.setConnectionTimeout(timeout);
+        // Avisa en el log si una conexión no se devuelve al pool en el tiempo indicado (0 = desactivado)
+        config.setLeakDetectionThreshold(leakDetectionThreshold);
+        // Si no se indica consulta de validación se usa Connection.isValid() del driver JDBC4
+        if (!connectionTestQuery.isBlank())
+            config.setConnectionTestQuery(connectionTestQuery);
+
+        if (readOnly) {
+            config.setReadOnly(true);
+            // Una réplica caída no debe impedir que arranque la aplicación
+            config.setInitializationFailTimeout(-1);
+        }
+
+        meterRegistry.ifAvailable(registry -> config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
 
-        return dataSource;
+        HikariDataSource pool = new HikariDataSource(config);
+        pools.add(pool);
+        return pool;
+    }
+
+    /**
+     * Cierra todos los pools de conexiones al detener la aplicación.
+     */
+    @PreDestroy
+    public void closePools() {
+        pools.forEach(HikariDataSource::close);
     }
 }
@@ -0,0 +1,264 @@
+package com.grupo06.sistemapedidos.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.util.backoff.FixedBackOff;
+import com.grupo06.sistemapedidos.service.KafkaConsumerService;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Clase de configuración de Kafka.
+ *
+ * Los eventos de pedidos ({@code pedido-creado}, {@code pedido-modificado} y {@code pedido-cancelado}) se envían en
+ * formato binario ({@link com.grupo06.sistemapedidos.utilities.PedidoEventoCodec}), así que necesitan una plantilla
+ * y una factoría de listeners con valores byte[]. Ambas parten de la configuración de spring.kafka.* y solo cambian
+ * el serializador del valor.
+ *
+ * Los listeners son por lotes ({@code pedidos.kafka.batch.*}): cada poll se guarda con un único saveAll y sus
+ * offsets se confirman después de la transacción. Un lote que falla no se reintenta en el hilo del consumidor: sus
+ * mensajes se reenvían a otro tópico y el consumidor sigue con el siguiente lote.
+ *
+ * Los productores se ajustan para rendimiento ({@code pedidos.kafka.producer.*}): agrupan los mensajes en lotes
+ * comprimidos durante unos milisegundos, con confirmación de todas las réplicas y sin duplicados en los reintentos.
+ *
+ * Los consumidores de estas factorías publican las métricas del cliente de Kafka en Micrometer; el número de
+ * consumidores de cada listener se configura en {@link KafkaConsumerService} ({@code pedidos.kafka.concurrency.*}).
+ */
+@Configuration
+public class KafkaConfig {
+
+    // Máximo de mensajes por lote (max.poll.records)
+    @Value("${pedidos.kafka.batch.max-records:500}")
+    private int batchMaxRecords;
+
+    // Espera máxima del broker para completar un lote (fetch.max.wait.ms)
+    @Value("${pedidos.kafka.batch.max-wait-ms:500}")
+    private int batchMaxWaitMs;
+
+    // Bytes que el broker intenta reunir antes de responder (fetch.min.bytes)
+    @Value("${pedidos.kafka.batch.min-bytes:1}")
+    private int batchMinBytes;
+
+    // Espera máxima para completar un lote de envío antes de mandarlo (linger.ms)
+    @Value("${pedidos.kafka.producer.linger-ms:10}")
+    private int producerLingerMs;
+
+    // Tamaño máximo de un lote de envío por partición, en bytes (batch.size)
+    @Value("${pedidos.kafka.producer.batch-size:65536}")
+    private int producerBatchSize;
+
+    // Compresión de los lotes: none, gzip, snappy, lz4 o zstd (compression.type)
+    @Value("${pedidos.kafka.producer.compression:lz4}")
+    private String producerCompression;
+
+    // Réplicas que deben confirmar cada envío: 0, 1 o all (acks)
+    @Value("${pedidos.kafka.producer.acks:all}")
+    private String producerAcks;
+
+    // Evita duplicados y desorden al reintentar un envío; requiere acks=all (enable.idempotence)
+    @Value("${pedidos.kafka.producer.idempotence:true}")
+    private boolean producerIdempotence;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public KafkaConfig(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+
+    /**
+     * Aplica {@code pedidos.kafka.producer.*} a la factoría de productores de Spring Boot, y con ella a las dos
+     * plantillas. Estas propiedades tienen prioridad sobre las equivalentes de spring.kafka.producer.*.
+     *
+     * @return personalización de la factoría de productores
+     */
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer pedidoProducerCustomizer() {
+        return factory -> {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(ProducerConfig.LINGER_MS_CONFIG, producerLingerMs);
+            properties.put(ProducerConfig.BATCH_SIZE_CONFIG, producerBatchSize);
+            properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producerCompression);
+            properties.put(ProducerConfig.ACKS_CONFIG, producerAcks);
+            properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, producerIdempotence);
+            factory.updateConfigs(properties);
+        };
+    }
+
+    /**
+     * Plantilla de texto para los tópicos que no son eventos de pedidos (procesado y dead letter).
+     * Se declara aquí porque Spring Boot deja de crear la suya al existir otra plantilla.
+     *
+     * @param producerFactory factoría de productores de Spring Boot
+     * @return KafkaTemplate con claves y valores de texto
+     */
+    @Bean
+    @Primary
+    public KafkaTemplate<String, String> kafkaTemplate(ProducerFactory<String, String> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * Plantilla para los eventos de pedidos en formato binario.
+     *
+     * @param producerFactory factoría de productores de Spring Boot, de la que se copia la configuración
+     * @return KafkaTemplate con claves de texto y valores byte[]
+     */
+    @Bean
+    public KafkaTemplate<String, byte[]> pedidoEventoKafkaTemplate(ProducerFactory<String, String> producerFactory) {
+        Map<String, Object> override = Map.of(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        ProducerFactory<String, byte[]> factory = copy(producerFactory.copyWithConfigurationOverride(override));
+        return new KafkaTemplate<>(factory);
+    }
+
+    /**
+     * Factoría de listeners por lotes para los eventos de pedidos en formato binario.
+     * Si el guardado de un lote falla, sus eventos se envían al tópico de reintentos sin esperar en el hilo del
+     * consumidor, y el listener sigue con el siguiente lote.
+     *
+     * @param consumerFactory factoría de consumidores de Spring Boot, de la que se copia la configuración
+     * @param pedidoEventoKafkaTemplate plantilla para reenviar los eventos al tópico de reintentos
+     * @return factoría de contenedores con claves de texto y valores byte[]
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> pedidoEventoListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory, KafkaTemplate<String, byte[]> pedidoEventoKafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = batchFactory(pedidoEventoConsumerFactory(consumerFactory));
+        DeadLetterPublishingRecoverer recoverer = deadLetterRecoverer(pedidoEventoKafkaTemplate, KafkaConsumerService.REINTENTO_TOPIC);
+        factory.setCommonErrorHandler(new DefaultErrorHandler((record, e) -> recoverer.accept(record, sinLote(e)), new FixedBackOff(0L, 0L)));
+        return factory;
+    }
+
+    /**
+     * Factoría de listeners de un mensaje para el tópico de reintentos de los eventos de pedidos.
+     * Los tópicos de reintento con espera no admiten listeners por lotes; el manejador de errores lo añade
+     * {@link org.springframework.kafka.annotation.RetryableTopic}.
+     *
+     * @param consumerFactory factoría de consumidores de Spring Boot, de la que se copia la configuración
+     * @return factoría de contenedores con claves de texto y valores byte[]
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> pedidoEventoReintentoListenerContainerFactory(ConsumerFactory<String, String> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(pedidoEventoConsumerFactory(consumerFactory));
+        return factory;
+    }
+
+    /**
+     * Publica en el tópico de eventos fallidos ({@link KafkaConsumerService#DLT_TOPIC}) los eventos que no se deben
+     * reintentar, como los que no se pueden leer, con las cabeceras de origen y de la excepción.
+     *
+     * @param pedidoEventoKafkaTemplate plantilla de los eventos de pedidos
+     * @return recoverer para usar desde los listeners
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer pedidoEventoDltRecoverer(KafkaTemplate<String, byte[]> pedidoEventoKafkaTemplate) {
+        return deadLetterRecoverer(pedidoEventoKafkaTemplate, KafkaConsumerService.DLT_TOPIC);
+    }
+
+    /**
+     * Factoría de listeners por lotes para los tópicos de texto (procesado y dead letter).
+     * Los mensajes de un lote que no se puede guardar se envían a "pedido-dead-letter".
+     *
+     * @param consumerFactory factoría de consumidores de Spring Boot, de la que se copia la configuración
+     * @param kafkaTemplate plantilla de texto para enviar los mensajes al dead letter
+     * @return factoría de contenedores con claves y valores de texto
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> pedidoTextoListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory, KafkaTemplate<String, String> kafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = batchFactory(withMetrics(new DefaultKafkaConsumerFactory<>(batchProperties(consumerFactory))));
+        factory.setCommonErrorHandler(new DefaultErrorHandler(deadLetterRecoverer(kafkaTemplate, "pedido-dead-letter"), new FixedBackOff(0L, 0L)));
+        return factory;
+    }
+
+    /**
+     * Factoría de consumidores con valores byte[] y la configuración de los lotes.
+     */
+    private ConsumerFactory<String, byte[]> pedidoEventoConsumerFactory(ConsumerFactory<String, String> consumerFactory) {
+        return withMetrics(new DefaultKafkaConsumerFactory<>(batchProperties(consumerFactory), new StringDeserializer(), new ByteArrayDeserializer()));
+    }
+
+    /**
+     * Registra en Micrometer las métricas del cliente de Kafka de cada consumidor (kafka.consumer.*), entre ellas los
+     * mensajes consumidos y el retraso (lag) de cada partición asignada.
+     */
+    private <V> DefaultKafkaConsumerFactory<String, V> withMetrics(DefaultKafkaConsumerFactory<String, V> factory) {
+        meterRegistry.ifAvailable(registry -> factory.addListener(new MicrometerConsumerListener<>(registry)));
+        return factory;
+    }
+
+    /**
+     * Copia la configuración de spring.kafka.consumer.* con el tamaño y la espera de los lotes.
+     * Un poll devuelve como mucho {@code pedidos.kafka.batch.max-records} mensajes, y el broker espera hasta
+     * {@code pedidos.kafka.batch.max-wait-ms} a tener {@code pedidos.kafka.batch.min-bytes} antes de responder.
+     */
+    private Map<String, Object> batchProperties(ConsumerFactory<String, String> consumerFactory) {
+        Map<String, Object> properties = new HashMap<>(consumerFactory.getConfigurationProperties());
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxRecords);
+        properties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchMaxWaitMs);
+        properties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchMinBytes);
+        return properties;
+    }
+
+    /**
+     * Crea una factoría de listeners por lotes. Los offsets de un lote se confirman cuando el listener termina
+     * (AckMode.BATCH), es decir, después de confirmar la transacción del guardado o de reenviar el lote fallido.
+     */
+    private static <V> ConcurrentKafkaListenerContainerFactory<String, V> batchFactory(ConsumerFactory<String, V> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, V> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
+
+    /**
+     * En el guardado en paralelo, el error del listener lleva dentro la {@link BatchListenerFailedException} con la
+     * posición del mensaje y, dentro de ella, el error del guardado. Se quita la intermedia para que las cabeceras
+     * kafka_dlt-exception-* tengan como causa el error del guardado, igual que en el guardado secuencial.
+     */
+    private static Exception sinLote(Exception e) {
+        if (e.getCause() instanceof BatchListenerFailedException lote && lote.getCause() != null)
+            return new ListenerExecutionFailedException(e.getMessage(), lote.getCause());
+        return e;
+    }
+
+    /**
+     * Recoverer que reenvía cada mensaje fallido a un tópico, conservando su clave (y con ella el orden por pedido)
+     * y añadiendo las cabeceras kafka_dlt-* con el tópico, la partición y el offset de origen y la excepción.
+     */
+    private static DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, ?> template, String topic) {
+        // Partición negativa: la elige Kafka a partir de la clave
+        return new DeadLetterPublishingRecoverer(template, (record, e) -> new TopicPartition(topic, -1));
+    }
+
+    // La copia conserva los genéricos de la original aunque el serializador del valor haya cambiado
+    @SuppressWarnings("unchecked")
+    private static ProducerFactory<String, byte[]> copy(ProducerFactory<String, ?> factory) {
+        return (ProducerFactory<String, byte[]>) factory;
+    }
+}
@@ -0,0 +1,345 @@
+package com.grupo06.sistemapedidos.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Grouped;
+import org.apache.kafka.streams.kstream.KGroupedStream;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedWindowStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.apache.kafka.streams.state.WindowStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.streams.KafkaStreamsInteractiveQueryService;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import com.grupo06.sistemapedidos.dto.PedidoAgregadoDTO;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.dto.ProductoVendidoDTO;
+import com.grupo06.sistemapedidos.dto.TendenciaDTO;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Clase de configuración de Kafka Streams, activa con {@code pedidos.streams.enabled=true}.
+ *
+ * La topología lee los eventos de {@code pedido-creado}, {@code pedido-modificado} y {@code pedido-cancelado} y mantiene
+ * en almacenes RocksDB locales los pedidos activos, las unidades y el importe de cada producto
+ * ({@value #PRODUCTOS_STORE}) y de cada usuario ({@value #USUARIOS_STORE}). Cada evento lleva todas las líneas del
+ * pedido, así que se guarda el último evento de cada pedido ({@value #PEDIDOS_STORE}) y a los agregados se les suma la
+ * diferencia entre el nuevo y el anterior: una modificación mueve unidades entre productos y una cancelación resta el
+ * pedido entero. Los almacenes se consultan con {@link KafkaStreamsInteractiveQueryService}.
+ *
+ * Para los productos más vendidos, las unidades que se añaden a pedidos se suman por producto en intervalos de
+ * {@code pedidos.streams.trending.refresh-seconds} ({@value #VENTAS_STORE}). Cada intervalo, cada tarea suma los
+ * intervalos de las ventanas de {@code pedidos.streams.trending.windows-minutes} (ventanas que avanzan un intervalo
+ * cada vez) y publica sus {@code pedidos.streams.trending.top} productos con más unidades de cada ventana en el tópico
+ * compactado {@value #TENDENCIA_TOPIC}, con clave la ventana y la partición. Todas las instancias leen ese tópico
+ * entero ({@value #TENDENCIA_STORE}), así que cualquiera puede responder juntando las particiones.
+ *
+ * El identificador de la aplicación (spring.kafka.streams.application-id, o spring.application.name) da nombre al grupo
+ * de consumidores y a los tópicos internos de la topología.
+ */
+@Slf4j
+@Configuration
+@EnableKafkaStreams
+@ConditionalOnProperty(name = "pedidos.streams.enabled", havingValue = "true")
+public class KafkaStreamsConfig {
+    public static final String PRODUCTOS_STORE = "pedidos-por-producto";
+    public static final String USUARIOS_STORE = "pedidos-por-usuario";
+    public static final String PEDIDOS_STORE = "pedidos-ultimo-evento";
+    public static final String VENTAS_STORE = "productos-vendidos-por-intervalo";
+    public static final String TENDENCIA_STORE = "productos-tendencia";
+    public static final String TENDENCIA_TOPIC = "productos-tendencia";
+
+    // Margen para los eventos que llegan después de que haya terminado su intervalo
+    private static final Duration GRACE = Duration.ofMinutes(1);
+
+    private static final Serde<PedidoEventoMensaje> EVENTO_SERDE = Serdes.serdeFrom(
+            (Serializer<PedidoEventoMensaje>) (topic, evento) -> PedidoEventoCodec.encode(evento),
+            (Deserializer<PedidoEventoMensaje>) (topic, bytes) -> bytes != null ? PedidoEventoCodec.decode(bytes) : null);
+
+    private final int top;
+    private final Duration intervalo;
+    private final int[] ventanasMinutos;
+    private final Duration ventanaMaxima;
+
+    public KafkaStreamsConfig(@Value("${pedidos.streams.trending.top:10}") int top,
+            @Value("${pedidos.streams.trending.refresh-seconds:5}") int refreshSeconds,
+            @Value("${pedidos.streams.trending.windows-minutes:5,15,60}") int[] ventanasMinutos) {
+        this.top = top;
+        this.intervalo = Duration.ofSeconds(refreshSeconds);
+        this.ventanasMinutos = ventanasMinutos;
+        this.ventanaMaxima = Duration.ofMinutes(Arrays.stream(ventanasMinutos).max().orElse(0));
+    }
+
+    /**
+     * Topología de los agregados por producto y por usuario y de los productos más vendidos.
+     *
+     * @param builder constructor de la topología de Spring Kafka
+     * @return eventos de pedidos leídos
+     */
+    @Bean
+    public KStream<String, PedidoEventoMensaje> pedidoAgregados(StreamsBuilder builder) {
+        Serde<PedidoAgregadoDTO> agregadoSerde = new JsonSerde<>(PedidoAgregadoDTO.class).noTypeInfo().ignoreTypeHeaders();
+        builder.addStateStore(Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(PEDIDOS_STORE), Serdes.String(), EVENTO_SERDE));
+
+        List<String> topics = Arrays.stream(PedidoEventoTipo.values()).map(PedidoEventoTipo::getTopic).toList();
+        KStream<String, PedidoEventoMensaje> eventos = builder.stream(topics, Consumed.with(Serdes.String(), Serdes.ByteArray()))
+                .flatMapValues(KafkaStreamsConfig::decode);
+        // Los tres tópicos tienen como clave el ID del pedido: todos los eventos de un pedido llegan a la misma tarea
+        KStream<String, Cambio> cambios = eventos.process(UltimoEventoProcessor::new, PEDIDOS_STORE);
+
+        KGroupedStream<Integer, PedidoAgregadoDTO> productos = agrupar(cambios, PRODUCTOS_STORE, KafkaStreamsConfig::porProducto, agregadoSerde);
+        productos.reduce(PedidoAgregadoDTO::sumar, materialized(PRODUCTOS_STORE, agregadoSerde));
+        agrupar(cambios, USUARIOS_STORE, KafkaStreamsConfig::porUsuario, agregadoSerde)
+                .reduce(PedidoAgregadoDTO::sumar, materialized(USUARIOS_STORE, agregadoSerde));
+        tendencia(builder, productos);
+        return eventos;
+    }
+
+    /**
+     * Tópico compactado de los productos más vendidos: solo se conserva el último cálculo de cada ventana y partición.
+     *
+     * @return tópico que crea KafkaAdmin al arrancar
+     */
+    @Bean
+    public NewTopic productosTendenciaTopic() {
+        return TopicBuilder.name(TENDENCIA_TOPIC).partitions(1).compact().build();
+    }
+
+    /**
+     * Servicio de consultas interactivas sobre los almacenes de la topología de esta instancia.
+     *
+     * @param streamsBuilderFactoryBean factoría de Kafka Streams de Spring Kafka
+     * @return servicio de consultas
+     */
+    @Bean
+    public KafkaStreamsInteractiveQueryService kafkaStreamsInteractiveQueryService(StreamsBuilderFactoryBean streamsBuilderFactoryBean) {
+        return new KafkaStreamsInteractiveQueryService(streamsBuilderFactoryBean);
+    }
+
+    /**
+     * Agrupa las diferencias de cada cambio de pedido por ID de producto o de usuario. Las diferencias se reparten por
+     * ID a través de un tópico interno con el nombre del almacén.
+     */
+    private static KGroupedStream<Integer, PedidoAgregadoDTO> agrupar(KStream<String, Cambio> cambios, String store,
+            Function<PedidoEventoMensaje, Map<Integer, PedidoAgregadoDTO>> aportaciones, Serde<PedidoAgregadoDTO> agregadoSerde) {
+        return cambios.flatMap((pedidoId, cambio) -> diferencias(cambio, aportaciones))
+                .groupByKey(Grouped.with(store, Serdes.Integer(), agregadoSerde));
+    }
+
+    private static Materialized<Integer, PedidoAgregadoDTO, KeyValueStore<Bytes, byte[]>> materialized(String store, Serde<PedidoAgregadoDTO> agregadoSerde) {
+        return Materialized.<Integer, PedidoAgregadoDTO, KeyValueStore<Bytes, byte[]>>as(store)
+                .withKeySerde(Serdes.Integer()).withValueSerde(agregadoSerde);
+    }
+
+    /**
+     * Suma por producto e intervalo las unidades añadidas a pedidos (las que se quitan o se cancelan no restan), publica
+     * cada intervalo los más vendidos de cada ventana y los lee de vuelta en un almacén global.
+     */
+    private void tendencia(StreamsBuilder builder, KGroupedStream<Integer, PedidoAgregadoDTO> productos) {
+        Serde<TendenciaDTO> tendenciaSerde = new JsonSerde<>(TendenciaDTO.class).noTypeInfo().ignoreTypeHeaders();
+        // Los intervalos se guardan mientras estén dentro de la ventana más larga
+        Duration retencion = ventanaMaxima.plus(intervalo).plus(GRACE);
+
+        productos.windowedBy(TimeWindows.ofSizeAndGrace(intervalo, GRACE))
+                .aggregate(() -> 0L, (productoId, diferencia, unidades) -> unidades + Math.max(0, diferencia.getUnidades()),
+                        Materialized.<Integer, Long, WindowStore<Bytes, byte[]>>as(VENTAS_STORE)
+                                .withKeySerde(Serdes.Integer()).withValueSerde(Serdes.Long()).withRetention(retencion))
+                .toStream()
+                .process(TendenciaProcessor::new, VENTAS_STORE)
+                .to(TENDENCIA_TOPIC, Produced.with(Serdes.String(), tendenciaSerde));
+        builder.globalTable(TENDENCIA_TOPIC, Consumed.with(Serdes.String(), tendenciaSerde),
+                Materialized.<String, TendenciaDTO, KeyValueStore<Bytes, byte[]>>as(TENDENCIA_STORE));
+    }
+
+    /**
+     * Clave de los productos más vendidos de una ventana calculados por una partición.
+     *
+     * @param minutos duración de la ventana
+     * @param particion partición de los productos, o vacío para el prefijo de todas
+     * @return clave con el formato minutos#partición
+     */
+    public static String tendenciaKey(int minutos, String particion) {
+        return minutos + "#" + particion;
+    }
+
+    /**
+     * Cambio de un pedido: el último evento aplicado (nulo si es el primero) y el nuevo.
+     */
+    record Cambio(PedidoEventoMensaje anterior, PedidoEventoMensaje actual) {
+    }
+
+    /**
+     * Guarda el último evento de cada pedido y emite el cambio respecto al anterior. Los eventos repetidos (el outbox
+     * los entrega al menos una vez) y los anteriores al último aplicado se descartan.
+     */
+    static class UltimoEventoProcessor implements Processor<String, PedidoEventoMensaje, String, Cambio> {
+        private ProcessorContext<String, Cambio> context;
+        private KeyValueStore<String, PedidoEventoMensaje> pedidos;
+
+        @Override
+        public void init(ProcessorContext<String, Cambio> context) {
+            this.context = context;
+            this.pedidos = context.getStateStore(PEDIDOS_STORE);
+        }
+
+        @Override
+        public void process(Record<String, PedidoEventoMensaje> record) {
+            PedidoEventoMensaje actual = record.value();
+            String pedidoId = String.valueOf(actual.pedidoId());
+            PedidoEventoMensaje anterior = pedidos.get(pedidoId);
+            if (anterior != null && (anterior.eventId().equals(actual.eventId()) || actual.timestamp().isBefore(anterior.timestamp())))
+                return;
+            pedidos.put(pedidoId, actual);
+            context.forward(record.withValue(new Cambio(anterior, actual)));
+        }
+    }
+
+    /**
+     * Cada intervalo de reloj suma los intervalos de unidades de los productos de su partición que caen en cada ventana
+     * y publica los más vendidos de cada una. Los registros que recibe (cada actualización de un intervalo) no se usan:
+     * lo que se publica se lee del almacén.
+     */
+    class TendenciaProcessor implements Processor<Windowed<Integer>, Long, String, TendenciaDTO> {
+        private ProcessorContext<String, TendenciaDTO> context;
+        private TimestampedWindowStore<Integer, Long> ventas;
+
+        @Override
+        public void init(ProcessorContext<String, TendenciaDTO> context) {
+            this.context = context;
+            this.ventas = context.getStateStore(VENTAS_STORE);
+            context.schedule(intervalo, PunctuationType.WALL_CLOCK_TIME, this::publicar);
+        }
+
+        @Override
+        public void process(Record<Windowed<Integer>, Long> record) {
+        }
+
+        private void publicar(long ahora) {
+            List<Map<Integer, Long>> unidades = new ArrayList<>();
+            for (int i = 0; i < ventanasMinutos.length; i++)
+                unidades.add(new HashMap<>());
+            try (KeyValueIterator<Windowed<Integer>, ValueAndTimestamp<Long>> intervalos
+                    = ventas.fetchAll(Instant.ofEpochMilli(ahora).minus(ventanaMaxima), Instant.ofEpochMilli(ahora))) {
+                intervalos.forEachRemaining(intervalo -> {
+                    for (int i = 0; i < ventanasMinutos.length; i++) {
+                        if (intervalo.key.window().start() >= ahora - Duration.ofMinutes(ventanasMinutos[i]).toMillis())
+                            unidades.get(i).merge(intervalo.key.key(), intervalo.value.value(), Long::sum);
+                    }
+                });
+            }
+            String particion = String.valueOf(context.taskId().partition());
+            for (int i = 0; i < ventanasMinutos.length; i++) {
+                TendenciaDTO tendencia = new TendenciaDTO(ventanasMinutos[i], Instant.ofEpochMilli(ahora), masVendidos(unidades.get(i), top));
+                context.forward(new Record<>(tendenciaKey(ventanasMinutos[i], particion), tendencia, ahora));
+            }
+        }
+    }
+
+    /**
+     * Obtiene los productos con más unidades, manteniendo solo los {@code top} mejores mientras se recorren.
+     *
+     * @param unidades unidades por ID de producto
+     * @param top número máximo de productos
+     * @return productos con unidades, de más a menos unidades
+     */
+    static List<ProductoVendidoDTO> masVendidos(Map<Integer, Long> unidades, int top) {
+        Comparator<ProductoVendidoDTO> porUnidades = Comparator.comparingLong(ProductoVendidoDTO::getUnidades);
+        PriorityQueue<ProductoVendidoDTO> mejores = new PriorityQueue<>(porUnidades);
+        unidades.forEach((productoId, total) -> {
+            if (total <= 0)
+                return;
+            mejores.add(new ProductoVendidoDTO(productoId, total));
+            if (mejores.size() > top)
+                mejores.poll();
+        });
+        List<ProductoVendidoDTO> productos = new ArrayList<>(mejores);
+        productos.sort(porUnidades.reversed());
+        return productos;
+    }
+
+    /**
+     * Diferencias que un cambio de pedido suma a cada producto o usuario: lo que aporta el evento nuevo menos lo que
+     * aportaba el anterior, sin los que no cambian.
+     *
+     * @param cambio evento anterior y nuevo del pedido
+     * @param aportaciones lo que aporta un pedido activo a cada producto o usuario, por ID
+     * @return diferencias por ID de producto o usuario
+     */
+    static List<KeyValue<Integer, PedidoAgregadoDTO>> diferencias(Cambio cambio, Function<PedidoEventoMensaje, Map<Integer, PedidoAgregadoDTO>> aportaciones) {
+        Map<Integer, PedidoAgregadoDTO> diferencias = new HashMap<>();
+        if (activo(cambio.actual()))
+            diferencias.putAll(aportaciones.apply(cambio.actual()));
+        if (activo(cambio.anterior())) {
+            aportaciones.apply(cambio.anterior()).forEach((id, aportacion) ->
+                    diferencias.put(id, diferencias.getOrDefault(id, new PedidoAgregadoDTO(id, 0, 0, 0)).restar(aportacion)));
+        }
+        return diferencias.entrySet().stream()
+                .filter(diferencia -> !diferencia.getValue().vacio())
+                .map(diferencia -> KeyValue.pair(diferencia.getKey(), diferencia.getValue()))
+                .toList();
+    }
+
+    // Un pedido cancelado ya no aporta nada
+    private static boolean activo(PedidoEventoMensaje evento) {
+        return evento != null && evento.tipo() != PedidoEventoTipo.CANCELADO;
+    }
+
+    // Un pedido aporta a cada producto un pedido, las unidades de su línea y el importe de la línea
+    static Map<Integer, PedidoAgregadoDTO> porProducto(PedidoEventoMensaje evento) {
+        Map<Integer, PedidoAgregadoDTO> aportaciones = new HashMap<>();
+        for (PedidoEventoMensaje.Linea linea : evento.lineas())
+            aportaciones.put(linea.productoId(), new PedidoAgregadoDTO(linea.productoId(), 1, linea.cantidad(), (long) linea.cantidad() * linea.precioUnitario()));
+        return aportaciones;
+    }
+
+    // Un pedido aporta a su usuario un pedido, sus unidades y su importe
+    static Map<Integer, PedidoAgregadoDTO> porUsuario(PedidoEventoMensaje evento) {
+        return Map.of(evento.usuarioId(), new PedidoAgregadoDTO(evento.usuarioId(), 1, evento.unidades(), evento.importe()));
+    }
+
+    // Los eventos que no se pueden leer se descartan; el consumidor de los eventos ya los envía al tópico de fallidos
+    private static List<PedidoEventoMensaje> decode(byte[] bytes) {
+        try {
+            return List.of(PedidoEventoCodec.decode(bytes));
+        } catch (RuntimeException e) {
+            log.warn("Evento de pedido ilegible descartado de los agregados: {}", e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.grupo06.sistemapedidos.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * DataSource de solo lectura que reparte las conexiones entre las réplicas mediante round-robin.
+ *
+ * Si una réplica no responde se marca como caída durante un tiempo de espera y se prueba la siguiente.
+ * Si ninguna réplica está disponible se utiliza el DataSource principal, de forma que las lecturas
+ * nunca fallan por culpa de una réplica caída.
+ *
+ * Se utiliza como "read-only DataSource" de {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * que lo elige automáticamente para las transacciones marcadas con @Transactional(readOnly = true).
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final long downCooldownMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // Instante hasta el que cada réplica se considera caída (0 = disponible)
+    private final AtomicLongArray downUntil;
+
+    /**
+     * @param primary DataSource principal, utilizado cuando no hay réplicas disponibles.
+     * @param replicas lista de DataSources de las réplicas de lectura.
+     * @param downCooldownMillis tiempo durante el que una réplica caída no se vuelve a probar.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long downCooldownMillis) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.downCooldownMillis = downCooldownMillis;
+        this.downUntil = new AtomicLongArray(replicas.size());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection getConnection(ConnectionSupplier supplier) throws SQLException {
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (downUntil.get(index) > now)
+                continue;
+            try {
+                return supplier.get(replicas.get(index));
+            } catch (SQLFeatureNotSupportedException e) {
+                // El pool no admite la operación (p. ej. credenciales por conexión en HikariCP), la réplica no está caída
+                throw e;
+            } catch (SQLException e) {
+                // Marcamos la réplica como caída y probamos con la siguiente
+                downUntil.set(index, now + downCooldownMillis);
+                log.warn("Réplica de lectura {} no disponible: {}", index, e.getMessage());
+            }
+        }
+        // Ninguna réplica disponible, las lecturas se sirven desde el principal
+        return supplier.get(primary);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+}
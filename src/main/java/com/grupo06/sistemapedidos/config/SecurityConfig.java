@@ -7,6 +7,7 @@ import com.grupo06.sistemapedidos.model.Usuario;
 import com.grupo06.sistemapedidos.repository.RoleRepository;
 import com.grupo06.sistemapedidos.repository.UserRepository;
 import com.grupo06.sistemapedidos.security.JwtAuthenticationFilter;
+import com.grupo06.sistemapedidos.service.RoleRegistry;
 import com.grupo06.sistemapedidos.utilities.ColorUtils;
 import java.io.IOException;
 import java.time.LocalDate;
@@ -90,15 +91,17 @@ public class SecurityConfig {
      * Crea un CommandLineRunner que inicializa los roles por defecto en la base de datos.
      * 
      * @param roleRepository Repositorio de roles para acceder a la base de datos.
+     * @param roleRegistry Registro en memoria de los roles, se refresca si se crea el rol.
      * @return Un CommandLineRunner que se ejecuta al iniciar la aplicación.
      */
     @Bean
     @Order(1)
-    public CommandLineRunner initDefaultRoles(RoleRepository roleRepository) {
+    public CommandLineRunner initDefaultRoles(RoleRepository roleRepository, RoleRegistry roleRegistry) {
         return args -> {
-            if (!roleRepository.findByName(RoleEnum.ADMIN).isPresent()) {
+            if (!roleRegistry.find(RoleEnum.ADMIN).isPresent()) {
                 Roles adminRole = new Roles(RoleEnum.ADMIN, "Administrator de la aplicación sistemas pedidos");
                 roleRepository.save(adminRole);
+                roleRegistry.refresh();
                 System.out.println(ColorUtils.pintarVerde("Rol ADMIN creado por defecto."));
             } 
         };
@@ -109,6 +112,7 @@ public class SecurityConfig {
      * 
      * @param userRepository Repositorio de usuarios para acceder a la base de datos.
      * @param roleRepository Repositorio de roles para acceder a la base de datos. 
+     * @param roleRegistry Registro en memoria de los roles.
      * @param passwordEncoder Codificador de contraseñas para encriptar la contraseña del usuario.
      * @return Un CommandLineRunner que se ejecuta al iniciar la aplicación.
      */
@@ -116,6 +120,7 @@ public class SecurityConfig {
     @Order(2)
     public CommandLineRunner initDefaultUser(UserRepository userRepository,
                                                RoleRepository roleRepository,
+                                               RoleRegistry roleRegistry,
                                                PasswordEncoder passwordEncoder) {
         return args -> {
             String defaultEmail = "admin@pedidos.com";
@@ -123,8 +128,12 @@ public class SecurityConfig {
             if (!userRepository.findByEmailAndName(defaultEmail, defaultName).isPresent()) {
                 try {
                          // Obtiene o crea el rol ADMIN
-                        Roles adminRole = roleRepository.findByName(RoleEnum.ADMIN)
-                        .orElseGet(() -> roleRepository.save(new Roles(RoleEnum.ADMIN, "Administrator de la aplicación sitemas pedidos")));
+                        Roles adminRole = roleRegistry.find(RoleEnum.ADMIN)
+                        .orElseGet(() -> {
+                            Roles role = roleRepository.save(new Roles(RoleEnum.ADMIN, "Administrator de la aplicación sitemas pedidos"));
+                            roleRegistry.refresh();
+                            return role;
+                        });
                 
                         Usuario defaultUser = new Usuario();
                         defaultUser.setName(defaultName);
@@ -0,0 +1,117 @@
+package com.grupo06.sistemapedidos.controller;
+
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.grupo06.sistemapedidos.annotations.SwaggerApiResponses;
+import com.grupo06.sistemapedidos.dto.PedidoAgregadoDTO;
+import com.grupo06.sistemapedidos.exception.APIExceptionHandler;
+import com.grupo06.sistemapedidos.service.PedidoAgregadoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Controlador REST para consultar los pedidos activos, las unidades y el importe por producto y por usuario,
+ * calculados en tiempo real por Kafka Streams. Solo existe con {@code pedidos.streams.enabled=true}.
+ *
+ * {@link RestController} Indica que esta clase es un controlador REST que manejará solicitudes HTTP.
+ * {@link RequestMapping} Define la ruta base para todos los endpoints de este controlador.
+ * {@link Tag} Documentación de OpenAPI para este controlador.
+ * {@link PreAuthorize} Anotación para restringir el acceso a los administradores.
+ *
+ * Swagger:
+ * {@link SwaggerApiResponses} Anotación personalizada para definir respuestas de API.
+ * {@link Operation} Documentación de OpenAPI para cada operación del controlador.
+ *
+ * Errores:
+ * {@link APIExceptionHandler} Manejo de excepciones personalizadas para errores de API.
+ */
+@RestController
+@RequestMapping("/api/estadisticas")
+@Tag(name = "Estadísticas", description = "Controlador para consultar los agregados de pedidos en tiempo real")
+@ConditionalOnProperty(name = "pedidos.streams.enabled", havingValue = "true")
+public class PedidoAgregadoController {
+
+    private final PedidoAgregadoService pedidoAgregadoService;
+
+    public PedidoAgregadoController(PedidoAgregadoService pedidoAgregadoService) {
+        this.pedidoAgregadoService = pedidoAgregadoService;
+    }
+
+    /**
+     * Obtiene los agregados de un producto
+     *
+     * @param id ID del producto
+     * @param soloLocal true en las consultas de otra instancia, que solo quieren el almacén local
+     * @param authorization token del usuario, se reenvía a la instancia que tiene el producto
+     * @return PedidoAgregadoDTO pedidos activos, unidades e importe del producto
+     */
+    @GetMapping("/producto/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SwaggerApiResponses
+    @Operation(summary = "Agregados de un producto", description = "Devuelve los pedidos activos, las unidades y el importe de un producto.")
+    public PedidoAgregadoDTO getProducto(@PathVariable Integer id,
+            @Parameter(hidden = true) @RequestHeader(value = PedidoAgregadoService.SOLO_LOCAL_HEADER, defaultValue = "false") boolean soloLocal,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return pedidoAgregadoService.getProducto(id, soloLocal, authorization);
+    }
+
+    /**
+     * Obtiene los agregados de todos los productos
+     *
+     * @param soloLocal true en las consultas de otra instancia, que solo quieren el almacén local
+     * @param authorization token del usuario, se reenvía a las demás instancias
+     * @return List<PedidoAgregadoDTO> agregados por producto, ordenados por ID
+     */
+    @GetMapping("/producto")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SwaggerApiResponses
+    @Operation(summary = "Agregados de todos los productos", description = "Devuelve los agregados de los productos que han estado en algún pedido.")
+    public List<PedidoAgregadoDTO> getProductos(
+            @Parameter(hidden = true) @RequestHeader(value = PedidoAgregadoService.SOLO_LOCAL_HEADER, defaultValue = "false") boolean soloLocal,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return pedidoAgregadoService.getProductos(soloLocal, authorization);
+    }
+
+    /**
+     * Obtiene los agregados de un usuario
+     *
+     * @param id ID del usuario
+     * @param soloLocal true en las consultas de otra instancia, que solo quieren el almacén local
+     * @param authorization token del usuario, se reenvía a la instancia que tiene el usuario
+     * @return PedidoAgregadoDTO pedidos activos, unidades e importe del usuario
+     */
+    @GetMapping("/usuario/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SwaggerApiResponses
+    @Operation(summary = "Agregados de un usuario", description = "Devuelve los pedidos activos, las unidades y el importe de un usuario.")
+    public PedidoAgregadoDTO getUsuario(@PathVariable Integer id,
+            @Parameter(hidden = true) @RequestHeader(value = PedidoAgregadoService.SOLO_LOCAL_HEADER, defaultValue = "false") boolean soloLocal,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return pedidoAgregadoService.getUsuario(id, soloLocal, authorization);
+    }
+
+    /**
+     * Obtiene los agregados de todos los usuarios
+     *
+     * @param soloLocal true en las consultas de otra instancia, que solo quieren el almacén local
+     * @param authorization token del usuario, se reenvía a las demás instancias
+     * @return List<PedidoAgregadoDTO> agregados por usuario, ordenados por ID
+     */
+    @GetMapping("/usuario")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SwaggerApiResponses
+    @Operation(summary = "Agregados de todos los usuarios", description = "Devuelve los agregados de los usuarios que han tenido algún pedido.")
+    public List<PedidoAgregadoDTO> getUsuarios(
+            @Parameter(hidden = true) @RequestHeader(value = PedidoAgregadoService.SOLO_LOCAL_HEADER, defaultValue = "false") boolean soloLocal,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return pedidoAgregadoService.getUsuarios(soloLocal, authorization);
+    }
+}
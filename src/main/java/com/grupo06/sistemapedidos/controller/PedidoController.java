@@ -1,20 +1,32 @@
 package com.grupo06.sistemapedidos.controller;
 
+import java.io.IOException;
 import java.util.List;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import com.grupo06.sistemapedidos.annotations.SwaggerApiResponses;
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
+import com.grupo06.sistemapedidos.dto.PedidoBatchResultDTO;
 import com.grupo06.sistemapedidos.dto.PedidoDTO;
 import com.grupo06.sistemapedidos.exception.APIExceptionHandler;
+import com.grupo06.sistemapedidos.service.ExportService;
 import com.grupo06.sistemapedidos.service.PedidoService;
+import com.grupo06.sistemapedidos.utilities.ETagUtils;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 
@@ -39,22 +51,25 @@ import org.springframework.web.bind.annotation.PutMapping;
 @Tag(name = "Pedido", description = "Controlador para gestionar pedidos, con eventos gestionados por Kafka")
 public class PedidoController {
     private final PedidoService pedidoService; 
+    private final ExportService exportService;
 
-    public PedidoController (PedidoService pedidoService) {
+    public PedidoController (PedidoService pedidoService, ExportService exportService) {
         this.pedidoService = pedidoService;
+        this.exportService = exportService;
     }
 
     /**
      * Obtener un pedido por su id
      * 
      * @param id ID del pedido a obtener
-     * @return PedidoDTO DTO para la transferencia de pedidos, pedido encontrado
+     * @return PedidoDTO DTO para la transferencia de pedidos, pedido encontrado, con su versión en la cabecera ETag
      */
     @GetMapping("/{id}")
     @SwaggerApiResponses
     @Operation(summary = "Obtener un pedido por su ID", description = "Devuelve un pedido específico basado en su ID.")
-    public PedidoDTO getPedido(@PathVariable Integer id) {
-        return pedidoService.getPedidoById(id);
+    public ResponseEntity<PedidoDTO> getPedido(@PathVariable Integer id) {
+        PedidoDTO pedido = pedidoService.getPedidoById(id);
+        return ETagUtils.ok(pedido, pedido.getVersion());
     }
 
     /**
@@ -71,15 +86,38 @@ public class PedidoController {
     }
 
      /**
-     * Obtener todos los pedidos
+     * Obtener todos los pedidos paginados por cursor
      * 
-     * @return List<PedidoDTO> DTO para la transferencia de pedidos
+     * @param cursor cursor de la página anterior (nextCursor), vacío para la primera página
+     * @param size tamaño de página, por defecto 50 y como máximo 500
+     * @param sort ordenación por ID: "asc" o "desc"
+     * @return CursorPageDTO<PedidoDTO> página de pedidos y cursor de la siguiente
      */
     @GetMapping("/all")
     @SwaggerApiResponses
-    @Operation(summary = "Obtener todos los pedidos", description = "Devuelve una lista de todos los pedidos.")
-    public List<PedidoDTO> getAllPedidos()  {
-        return pedidoService.getAllPedidos();
+    @Operation(summary = "Obtener todos los pedidos", description = "Devuelve una página de pedidos ordenada por ID y el cursor de la página siguiente.")
+    public CursorPageDTO<PedidoDTO> getAllPedidos(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "asc") String sort) {
+        return pedidoService.getAllPedidos(cursor, size, sort);
+    }
+
+    /**
+     * Exportar todos los pedidos en formato NDJSON (un objeto JSON por línea), pensado para la conciliación nocturna.
+     * La respuesta se escribe a medida que se leen las filas, sin cargar la tabla completa en memoria.
+     *
+     * @param response respuesta HTTP en cuyo OutputStream se escriben las líneas
+     * @throws IOException si el cliente cierra la conexión durante la exportación
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SwaggerApiResponses
+    @Operation(summary = "Exportar todos los pedidos", description = "Devuelve todos los pedidos ordenados por ID en formato NDJSON.")
+    public void exportPedidos(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"pedidos.ndjson\"");
+        exportService.exportPedidos(response.getOutputStream());
     }
 
     /**
@@ -96,17 +134,35 @@ public class PedidoController {
         return pedidoService.postPedido(pedidoDTO);
     }
     
+    /**
+     * Crear un lote de pedidos en una sola petición, pensado para los socios que envían miles de pedidos a la vez
+     * Cada pedido se crea o se rechaza por separado: la respuesta lleva el resultado de cada uno en el mismo orden
+     * 
+     * @param pedidos lista de DTOs de pedidos, cada uno con el id del usuario y una lista de ids de productos
+     * @return List<PedidoBatchResultDTO> resultado de cada pedido: el pedido creado o el error
+     */
+    @PostMapping("/batch")
+    @SwaggerApiResponses
+    @Operation(summary = "Crear un lote de pedidos", description = "Crea varios pedidos en una sola transacción y devuelve el resultado de cada uno, los pedidos con errores no impiden crear el resto.")
+    public List<PedidoBatchResultDTO> postPedidos(@RequestBody List<PedidoDTO> pedidos) {
+        return pedidoService.postPedidos(pedidos);
+    }
+
     /**
      * Actualizar un pedido existente por id, deven existir previamente los productos y el usuario
      * 
+     * @param id ID del pedido a actualizar
      * @param pedidoDTO DTO DTO para la transferencia de pedidos, se compone de el id del usuario y una lista de ids de productos
-     * @return PedidoDTO DTO para la transferencia de pedidos
+     * @param ifMatch ETag (versión) esperado del pedido, opcional
+     * @return PedidoDTO DTO para la transferencia de pedidos, con la nueva versión en la cabecera ETag
      */
     @PutMapping("/{id}")
     @SwaggerApiResponses
     @Operation(summary = "Actualizar un pedido existente", description = "Actualiza un pedido existente basado en el DTO proporcionado.")
-    public PedidoDTO putPedido(@RequestBody PedidoDTO pedidoDTO) {
-        return pedidoService.putPedidoById(pedidoDTO);
+    public ResponseEntity<PedidoDTO> putPedido(@PathVariable Integer id, @RequestBody PedidoDTO pedidoDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        PedidoDTO pedido = pedidoService.putPedidoById(id, pedidoDTO, ETagUtils.parseIfMatch(ifMatch));
+        return ETagUtils.ok(pedido, pedido.getVersion());
     }
 
      /**
@@ -1,22 +1,40 @@
 package com.grupo06.sistemapedidos.controller;
 
+import java.io.IOException;
 import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import com.grupo06.sistemapedidos.annotations.SwaggerApiResponses;
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
+import com.grupo06.sistemapedidos.dto.ImportReportDTO;
 import com.grupo06.sistemapedidos.dto.ProductDTO;
+import com.grupo06.sistemapedidos.dto.TendenciaDTO;
+import com.grupo06.sistemapedidos.enums.ApiError;
 import com.grupo06.sistemapedidos.exception.APIExceptionHandler;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.service.ExportService;
+import com.grupo06.sistemapedidos.service.PedidoAgregadoService;
+import com.grupo06.sistemapedidos.service.ProductImportService;
 import com.grupo06.sistemapedidos.service.ProductService;
+import com.grupo06.sistemapedidos.utilities.ETagUtils;
 import org.springframework.http.HttpStatus;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 
@@ -42,50 +60,117 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 public class ProductController {
 
     private ProductService productoService;
+    private ExportService exportService;
+    private ProductImportService productImportService;
+    // Solo existe con pedidos.streams.enabled=true
+    private ObjectProvider<PedidoAgregadoService> pedidoAgregadoService;
 
-    public ProductController(ProductService productoService) {
+    public ProductController(ProductService productoService, ExportService exportService, ProductImportService productImportService,
+            ObjectProvider<PedidoAgregadoService> pedidoAgregadoService) {
         this.productoService = productoService;
+        this.exportService = exportService;
+        this.productImportService = productImportService;
+        this.pedidoAgregadoService = pedidoAgregadoService;
     }
 
     /**
      * Obtiene un producto por su ID
      * 
      * @param id ID del producto a obtener
-     * @return ProductDTO DTO para la transferencia de productos, producto encontrado
+     * @return ProductDTO DTO para la transferencia de productos, producto encontrado, con su versión en la cabecera ETag
      */
     @GetMapping("/{id}") 
     @SwaggerApiResponses 
     @Operation(summary = "Obtener un producto por su ID", description = "Devuelve un producto específico basado en su ID.")
-    public ProductDTO getProductoById(@PathVariable Integer id) {
+    public ResponseEntity<ProductDTO> getProductoById(@PathVariable Integer id) {
         // Busca el producto por ID y devuelve una respuesta HTTP adecuada
-        return productoService.getProductoById(id);
+        ProductDTO producto = productoService.getProductoById(id);
+        return ETagUtils.ok(producto, producto.getVersion());
     }
 
     /**
      * Obtiene un producto por su nombre
      * 
      * @param nombre Nombre del producto a obtener
-     * @return ProductDTO DTO para la transferencia de productos, producto encontrado
+     * @return ProductDTO DTO para la transferencia de productos, producto encontrado, con su versión en la cabecera ETag
      */
     @GetMapping("/name/{name}")
     @SwaggerApiResponses
     @Operation(summary = "Obtener un producto por su nombre", description = "Devuelve un producto específico basado en su nombre.")
-    public ProductDTO getProductoByName(@PathVariable String name) {
+    public ResponseEntity<ProductDTO> getProductoByName(@PathVariable String name) {
         // Busca el producto por nombre y devuelve una respuesta HTTP adecuada
-        return productoService.getProductoByName(name);
+        ProductDTO producto = productoService.getProductoByName(name);
+        return ETagUtils.ok(producto, producto.getVersion());
     }
 
      /**
-     * Obtiene todos los productos
+     * Obtiene todos los productos paginados por cursor
      * 
-     * @return List<ProductDTO> DTO para la transferencia de productos
+     * @param cursor cursor de la página anterior (nextCursor), vacío para la primera página
+     * @param size tamaño de página, por defecto 50 y como máximo 500
+     * @param sort ordenación por ID: "asc" o "desc"
+     * @return CursorPageDTO<ProductDTO> página de productos y cursor de la siguiente
      */
      @GetMapping("/all") // Define un endpoint GET para obtener todos los productos
      @SwaggerApiResponses // Anotación personalizada para definir respuestas de API
-     @Operation(summary = "Obtener todos los productos", description = "Devuelve una lista de todos los productos.")
-     public List<ProductDTO> getAllProductos() {
-         // Devuelve una lista de todos los productos almacenados en la base de datos
-         return productoService.getAllProductos();
+     @Operation(summary = "Obtener todos los productos", description = "Devuelve una página de productos ordenada por ID y el cursor de la página siguiente.")
+     public CursorPageDTO<ProductDTO> getAllProductos(@RequestParam(required = false) String cursor,
+             @RequestParam(required = false) Integer size,
+             @RequestParam(defaultValue = "asc") String sort) {
+         // Devuelve una página de productos almacenados en la base de datos
+         return productoService.getAllProductos(cursor, size, sort);
+     }
+
+     /**
+      * Obtiene los productos más vendidos de los últimos minutos, calculados por Kafka Streams
+      *
+      * @param minutos duración de la ventana: 5, 15 o 60 minutos por defecto
+      * @return TendenciaDTO productos con más unidades pedidas en la ventana, de más a menos
+      */
+     @GetMapping("/tendencia")
+     @SwaggerApiResponses
+     @Operation(summary = "Productos más vendidos", description = "Devuelve los productos con más unidades pedidas en los últimos minutos, recalculados cada pocos segundos.")
+     public TendenciaDTO getTendencia(@RequestParam(defaultValue = "5") int minutos) {
+         PedidoAgregadoService service = pedidoAgregadoService.getIfAvailable();
+         if (service == null)
+             throw new RequestException(ApiError.STATISTICS_UNAVAILABLE);
+         return service.getTendencia(minutos);
+     }
+
+     /**
+      * Exportar todos los productos en formato NDJSON (un objeto JSON por línea), pensado para la conciliación nocturna.
+      * La respuesta se escribe a medida que se leen las filas, sin cargar la tabla completa en memoria.
+      *
+      * @param response respuesta HTTP en cuyo OutputStream se escriben las líneas
+      * @throws IOException si el cliente cierra la conexión durante la exportación
+      */
+     @GetMapping("/export")
+     @PreAuthorize("hasRole('ADMIN')")
+     @SwaggerApiResponses
+     @Operation(summary = "Exportar todos los productos", description = "Devuelve todos los productos ordenados por ID en formato NDJSON.")
+     public void exportProductos(HttpServletResponse response) throws IOException {
+         response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+         response.setCharacterEncoding("UTF-8");
+         response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"productos.ndjson\"");
+         exportService.exportProductos(response.getOutputStream());
+     }
+
+     /**
+      * Importar productos de forma masiva desde un fichero CSV (cabecera name,stock,price,description) o NDJSON.
+      * El fichero se procesa a medida que se recibe, sin cargarlo completo en memoria.
+      *
+      * @param request petición HTTP de cuyo InputStream se leen las líneas
+      * @param upsert true para actualizar los productos que ya existen, false (por defecto) para ignorarlos
+      * @return ImportReportDTO resumen con las filas insertadas, actualizadas, ignoradas y rechazadas
+      * @throws IOException si el cliente cierra la conexión durante la importación
+      */
+     @PostMapping(value = "/import", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE })
+     @PreAuthorize("hasRole('ADMIN')")
+     @SwaggerApiResponses
+     @Operation(summary = "Importar productos", description = "Importa productos desde un fichero CSV o NDJSON y devuelve un resumen de la importación.")
+     public ImportReportDTO importProductos(HttpServletRequest request, @RequestParam(defaultValue = "false") boolean upsert) throws IOException {
+         boolean ndjson = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()));
+         return productImportService.importProductos(request.getInputStream(), ndjson, upsert);
      }
  
      /**
@@ -105,22 +190,28 @@ public class ProductController {
  
     /**
     * Actualiza un producto existente, debe existir previamente el usuario
+    * Si se envía la cabecera If-Match con el ETag leído, la actualización solo se aplica si nadie ha modificado el producto entretanto
     
     * @param productDTO DTO para la transferencia de productos, se compone de el id del usuario y una lista de ids de productos
-    * @return ProductDTO DTO para la transferencia de productos
+    * @param ifMatch ETag (versión) esperado del producto, opcional
+    * @return ProductDTO DTO para la transferencia de productos, con la nueva versión en la cabecera ETag
     */
      @PutMapping("/{id}")
      @SwaggerApiResponses 
      @Operation(summary = "Actualizar un producto por su ID", description = "Actualiza un producto específico basado en su ID.")
-     public ProductDTO updateProductById(@PathVariable Integer id, @RequestBody ProductDTO productDTO) {
-         return productoService.updateProductById(id, productDTO);
+     public ResponseEntity<ProductDTO> updateProductById(@PathVariable Integer id, @RequestBody ProductDTO productDTO,
+             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+         ProductDTO producto = productoService.updateProductById(id, productDTO, ETagUtils.parseIfMatch(ifMatch));
+         return ETagUtils.ok(producto, producto.getVersion());
      }
 
      @PutMapping("/name/{name}")
      @SwaggerApiResponses 
      @Operation(summary = "Actualizar un producto por su ID", description = "Actualiza un producto específico basado en su ID.")
-     public ProductDTO updateProductByName(@PathVariable String name, @RequestBody ProductDTO productDTO) {
-         return productoService.updateProductByName(name.toLowerCase().trim().replace(" ", "-"), productDTO);
+     public ResponseEntity<ProductDTO> updateProductByName(@PathVariable String name, @RequestBody ProductDTO productDTO,
+             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+         ProductDTO producto = productoService.updateProductByName(name, productDTO, ETagUtils.parseIfMatch(ifMatch));
+         return ETagUtils.ok(producto, producto.getVersion());
      }
     
    /**
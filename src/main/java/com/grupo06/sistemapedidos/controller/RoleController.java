@@ -1,7 +1,9 @@
 package com.grupo06.sistemapedidos.controller;
 
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import com.grupo06.sistemapedidos.annotations.SwaggerApiResponses;
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
 import com.grupo06.sistemapedidos.dto.RolesDTO;
 import com.grupo06.sistemapedidos.enums.RoleEnum;
 import com.grupo06.sistemapedidos.exception.APIExceptionHandler;
@@ -89,14 +91,18 @@ public class RoleController {
     /**
     * Obtiene todos los roles del sistema.
     *
-    * @param param Parámetro opcional para filtrar los roles.
-    * @return Lista de RolesDTO que representan todos los roles en el sistema.
+    * @param cursor cursor de la página anterior (nextCursor), vacío para la primera página
+    * @param size tamaño de página, por defecto 50 y como máximo 500
+    * @param sort ordenación por ID: "asc" o "desc"
+    * @return Página de RolesDTO que representan los roles del sistema.
     */
     @GetMapping("/all")
     @SwaggerApiResponses
-    @Operation(summary = "Obtener todos los roles", description = "Devuelve una lista de todos los roles.")
-    public List<RolesDTO> getAllRoles() {
-        return roleService.getAllRoles();
+    @Operation(summary = "Obtener todos los roles", description = "Devuelve una página de roles ordenada por ID y el cursor de la página siguiente.")
+    public CursorPageDTO<RolesDTO> getAllRoles(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "asc") String sort) {
+        return roleService.getAllRoles(cursor, size, sort);
     }
     
     /**
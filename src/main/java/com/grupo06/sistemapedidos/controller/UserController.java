@@ -1,12 +1,18 @@
 package com.grupo06.sistemapedidos.controller;
 
 import com.grupo06.sistemapedidos.annotations.SwaggerApiResponses;
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
+import com.grupo06.sistemapedidos.dto.ReconciliationReportDTO;
 import com.grupo06.sistemapedidos.dto.UsuarioDTO;
 import com.grupo06.sistemapedidos.exception.APIExceptionHandler;
+import com.grupo06.sistemapedidos.service.TotalSpentReconciliationService;
 import com.grupo06.sistemapedidos.service.UserService;
+import com.grupo06.sistemapedidos.utilities.ETagUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.web.bind.annotation.RequestBody; 
+import org.springframework.web.bind.annotation.RequestHeader;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -44,9 +50,11 @@ import org.springframework.web.bind.annotation.PutMapping;
 public class UserController {
 
     private final UserService userService;
+    private final TotalSpentReconciliationService totalSpentReconciliationService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, TotalSpentReconciliationService totalSpentReconciliationService) {
         this.userService = userService;
+        this.totalSpentReconciliationService = totalSpentReconciliationService;
     }
 
     /**
@@ -77,16 +85,21 @@ public class UserController {
     }
 
     /**
-     * Obtener todos los usuarios registrados
+     * Obtener todos los usuarios registrados paginados por cursor
      *
-     * @return Lista de usuarios registrados
+     * @param cursor cursor de la página anterior (nextCursor), vacío para la primera página
+     * @param size tamaño de página, por defecto 50 y como máximo 500
+     * @param sort ordenación por ID: "asc" o "desc"
+     * @return Página de usuarios registrados
      */
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")  
     @SwaggerApiResponses
     @Operation(summary = "Obtener todos los usuarios", description = "Este endpoint requiere autenticación JWT.")
-    public ResponseEntity<List<UsuarioDTO>> getAllUsers() {
-        List<UsuarioDTO> usersDTO = userService.getAllRegisteredUsers();
+    public ResponseEntity<CursorPageDTO<UsuarioDTO>> getAllUsers(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "asc") String sort) {
+        CursorPageDTO<UsuarioDTO> usersDTO = userService.getAllRegisteredUsers(cursor, size, sort);
         return ResponseEntity.ok(usersDTO);
     }
 
@@ -104,46 +117,65 @@ public class UserController {
         return ResponseEntity.ok(userService.getAllUsers(ids));
     }
 
+    /**
+     * Conciliar el total gastado de todos los usuarios con sus pedidos
+     *
+     * @param repair true para corregir las diferencias encontradas, false (por defecto) para solo informar de ellas
+     * @return Resumen de la conciliación con los usuarios que tienen diferencias
+     */
+    @PostMapping("/total-spent/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SwaggerApiResponses
+    @Operation(summary = "Conciliar el total gastado", description = "Recalcula el total gastado de cada usuario a partir de sus pedidos e informa de las diferencias. Este endpoint requiere autenticación JWT.")
+    public ResponseEntity<ReconciliationReportDTO> reconcileTotalSpent(@RequestParam(defaultValue = "false") boolean repair) {
+        return ResponseEntity.ok(totalSpentReconciliationService.reconcile(repair));
+    }
+
     /**
      * Obtener un usuario por su ID
      *
      * @param id ID del usuario
-     * @return UsuarioDTO con los datos del usuario
+     * @return UsuarioDTO con los datos del usuario y su versión en la cabecera ETag
      */
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')") 
     @SwaggerApiResponses
     @Operation(summary = "Obtener un usuario por ID", description = "Este endpoint requiere autenticación JWT.")
     public ResponseEntity<UsuarioDTO> getUserById(@PathVariable Integer id) {
-        return ResponseEntity.ok(userService.getUserById(id));
+        UsuarioDTO usuario = userService.getUserById(id);
+        return ETagUtils.ok(usuario, usuario.getVersion());
     }
 
     /**
      * Obtener un usuario por su email
      * 
      * @param email Email del usuario
-     * @return UsuarioDTO con los datos del usuario
+     * @return UsuarioDTO con los datos del usuario y su versión en la cabecera ETag
      */
     @GetMapping("/email/{email}")
     @PreAuthorize("hasRole('ADMIN')")
     @SwaggerApiResponses
     @Operation(summary = "Obtener un usuario por email", description = "Este endpoint requiere autenticación JWT.")
-    public UsuarioDTO getMethodName(@PathVariable String email) {
-        return userService.getUserByEmail(email);
+    public ResponseEntity<UsuarioDTO> getMethodName(@PathVariable String email) {
+        UsuarioDTO usuario = userService.getUserByEmail(email);
+        return ETagUtils.ok(usuario, usuario != null ? usuario.getVersion() : null);
     }
 
     /**
      * Actualizar un usuario logeado actualmente
      * 
      * @param entity DTO con los datos del usuario a actualizar
-     * @return UsuarioDTO con los datos del usuario actualizado
+     * @param ifMatch ETag (versión) esperado del usuario, opcional
+     * @return UsuarioDTO con los datos del usuario actualizado y la nueva versión en la cabecera ETag
      */
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')") 
     @SwaggerApiResponses
     @Operation(summary = "Actualizar un usuario por ID", description = "Este endpoint requiere autenticación JWT.")
-    public UsuarioDTO putUserById(@PathVariable Integer id, @RequestBody UsuarioDTO entity) {
-        return userService.putUserById(id, entity);
+    public ResponseEntity<UsuarioDTO> putUserById(@PathVariable Integer id, @RequestBody UsuarioDTO entity,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UsuarioDTO usuario = userService.putUserById(id, entity, ETagUtils.parseIfMatch(ifMatch));
+        return ETagUtils.ok(usuario, usuario.getVersion());
     }
 
     /**
@@ -151,14 +183,17 @@ public class UserController {
      * 
      * @param email Email del usuario
      * @param entity DTO con los datos del usuario a actualizar
-     * @return UsuarioDTO con los datos del usuario actualizado
+     * @param ifMatch ETag (versión) esperado del usuario, opcional
+     * @return UsuarioDTO con los datos del usuario actualizado y la nueva versión en la cabecera ETag
      */
     @PutMapping("/email/{email}")
     @PreAuthorize("hasRole('ADMIN')") 
     @SwaggerApiResponses
     @Operation(summary = "Actualizar un usuario por email", description = "Este endpoint requiere autenticación JWT.")
-    public UsuarioDTO putUserByEmail(@PathVariable String email, @RequestBody UsuarioDTO entity) {
-        return userService.putUserByEmail(email, entity);
+    public ResponseEntity<UsuarioDTO> putUserByEmail(@PathVariable String email, @RequestBody UsuarioDTO entity,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UsuarioDTO usuario = userService.putUserByEmail(email, entity, ETagUtils.parseIfMatch(ifMatch));
+        return ETagUtils.ok(usuario, usuario.getVersion());
     }
     
     /**
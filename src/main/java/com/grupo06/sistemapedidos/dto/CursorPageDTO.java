@@ -0,0 +1,29 @@
+package com.grupo06.sistemapedidos.dto;
+
+import java.util.List;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object (DTO) para representar una página de resultados con paginación por cursor (keyset).
+ * Contiene los elementos de la página y un cursor opaco para pedir la página siguiente.
+ * Si nextCursor es nulo no hay más resultados.
+ *
+ * @param <T> tipo de los elementos de la página
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO para representar una página de resultados paginados por cursor")
+public class CursorPageDTO<T> {
+    @Schema(description = "Elementos de la página")
+    private List<T> items;
+    @Schema(description = "Cursor opaco para obtener la siguiente página, nulo si no hay más resultados", example = "YXNjOjUw")
+    private String nextCursor;
+    @Schema(description = "Número de elementos devueltos en la página", example = "50")
+    private int size;
+}
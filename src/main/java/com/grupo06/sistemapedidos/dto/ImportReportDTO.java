@@ -0,0 +1,58 @@
+package com.grupo06.sistemapedidos.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object con el resumen de una importación masiva de productos.
+ * Solo se guardan los primeros errores, para que el informe no crezca con el tamaño del fichero.
+ *
+ * @Getter, @Setter y @NoArgsConstructor son anotaciones de Lombok para generar automáticamente los getters, setters y el constructor vacío
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Schema(description = "DTO con el resumen de una importación masiva de productos")
+public class ImportReportDTO {
+    /**
+     * Número máximo de errores que se detallan en el informe.
+     */
+    public static final int MAX_ERRORS = 100;
+
+    @Schema(description = "Filas leídas del fichero, sin contar la cabecera ni las líneas vacías", example = "100000")
+    private long read;
+
+    @Schema(description = "Productos nuevos insertados", example = "99000")
+    private long inserted;
+
+    @Schema(description = "Productos existentes actualizados (solo con upsert=true)", example = "0")
+    private long updated;
+
+    @Schema(description = "Filas duplicadas que no se han aplicado (por nombre, en la base de datos o en el propio fichero)", example = "990")
+    private long skipped;
+
+    @Schema(description = "Filas rechazadas por formato o validación", example = "10")
+    private long rejected;
+
+    @Schema(description = "Duración de la importación en milisegundos", example = "2300")
+    private long elapsedMs;
+
+    @Schema(description = "Motivo del rechazo de las primeras filas rechazadas, por número de línea", type = "map")
+    private Map<Long, String> errors = new LinkedHashMap<>();
+
+    /**
+     * Cuenta una fila rechazada y guarda su motivo si aún no se ha alcanzado el máximo de errores.
+     *
+     * @param line número de línea en el fichero
+     * @param reason motivo del rechazo
+     */
+    public void reject(long line, String reason) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS)
+            errors.put(line, reason);
+    }
+}
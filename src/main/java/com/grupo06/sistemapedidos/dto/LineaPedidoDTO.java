@@ -0,0 +1,31 @@
+package com.grupo06.sistemapedidos.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object (DTO) para representar una línea de un pedido: un producto y sus unidades.
+ * El precio unitario lo fija el servidor al comprar, por eso solo aparece en las respuestas.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "DTO para representar una línea de un pedido")
+public class LineaPedidoDTO {
+    @Schema(description = "ID del producto", example = "1")
+    private Integer producto;
+
+    @Schema(description = "Unidades del producto", example = "50")
+    private Integer cantidad;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Schema(description = "Precio unitario en el momento de la compra", example = "1500", accessMode = Schema.AccessMode.READ_ONLY)
+    private Integer precioUnitario;
+}
@@ -0,0 +1,62 @@
+package com.grupo06.sistemapedidos.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object con los pedidos activos, las unidades y el importe de un producto o de un usuario, calculados
+ * en tiempo real a partir de los eventos de pedidos. También se usa como valor de los almacenes de Kafka Streams y de
+ * los cambios que se suman a ellos, que pueden ser negativos.
+ *
+ * @Getter, @Setter, @NoArgsConstructor y @AllArgsConstructor son anotaciones de Lombok para generar automáticamente los getters, setters y constructores
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con los pedidos activos, las unidades y el importe de un producto o de un usuario")
+public class PedidoAgregadoDTO {
+    @Schema(description = "ID del producto o del usuario", example = "1")
+    private Integer id;
+
+    @Schema(description = "Pedidos activos (no cancelados) con el producto o del usuario", example = "12")
+    private long pedidos;
+
+    @Schema(description = "Unidades en los pedidos activos", example = "30")
+    private long unidades;
+
+    @Schema(description = "Importe de las unidades al precio de compra", example = "4500")
+    private long importe;
+
+    /**
+     * Suma dos agregados del mismo producto o usuario.
+     *
+     * @param other agregado o cambio a sumar
+     * @return nuevo agregado con la suma
+     */
+    public PedidoAgregadoDTO sumar(PedidoAgregadoDTO other) {
+        return new PedidoAgregadoDTO(id, pedidos + other.pedidos, unidades + other.unidades, importe + other.importe);
+    }
+
+    /**
+     * Resta a este agregado otro del mismo producto o usuario.
+     *
+     * @param other agregado a restar
+     * @return nuevo agregado con la diferencia
+     */
+    public PedidoAgregadoDTO restar(PedidoAgregadoDTO other) {
+        return new PedidoAgregadoDTO(id, pedidos - other.pedidos, unidades - other.unidades, importe - other.importe);
+    }
+
+    /**
+     * Indica si el agregado no tiene pedidos, unidades ni importe, es decir, si como cambio no cambia nada.
+     *
+     * @return true si todos los valores son cero
+     */
+    public boolean vacio() {
+        return pedidos == 0 && unidades == 0 && importe == 0;
+    }
+}
@@ -0,0 +1,37 @@
+package com.grupo06.sistemapedidos.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object con el resultado de un pedido dentro de un lote.
+ * Si el pedido se ha creado se rellenan id y pedido, si no se rellena error con el mismo formato que devuelve la API.
+ *
+ * @Getter, @Setter, @AllArgsConstructor y @NoArgsConstructor son anotaciones de Lombok para generar automáticamente los getters, setters y constructores
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "DTO con el resultado de un pedido dentro de un lote")
+public class PedidoBatchResultDTO {
+    @Schema(description = "Posición del pedido en el lote, empezando en 0", example = "0")
+    private int index;
+
+    @Schema(description = "Código HTTP que habría devuelto el pedido por separado", example = "201")
+    private int code;
+
+    @Schema(description = "ID del pedido creado", example = "1")
+    private Integer id;
+
+    @Schema(description = "Pedido creado")
+    private PedidoDTO pedido;
+
+    @Schema(description = "Error si el pedido no se ha creado")
+    private ExceptionDTO error;
+}
@@ -2,6 +2,9 @@ package com.grupo06.sistemapedidos.dto;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -11,16 +14,37 @@ import lombok.Setter;
 /**
  * Data Transfer Object (DTO) para representar un pedido.
  * Este DTO se utiliza para transferir información de pedido entre la capa de servicio y la capa de presentación.
- * Contiene el ID del usuario que realiza el pedido y una lista de IDs de productos incluidos en el pedido.
+ * Contiene el ID del usuario que realiza el pedido y sus líneas (producto y unidades).
+ * Para no romper a los clientes existentes, al crear o modificar un pedido también se acepta la lista de IDs de
+ * productos, donde cada repetición de un ID es una unidad más; las respuestas siempre usan las líneas.
  */
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Schema(description = "DTO para representar un pedido")
 public class PedidoDTO {
     @Schema(description = "ID del usuario que realiza el pedido", example = "1")
     private Integer usuario;
-    @Schema(description = "Lista de IDs de productos incluidos en el pedido", example = "[1, 2, 3]")
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    @Schema(description = "Formato antiguo: lista de IDs de productos, un ID repetido es una unidad más. Se suma a las líneas", example = "[1, 2, 2]", accessMode = Schema.AccessMode.WRITE_ONLY)
     private List<Integer> productos;
-}
\ No newline at end of file
+    @Schema(description = "Líneas del pedido: producto y unidades")
+    private List<LineaPedidoDTO> lineas;
+    // Versión del pedido, se envía en la cabecera ETag y no en el cuerpo
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Integer version;
+
+    /**
+     * Construye un pedido en el formato antiguo, con la lista de IDs de productos.
+     *
+     * @param usuario ID del usuario
+     * @param productos IDs de los productos, un ID repetido es una unidad más
+     * @param version versión del pedido
+     */
+    public PedidoDTO(Integer usuario, List<Integer> productos, Integer version) {
+        this(usuario, productos, null, version);
+    }
+}
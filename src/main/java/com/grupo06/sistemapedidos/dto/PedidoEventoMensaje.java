@@ -0,0 +1,45 @@
+package com.grupo06.sistemapedidos.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+
+/**
+ * Evento de pedido que se publica en Kafka, con clave el ID del pedido.
+ * Se serializa en formato binario con {@link com.grupo06.sistemapedidos.utilities.PedidoEventoCodec}.
+ *
+ * @param eventId identificador único del evento, permite a los consumidores descartar repeticiones
+ * @param tipo tipo de evento (creado, modificado o cancelado)
+ * @param pedidoId ID del pedido
+ * @param usuarioId ID del usuario del pedido
+ * @param lineas líneas del pedido en el momento del evento, ordenadas por ID de producto
+ * @param timestamp momento en el que se produjo el cambio del pedido
+ */
+public record PedidoEventoMensaje(UUID eventId, PedidoEventoTipo tipo, int pedidoId, int usuarioId,
+                                  List<Linea> lineas, Instant timestamp) {
+
+    /**
+     * Línea del pedido: producto, unidades y precio unitario de compra.
+     */
+    public record Linea(int productoId, int cantidad, int precioUnitario) {
+    }
+
+    /**
+     * Número total de unidades del pedido.
+     *
+     * @return suma de las unidades de todas las líneas
+     */
+    public int unidades() {
+        return lineas.stream().mapToInt(Linea::cantidad).sum();
+    }
+
+    /**
+     * Importe del pedido: la suma de unidades por precio de compra de sus líneas.
+     *
+     * @return importe total del pedido
+     */
+    public int importe() {
+        return lineas.stream().mapToInt(linea -> linea.cantidad() * linea.precioUnitario()).sum();
+    }
+}
@@ -1,11 +1,13 @@
 package com.grupo06.sistemapedidos.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * Data Transfer Object (DTO) para representar un producto.
@@ -15,6 +17,7 @@ import lombok.Data;
  */
 @Data
 @AllArgsConstructor
+@NoArgsConstructor
 @Schema(description = "DTO para representar un producto")
 public class ProductDTO {
     // Nombre del producto, no puede ser nulo ni estar vacío
@@ -40,4 +43,9 @@ public class ProductDTO {
     @NotEmpty(message = "La descripción no puede estar vacía")
     @Schema(description = "Descripción del producto", example = "Arroz de grano largo")
     private String description;
+
+    // Versión del producto, se envía en la cabecera ETag y no en el cuerpo
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Integer version;
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.grupo06.sistemapedidos.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object con las unidades pedidas de un producto en una ventana de tiempo.
+ *
+ * @Getter, @Setter, @NoArgsConstructor y @AllArgsConstructor son anotaciones de Lombok para generar automáticamente los getters, setters y constructores
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con las unidades pedidas de un producto en una ventana de tiempo")
+public class ProductoVendidoDTO {
+    @Schema(description = "ID del producto", example = "1")
+    private Integer producto;
+
+    @Schema(description = "Unidades añadidas a pedidos en la ventana", example = "25")
+    private long unidades;
+}
@@ -0,0 +1,71 @@
+package com.grupo06.sistemapedidos.dto;
+
+import java.util.Map;
+import java.util.TreeMap;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object con el resultado de la conciliación del total gastado de los usuarios.
+ * Solo se detallan los primeros usuarios con diferencias, para que el informe no crezca con el número de usuarios.
+ *
+ * @Getter, @Setter y @NoArgsConstructor son anotaciones de Lombok para generar automáticamente los getters, setters y el constructor vacío
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Schema(description = "DTO con el resultado de la conciliación del total gastado de los usuarios")
+public class ReconciliationReportDTO {
+    /**
+     * Número máximo de usuarios con diferencias que se detallan en el informe.
+     */
+    public static final int MAX_DRIFTS = 100;
+
+    @Schema(description = "Tramos de IDs de usuario procesados", example = "10")
+    private long chunks;
+
+    @Schema(description = "Usuarios comprobados", example = "10000")
+    private long checked;
+
+    @Schema(description = "Usuarios cuyo total gastado no coincide con sus pedidos", example = "2")
+    private long drifted;
+
+    @Schema(description = "Usuarios corregidos (solo con repair=true)", example = "2")
+    private long repaired;
+
+    @Schema(description = "Suma de las diferencias (recalculado - guardado) de todos los usuarios", example = "-300")
+    private long totalDrift;
+
+    @Schema(description = "Duración de la conciliación en milisegundos", example = "850")
+    private long elapsedMs;
+
+    @Schema(description = "Diferencia (recalculado - guardado) de los primeros usuarios con diferencias, por ID de usuario", type = "map")
+    private Map<Integer, Long> drifts = new TreeMap<>();
+
+    /**
+     * Acumula en este informe el resultado de un tramo.
+     *
+     * @param other informe de un tramo
+     */
+    public void merge(ReconciliationReportDTO other) {
+        chunks += other.chunks;
+        checked += other.checked;
+        drifted += other.drifted;
+        repaired += other.repaired;
+        totalDrift += other.totalDrift;
+        other.drifts.forEach(this::drift);
+    }
+
+    /**
+     * Guarda la diferencia de un usuario si aún no se ha alcanzado el máximo de usuarios detallados.
+     *
+     * @param usuarioId ID del usuario
+     * @param diferencia total recalculado menos total guardado
+     */
+    public void drift(Integer usuarioId, long diferencia) {
+        if (drifts.size() < MAX_DRIFTS)
+            drifts.put(usuarioId, diferencia);
+    }
+}
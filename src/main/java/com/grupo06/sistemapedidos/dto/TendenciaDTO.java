@@ -0,0 +1,32 @@
+package com.grupo06.sistemapedidos.dto;
+
+import java.time.Instant;
+import java.util.List;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object con los productos más vendidos de los últimos minutos, de más a menos unidades.
+ * Kafka Streams publica uno por ventana y partición con los productos de esa partición; la respuesta de la API junta
+ * los de todas las particiones.
+ *
+ * @Getter, @Setter, @NoArgsConstructor y @AllArgsConstructor son anotaciones de Lombok para generar automáticamente los getters, setters y constructores
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con los productos más vendidos de los últimos minutos")
+public class TendenciaDTO {
+    @Schema(description = "Duración de la ventana en minutos", example = "15")
+    private int minutos;
+
+    @Schema(description = "Momento del cálculo; la ventana son los minutos anteriores", example = "2026-01-01T10:15:00Z")
+    private Instant calculada;
+
+    @Schema(description = "Productos con más unidades pedidas en la ventana, de más a menos")
+    private List<ProductoVendidoDTO> productos;
+}
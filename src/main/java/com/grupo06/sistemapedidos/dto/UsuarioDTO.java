@@ -1,6 +1,7 @@
 package com.grupo06.sistemapedidos.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.grupo06.sistemapedidos.enums.RoleEnum;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -39,12 +40,17 @@ public class UsuarioDTO {
     @DateTimeFormat(pattern = "dd/MM/yyyy")
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
     private LocalDate signUpDate;
-    @Schema(description = "Total gastado por el usuario", example = "1000")
+    @Schema(description = "Total gastado por el usuario, lo calcula el servidor a partir de sus pedidos", example = "1000",
+            accessMode = Schema.AccessMode.READ_ONLY)
     private Integer totalSpent;
     @Schema(description = "Rol del usuario", example = "ADMIN")
     private RoleEnum rol;
     @Schema(hidden = true, nullable = true)
     private String token;
+    // Versión del usuario, se envía en la cabecera ETag y no en el cuerpo
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Integer version;
 
     public UsuarioDTO(String name, String email, LocalDate signUpDate, Integer totalSpent, RoleEnum rol) {
         this.name = name;
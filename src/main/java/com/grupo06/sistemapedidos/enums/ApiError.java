@@ -31,6 +31,10 @@ public enum ApiError {
 		HttpStatus.NOT_FOUND,
 		"Product Not Found",
 		"Product not found in the system."),
+	INSUFFICIENT_STOCK(
+		HttpStatus.CONFLICT,
+		"Insufficient Stock",
+		"Not enough stock for the requested product."),
 	PRODUCT_ALREADY_EXISTS(
 		HttpStatus.CONFLICT,
 		"Product Already Exists",
@@ -79,6 +83,14 @@ public enum ApiError {
 			HttpStatus.METHOD_NOT_ALLOWED,
 			"Method Not Allowed",
 			"HTTP method not supported for this endpoint."),
+	CONCURRENT_MODIFICATION(
+			HttpStatus.CONFLICT,
+			"Concurrent Modification",
+			"The resource was modified by another request, reload it and try again."),
+	PRECONDITION_FAILED(
+			HttpStatus.PRECONDITION_FAILED,
+			"Precondition Failed",
+			"The If-Match version does not match the current version of the resource."),
 	CONFLICT(
 			HttpStatus.CONFLICT,
 			"Resource Conflict",
@@ -122,7 +134,15 @@ public enum ApiError {
 	DUPLICATE_EMAIL(
 			HttpStatus.CONFLICT,
 			"Duplicate Email",
-			"Email already registered");
+			"Email already registered"),
+	BATCH_TOO_LARGE(
+			HttpStatus.PAYLOAD_TOO_LARGE,
+			"Batch Too Large",
+			"The batch contains more orders than allowed, split it into smaller batches."),
+	STATISTICS_UNAVAILABLE(
+			HttpStatus.SERVICE_UNAVAILABLE,
+			"Statistics Unavailable",
+			"Order statistics are not available yet, try again later.");
 
 	private final HttpStatus status;
 	private final String title;
@@ -0,0 +1,37 @@
+package com.grupo06.sistemapedidos.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Enumeración de los tipos de evento de pedido, con su tópico de Kafka y el código con el que se serializa.
+ * El código forma parte del formato binario de los eventos, por eso no se usa el ordinal: no debe cambiar
+ * aunque se reordenen o se añadan tipos.
+ * @Getter, @RequiredArgsConstructor son anotaciones de Lombok para generar automáticamente los getters y
+ * constructores con todos los argumentos
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PedidoEventoTipo {
+	CREADO("pedido-creado", (byte) 1),
+	MODIFICADO("pedido-modificado", (byte) 2),
+	CANCELADO("pedido-cancelado", (byte) 3);
+
+	private final String topic;
+	private final byte code;
+
+	/**
+	 * Obtiene el tipo de evento a partir de su código binario.
+	 *
+	 * @param code código del tipo
+	 * @return el tipo de evento
+	 * @throws IllegalArgumentException si el código no corresponde a ningún tipo
+	 */
+	public static PedidoEventoTipo fromCode(byte code) {
+		for (PedidoEventoTipo tipo : values()) {
+			if (tipo.code == code)
+				return tipo;
+		}
+		throw new IllegalArgumentException("Tipo de evento de pedido desconocido: " + code);
+	}
+}
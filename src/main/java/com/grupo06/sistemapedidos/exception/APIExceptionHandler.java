@@ -1,6 +1,7 @@
 package com.grupo06.sistemapedidos.exception;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -118,6 +119,25 @@ public class APIExceptionHandler {
 		return new ResponseEntity<>(apiException, HttpStatus.BAD_REQUEST);
 	}
 
+	/**
+	 * Maneja los conflictos del bloqueo optimista que se detectan al confirmar la transacción,
+	 * fuera del try/catch de los servicios: otra petición ha modificado la misma fila entretanto.
+	 * 
+	 * @param ex excepcion lanzada por la API
+	 * @return ResponseEntity con detalles estructurados sobre la excepción
+	 */
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<ExceptionDTO> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+		return new ResponseEntity<>(
+				new ExceptionDTO(
+						ApiError.CONCURRENT_MODIFICATION.getTitle(),
+						ApiError.CONCURRENT_MODIFICATION.getDetail(),
+						ApiError.CONCURRENT_MODIFICATION.getStatus().value(),
+						null,
+						ZonedDateTime.now().toLocalDateTime()),
+				ApiError.CONCURRENT_MODIFICATION.getStatus());
+	}
+
 	/**
 	 * Maneja excepciones generales que no son capturadas por otros manejadores.
 	 * Esta es una última línea de defensa para asegurar que todas las excepciones
@@ -1,10 +1,22 @@
 package com.grupo06.sistemapedidos.mapper;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
 
 import org.springframework.stereotype.Component;
+import com.grupo06.sistemapedidos.dto.LineaPedidoDTO;
 import com.grupo06.sistemapedidos.dto.PedidoDTO;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
 import com.grupo06.sistemapedidos.model.Pedido;
+import com.grupo06.sistemapedidos.model.PedidoLinea;
 import com.grupo06.sistemapedidos.model.Producto;
 import com.grupo06.sistemapedidos.model.Usuario;
 
@@ -18,17 +30,132 @@ public class PedidoMapper {
     public PedidoDTO toDTO(Pedido usuario){
         return new PedidoDTO(
             usuario.getUsuario().getId(), // Usuario
-            usuario.getProductos().stream()
-            .map(Producto::getId)
-            .toList() // Productos
+            null, // Productos, solo se usan en las peticiones
+            usuario.getLineas().stream()
+            .map(this::toDTO)
+            .toList(), // Líneas
+            usuario.getVersion() // Versión
         );
     }
-    
-    public Pedido toEntity(Usuario usuarioDTO, List<Producto> productosId) {
-        return new Pedido(
+
+    /**
+     * Construye el DTO de una línea. El ID del producto se lee de la clave primaria, sin cargar el producto.
+     */
+    public LineaPedidoDTO toDTO(PedidoLinea linea) {
+        return new LineaPedidoDTO(linea.getId().getProductoId(), linea.getCantidad(), linea.getPrecioUnitario());
+    }
+
+    /**
+     * Construye el DTO a partir del ID del usuario y las líneas ya consultadas,
+     * sin acceder a la entidad ni a sus relaciones.
+     */
+    public PedidoDTO toDTO(Integer usuarioId, List<LineaPedidoDTO> lineas) {
+        return new PedidoDTO(usuarioId, null, lineas, null);
+    }
+
+    /**
+     * Construye el evento de Kafka de un pedido con sus líneas actuales.
+     *
+     * @param tipo tipo de evento
+     * @param pedido pedido guardado, con ID
+     * @return evento con un ID nuevo y la hora actual
+     */
+    public PedidoEventoMensaje toEvento(PedidoEventoTipo tipo, Pedido pedido) {
+        return new PedidoEventoMensaje(
+            UUID.randomUUID(), // ID del evento
+            tipo, // Tipo
+            pedido.getId(), // Pedido
+            pedido.getUsuario().getId(), // Usuario
+            pedido.getLineas().stream()
+            .map(linea -> new PedidoEventoMensaje.Linea(linea.getId().getProductoId(), linea.getCantidad(), linea.getPrecioUnitario()))
+            .toList(), // Líneas
+            Instant.now() // Momento del cambio
+        );
+    }
+
+    /**
+     * Construye un pedido nuevo con una línea por producto, al precio actual de cada producto.
+     *
+     * @param usuarioDTO usuario del pedido
+     * @param cantidades unidades por ID de producto
+     * @param productos productos del pedido por ID
+     * @return Pedido sin guardar
+     */
+    public Pedido toEntity(Usuario usuarioDTO, SortedMap<Integer, Integer> cantidades, Map<Integer, Producto> productos) {
+        Pedido pedido = new Pedido(
             null, // Id
             usuarioDTO, // Usuario
-            productosId // Producto
+            new ArrayList<>(), // Líneas
+            null // Versión, la asigna Hibernate al guardar
         );
+        updateLineas(pedido, cantidades, productos);
+        return pedido;
+    }
+
+    /**
+     * Actualiza las líneas de un pedido con las nuevas unidades por producto.
+     * Las líneas de productos que siguen en el pedido conservan su precio de compra, las nuevas toman
+     * el precio actual del producto y las de productos retirados se eliminan.
+     *
+     * @param pedido pedido a actualizar
+     * @param cantidades unidades por ID de producto
+     * @param productos productos del pedido por ID, al menos los que no tienen línea todavía
+     */
+    public void updateLineas(Pedido pedido, SortedMap<Integer, Integer> cantidades, Map<Integer, Producto> productos) {
+        Map<Integer, PedidoLinea> actuales = new HashMap<>();
+        for (PedidoLinea linea : pedido.getLineas())
+            actuales.put(linea.getId().getProductoId(), linea);
+        pedido.getLineas().removeIf(linea -> !cantidades.containsKey(linea.getId().getProductoId()));
+        cantidades.forEach((productoId, cantidad) -> {
+            PedidoLinea linea = actuales.get(productoId);
+            if (linea != null) {
+                linea.setCantidad(cantidad);
+            } else {
+                Producto producto = productos.get(productoId);
+                pedido.getLineas().add(new PedidoLinea(pedido, producto, cantidad, producto.getPrice()));
+            }
+        });
+    }
+
+    /**
+     * Obtiene las unidades por ID de producto de un pedido, juntando las líneas y la lista de IDs del formato antiguo
+     * (cada repetición de un ID es una unidad más). Un producto que aparece varias veces suma sus unidades.
+     *
+     * @param pedidoDTO DTO del pedido
+     * @return unidades por ID de producto ordenadas por ID, o nulo si el pedido no tiene productos ni líneas,
+     * o alguna línea no tiene producto o tiene menos de una unidad
+     */
+    public SortedMap<Integer, Integer> toCantidades(PedidoDTO pedidoDTO) {
+        if (pedidoDTO.getProductos() == null && pedidoDTO.getLineas() == null)
+            return null;
+        SortedMap<Integer, Integer> cantidades = new TreeMap<>();
+        for (Integer productoId : nonNull(pedidoDTO.getProductos())) {
+            if (productoId == null)
+                return null;
+            cantidades.merge(productoId, 1, Integer::sum);
+        }
+        for (LineaPedidoDTO linea : nonNull(pedidoDTO.getLineas())) {
+            if (linea == null || linea.getProducto() == null || linea.getCantidad() == null || linea.getCantidad() < 1)
+                return null;
+            cantidades.merge(linea.getProducto(), linea.getCantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+
+    /**
+     * Obtiene las unidades por ID de producto de las líneas guardadas de un pedido.
+     *
+     * @param lineas líneas del pedido
+     * @return unidades por ID de producto ordenadas por ID
+     */
+    public SortedMap<Integer, Integer> toCantidades(Collection<PedidoLinea> lineas) {
+        SortedMap<Integer, Integer> cantidades = new TreeMap<>();
+        for (PedidoLinea linea : lineas)
+            cantidades.put(linea.getId().getProductoId(), linea.getCantidad());
+        return cantidades;
+    }
+
+    private static <T> List<T> nonNull(List<T> lista) {
+        return lista != null ? lista : List.of();
     }
 }
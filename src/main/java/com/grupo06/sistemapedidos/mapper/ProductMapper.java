@@ -13,22 +13,37 @@ import com.grupo06.sistemapedidos.model.Producto;
 @Component
 public class ProductMapper {
 
+    /**
+     * Normaliza el nombre de un producto a su slug: minúsculas, sin espacios en los extremos y con guiones
+     * en lugar de espacios. Es la clave con la que se guardan y se buscan los productos por nombre.
+     *
+     * @param name nombre del producto
+     * @return slug del producto
+     */
+    public static String toSlug(String name) {
+        return name.toLowerCase().trim().replace(" ", "-");
+    }
+
     // Convierte de Producto (entidad) a ProductDTO
     public ProductDTO toDTO(Producto producto) {
         ProductDTO dto = new ProductDTO(
-                producto.getName().toLowerCase().trim().replace(" ", "-"), 
+                toSlug(producto.getName()), 
                 producto.getStock(), 
                 producto.getPrice(), 
-                producto.getDescription()
+                producto.getDescription(),
+                producto.getVersion()
         );
         return dto;
     }
 
     // Convierte de ProductDTO a Producto (entidad)
     public Producto toEntity(ProductDTO dto) {
-        
-        Producto producto = new Producto();
-        producto.setName(dto.getName().toLowerCase().trim().replace(" ", "-"));
+        return updateEntity(new Producto(), dto);
+    }
+
+    // Copia los datos del DTO sobre un producto existente, sin tocar su ID ni su versión
+    public Producto updateEntity(Producto producto, ProductDTO dto) {
+        producto.setName(toSlug(dto.getName()));
         producto.setStock(dto.getStock());
         producto.setPrice(dto.getPrice());
         producto.setDescription(dto.getDescription());
@@ -1,6 +1,6 @@
 package com.grupo06.sistemapedidos.mapper;
 
-import com.grupo06.sistemapedidos.repository.RoleRepository;
+import com.grupo06.sistemapedidos.service.RoleRegistry;
 
 import java.util.Optional;
 
@@ -21,10 +21,10 @@ import com.grupo06.sistemapedidos.model.Roles;
 @Component
 public class UserMapper {
 
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
 
-    public UserMapper(RoleRepository roleRepository) {
-        this.roleRepository = roleRepository;
+    public UserMapper(RoleRegistry roleRegistry) {
+        this.roleRegistry = roleRegistry;
     }
 
     /**
@@ -36,13 +36,15 @@ public class UserMapper {
     public UsuarioDTO toDTO(Usuario usuario) {
         RoleEnum roleEnum = usuario.getRole() != null ? usuario.getRole().getName() : null;
 
-        return new UsuarioDTO(
+        UsuarioDTO dto = new UsuarioDTO(
                 usuario.getName(),
                 usuario.getEmail(),
                 usuario.getSignUpDate(),
                 usuario.getTotalSpent(),
                 roleEnum
         );
+        dto.setVersion(usuario.getVersion());
+        return dto;
     }
 
     /**
@@ -63,11 +65,12 @@ public class UserMapper {
         BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
         usuario.setPassword(encoder.encode(usuarioDTO.getPassword()));
         usuario.setSignUpDate(usuarioDTO.getSignUpDate());
-        usuario.setTotalSpent(usuarioDTO.getTotalSpent() != null ? usuarioDTO.getTotalSpent() : 0);
+        // El total gastado lo mantienen los pedidos: un usuario nuevo empieza siempre en 0
+        usuario.setTotalSpent(0);
 
-        // Buscar el rol en la base de datos
+        // Buscar el rol en el registro en memoria, sin consultar la base de datos
         RoleEnum roleEnum = RoleEnum.valueOf(usuarioDTO.getRol().toString());
-        Optional<Roles> roleEntity = roleRepository.findByName(roleEnum);
+        Optional<Roles> roleEntity = roleRegistry.find(roleEnum);
 
         if(!roleEntity.isPresent()){
             throw new RequestException(ApiError.ROLE_NOT_FOUND);
@@ -77,4 +80,27 @@ public class UserMapper {
 
         return usuario;
     }
+
+    /**
+     * Copia los datos del DTO sobre un usuario existente, sin tocar su ID ni su versión.
+     * La contraseña, la fecha de registro y el rol solo se cambian si vienen en el DTO. El total gastado no se copia
+     * nunca: lo mantienen los pedidos con incrementos atómicos y la conciliación.
+     *
+     * @param usuario el usuario a actualizar
+     * @param usuarioDTO el DTO con los nuevos datos
+     * @return el mismo usuario actualizado
+     */
+    public Usuario updateEntity(Usuario usuario, UsuarioDTO usuarioDTO) {
+        usuario.setName(usuarioDTO.getName());
+        usuario.setEmail(usuarioDTO.getEmail());
+        if (usuarioDTO.getPassword() != null)
+            usuario.setPassword(new BCryptPasswordEncoder().encode(usuarioDTO.getPassword()));
+        if (usuarioDTO.getSignUpDate() != null)
+            usuario.setSignUpDate(usuarioDTO.getSignUpDate());
+        if (usuarioDTO.getRol() != null)
+            usuario.setRole(roleRegistry.find(usuarioDTO.getRol())
+                    .orElseThrow(() -> new RequestException(ApiError.ROLE_NOT_FOUND)));
+
+        return usuario;
+    }
 }
@@ -0,0 +1,47 @@
+package com.grupo06.sistemapedidos.model;
+
+import java.time.Instant;
+import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Clase que representa la concesión (lease) del relay del outbox, osea la entidad.
+ * La tabla tiene una sola fila: la instancia que la tiene sin caducar es la única que publica el outbox, así los
+ * eventos de un mismo pedido no se pueden enviar desde dos instancias a la vez y mantienen su orden.
+ * Esta clase se utiliza para mapear la tabla "PEDIDO_OUTBOX_RELAY" en la base de datos.
+ *
+ * @Hidden es una anotación de Swagger que oculta la clase de la documentación
+ * @Entity indica que esta clase es una entidad JPA
+ * @Table especifica el nombre de la tabla en la base de datos
+ * @Getter, @Setter, @NoArgsConstructor y @AllArgsConstructor son anotaciones de Lombok para generar automáticamente los getters, setters y constructores
+ */
+@Hidden
+@Entity
+@Table(name = "PEDIDO_OUTBOX_RELAY", schema = "public")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxRelayLease {
+    // ID de la única fila de la tabla
+    public static final int ID = 1;
+
+    @Id
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    // Instancia que publica el outbox
+    @Column(name = "instancia", nullable = false)
+    private String instancia;
+
+    // Hasta cuándo es válida la concesión si la instancia no la renueva
+    @Column(name = "expira", nullable = false)
+    private Instant expira;
+}
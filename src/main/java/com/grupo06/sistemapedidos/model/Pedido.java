@@ -3,24 +3,30 @@ package com.grupo06.sistemapedidos.model;
 import java.util.ArrayList;
 import java.util.List;
 import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.JoinTable;
-import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 /**
  * Clase que representa un pedido en el sistema en la base de datos, osea la entidad.
- * Un pedido está asociado a un usuario y puede contener múltiples productos.
+ * Un pedido está asociado a un usuario y contiene una línea ({@link PedidoLinea}) por cada producto comprado.
  * Esta clase es parte del modelo de datos y se utiliza para mapear la tabla "PEDIDO" en la base de datos.
  * Contiene anotaciones de JPA para la persistencia y validaciones de datos.
  * 
@@ -28,6 +34,7 @@ import lombok.NoArgsConstructor;
  * @Entity indica que esta clase es una entidad JPA
  * @Table especifica el nombre de la tabla en la base de datos
  * @Data es una anotación de Lombok que genera automáticamente
+ * @Version versión del pedido para el bloqueo optimista (ver ETagUtils)
  */
 @Hidden
 @Entity
@@ -37,21 +44,27 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class Pedido {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Secuencia con optimizador pooled: Hibernate reserva 50 IDs por consulta y puede agrupar los INSERT en lotes JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_seq")
+    @SequenceGenerator(name = "pedido_seq", sequenceName = "pedido_seq", schema = "public", allocationSize = 50)
     @Column(name = "idPedido", nullable = false, unique = true)
     private Integer id;
 
+    // LAZY: para mapear el pedido solo se necesita el ID del usuario, que el proxy conoce sin consultar USUARIO ni ROLES
     @NotNull(message = "El usuario no puede ser nulo")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuarioFK", referencedColumnName = "idUser", nullable = false)
     private Usuario usuario;
     
-    @NotNull(message = "El producto no puede ser nulo")
-    @ManyToMany
-    @JoinTable(
-        name = "pedido_producto",
-        joinColumns = @JoinColumn(name = "pedido_id"),
-        inverseJoinColumns = @JoinColumn(name = "producto_id")
-    )
-    private List<Producto> productos = new ArrayList<>();
+    // Una línea por producto con sus unidades y el precio de compra, en lugar de una fila de pedido_producto por unidad
+    @NotNull(message = "Las líneas no pueden ser nulas")
+    @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<PedidoLinea> lineas = new ArrayList<>();
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Integer version;
 }
\ No newline at end of file
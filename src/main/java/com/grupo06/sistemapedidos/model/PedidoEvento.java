@@ -1,6 +1,8 @@
 package com.grupo06.sistemapedidos.model;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.UUID;
 import org.springframework.format.annotation.DateTimeFormat;
 import io.swagger.v3.oas.annotations.Hidden;
 import jakarta.persistence.Column;
@@ -8,14 +10,18 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
 
 /**
  * Clase que representa un evento de pedido en el sistema en la base de datos, osea la entidad.
- * Un evento de pedido tiene un topic, una descripción y una fecha.
+ * Un evento de pedido tiene un topic, una descripción y una fecha. Los eventos binarios de pedidos
+ * ({@link PedidoEventoMensaje}) guardan además sus campos estructurados; en los mensajes de texto quedan nulos.
  * Esta clase es parte del modelo de datos y se utiliza para mapear la tabla "PEDIDO_EVENTO" en la base de datos.
  * Representa un evento relacionado con un pedido en Kafka. {@link KafkaProducerService} y {@link KafkaConsumerService}
  * 
@@ -23,14 +29,17 @@ import lombok.Data;
  * @Entity indica que esta clase es una entidad JPA
  * @Table especifica el nombre de la tabla en la base de datos
  * @Data es una anotación de Lombok que genera automáticamente
+ * @NoArgsConstructor genera el constructor vacío que necesita JPA
  */
 @Hidden
 @Entity
 @Table(name = "PEDIDO_EVENTO")
 @Data
+@NoArgsConstructor
 public class PedidoEvento {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_evento_seq")
+    @SequenceGenerator(name = "pedido_evento_seq", sequenceName = "pedido_evento_seq", schema = "public", allocationSize = 50)
     @Column(name = "idPedidoEvento", nullable = false, unique = true)
     public Integer idEvento;
 
@@ -49,9 +58,42 @@ public class PedidoEvento {
     @DateTimeFormat(pattern = "dd/MM/yyyy")
     public LocalDate date;
 
+    // ID único del evento: un evento repetido (entrega al menos una vez) no se guarda dos veces
+    @Column(name = "event_id", unique = true)
+    public UUID eventId;
+
+    @Column(name = "pedido_id")
+    public Integer pedidoId;
+
+    @Column(name = "usuario_id")
+    public Integer usuarioId;
+
+    @Column(name = "unidades")
+    public Integer unidades;
+
+    @Column(name = "importe")
+    public Integer importe;
+
+    // Momento en el que se produjo el cambio del pedido, no el de la recepción
+    @Column(name = "emitido")
+    public Instant emitido;
+
     public PedidoEvento(String topic, String descripcion, LocalDate date) {
         this.topic = topic;
         this.descripcion = descripcion;
         this.date = date;
     }
+
+    public PedidoEvento(PedidoEventoMensaje evento) {
+        this(evento.tipo().getTopic(),
+                "Pedido " + evento.pedidoId() + " de usuario " + evento.usuarioId() + " con " + evento.unidades()
+                        + " unidades, importe " + evento.importe(),
+                LocalDate.now());
+        this.eventId = evento.eventId();
+        this.pedidoId = evento.pedidoId();
+        this.usuarioId = evento.usuarioId();
+        this.unidades = evento.unidades();
+        this.importe = evento.importe();
+        this.emitido = evento.timestamp();
+    }
 }
@@ -0,0 +1,78 @@
+package com.grupo06.sistemapedidos.model;
+
+import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Clase que representa una línea de un pedido en la base de datos, osea la entidad.
+ * Cada línea guarda un producto del pedido, el número de unidades y el precio unitario en el momento de la compra,
+ * de forma que comprar muchas unidades de un producto es una sola fila en lugar de una fila por unidad.
+ * Esta clase se utiliza para mapear la tabla "PEDIDO_LINEA" en la base de datos.
+ *
+ * @Hidden es una anotación de Swagger que oculta la clase de la documentación
+ * @Entity indica que esta clase es una entidad JPA
+ * @Table especifica el nombre de la tabla en la base de datos
+ * @Getter y @Setter son anotaciones de Lombok, no se usa @Data para que equals, hashCode y toString
+ * no recorran la relación con el pedido
+ * @MapsId rellena la clave primaria con los IDs del pedido y del producto
+ */
+@Hidden
+@Entity
+@Table(name = "PEDIDO_LINEA", schema = "public")
+@Getter
+@Setter
+@NoArgsConstructor
+public class PedidoLinea {
+    @EmbeddedId
+    private PedidoLineaId id = new PedidoLineaId();
+
+    @MapsId("pedidoId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "pedido_id", nullable = false)
+    private Pedido pedido;
+
+    // LAZY: para mapear la línea solo se necesita el ID del producto, que ya está en la clave primaria
+    @MapsId("productoId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id", nullable = false)
+    private Producto producto;
+
+    @NotNull(message = "La cantidad no puede ser nula")
+    @Min(value = 1, message = "La cantidad debe ser al menos 1")
+    @Column(name = "cantidad", nullable = false)
+    private Integer cantidad;
+
+    @NotNull(message = "El precio unitario no puede ser nulo")
+    @Min(value = 0, message = "El precio unitario no puede ser negativo")
+    @Column(name = "precio_unitario", nullable = false)
+    private Integer precioUnitario;
+
+    public PedidoLinea(Pedido pedido, Producto producto, Integer cantidad, Integer precioUnitario) {
+        this.id = new PedidoLineaId(pedido.getId(), producto.getId());
+        this.pedido = pedido;
+        this.producto = producto;
+        this.cantidad = cantidad;
+        this.precioUnitario = precioUnitario;
+    }
+
+    /**
+     * Importe de la línea: unidades por precio unitario.
+     *
+     * @return importe de la línea
+     */
+    public int getImporte() {
+        return cantidad * precioUnitario;
+    }
+}
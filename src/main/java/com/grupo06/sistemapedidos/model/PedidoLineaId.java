@@ -0,0 +1,27 @@
+package com.grupo06.sistemapedidos.model;
+
+import java.io.Serializable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clave primaria de una línea de pedido: el pedido y el producto.
+ * Un pedido tiene como máximo una línea por producto, las unidades se guardan en la cantidad de la línea.
+ *
+ * @Embeddable indica que esta clase se incrusta como clave en la entidad {@link PedidoLinea}
+ * @Data es una anotación de Lombok que genera automáticamente getters, setters, equals y hashCode
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoLineaId implements Serializable {
+    @Column(name = "pedido_id")
+    private Integer pedidoId;
+
+    @Column(name = "producto_id")
+    private Integer productoId;
+}
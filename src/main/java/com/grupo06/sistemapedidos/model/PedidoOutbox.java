@@ -0,0 +1,63 @@
+package com.grupo06.sistemapedidos.model;
+
+import java.time.Instant;
+import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Clase que representa un evento pendiente de publicar en Kafka (patrón outbox), osea la entidad.
+ * El evento se guarda en la misma transacción que el cambio del pedido, de forma que solo existe si el cambio
+ * se confirma, y {@link com.grupo06.sistemapedidos.service.OutboxRelayService} lo publica y lo borra después.
+ * Esta clase se utiliza para mapear la tabla "PEDIDO_OUTBOX" en la base de datos.
+ *
+ * @Hidden es una anotación de Swagger que oculta la clase de la documentación
+ * @Entity indica que esta clase es una entidad JPA
+ * @Table especifica el nombre de la tabla en la base de datos
+ * @Getter, @Setter y @NoArgsConstructor son anotaciones de Lombok para generar automáticamente los getters, setters y el constructor vacío
+ */
+@Hidden
+@Entity
+@Table(name = "PEDIDO_OUTBOX", schema = "public")
+@Getter
+@Setter
+@NoArgsConstructor
+public class PedidoOutbox {
+    // El ID creciente da el orden de publicación. Sin bloques de IDs (allocationSize 1) cada fila pide su valor a la
+    // secuencia, así los eventos de un mismo pedido tienen IDs crecientes aunque los creen instancias distintas: el
+    // segundo cambio espera al bloqueo de la fila del pedido y pide su ID después de que el primero se confirme
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_outbox_seq")
+    @SequenceGenerator(name = "pedido_outbox_seq", sequenceName = "pedido_outbox_seq", schema = "public", allocationSize = 1)
+    @Column(name = "id", nullable = false, unique = true)
+    private Long id;
+
+    @Column(name = "topic", nullable = false)
+    private String topic;
+
+    // Clave del mensaje de Kafka (ID del pedido): los eventos de un mismo pedido van a la misma partición y mantienen su orden
+    @Column(name = "clave")
+    private String clave;
+
+    // Evento serializado con PedidoEventoCodec, el primer byte es la versión del esquema
+    @Column(name = "payload", nullable = false, length = 10000)
+    private byte[] payload;
+
+    @Column(name = "creado", nullable = false)
+    private Instant creado;
+
+    public PedidoOutbox(String topic, String clave, byte[] payload) {
+        this.topic = topic;
+        this.clave = clave;
+        this.payload = payload;
+        this.creado = Instant.now();
+    }
+}
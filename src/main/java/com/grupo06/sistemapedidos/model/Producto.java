@@ -1,10 +1,10 @@
 package com.grupo06.sistemapedidos.model;
 
-
-import java.util.ArrayList;
-import java.util.List;
 import io.swagger.v3.oas.annotations.Hidden;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -18,16 +18,25 @@ import lombok.Data;
  * 
  * @Hidden es una anotación de Swagger que oculta la clase de la documentación
  * @Entity indica que esta clase es una entidad JPA
- * @Table especifica el nombre de la tabla en la base de datos
+ * @Table especifica el nombre de la tabla en la base de datos y el índice único del nombre
  * @Data es una anotación de Lombok que genera automáticamente
+ * @Version versión para el bloqueo optimista (ver ETagUtils), también la incrementan las reservas de stock
+ * @Cacheable y @Cache guardan la entidad en la caché de segundo nivel (ver CacheConfig), se invalida al modificarla
  */
 @Hidden
 @Entity
-@Table(name = "PRODUCTO", schema = "public")
+@Table(name = "PRODUCTO", schema = "public",
+        uniqueConstraints = @UniqueConstraint(name = Producto.NAME_UNIQUE_CONSTRAINT, columnNames = "name"))
 @Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "producto")
 public class Producto {
+    // El nombre se guarda normalizado (ProductMapper.toSlug), así que el índice único evita duplicados por mayúsculas o espacios
+    public static final String NAME_UNIQUE_CONSTRAINT = "uk_producto_name";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "producto_seq")
+    @SequenceGenerator(name = "producto_seq", sequenceName = "producto_seq", schema = "public", allocationSize = 50)
     @Column(name = "idProducto", nullable = false, unique = true)
     private Integer id;
 
@@ -51,6 +60,8 @@ public class Producto {
     @Column(name = "description", nullable = false)
     private String description;
 
-    @ManyToMany(mappedBy = "productos")
-    private List<Pedido> pedidos = new ArrayList<>();
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Integer version;
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ import com.grupo06.sistemapedidos.enums.RoleEnum;
 
 import io.swagger.v3.oas.annotations.Hidden;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -22,6 +24,7 @@ import lombok.NoArgsConstructor;
  * @Entity indica que esta clase es una entidad JPA
  * @Table especifica el nombre de la tabla en la base de datos
  * @Data es una anotación de Lombok que genera automáticamente
+ * @Cacheable y @Cache guardan la entidad en la caché de segundo nivel (ver CacheConfig), se invalida al modificarla
  * @AllArgsConstructor es una anotación de Lombok que genera un constructor con todos los atributos
  */
 @Entity
@@ -29,9 +32,12 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "roles")
 public class Roles {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "roles_seq")
+    @SequenceGenerator(name = "roles_seq", sequenceName = "roles_seq", schema = "public", allocationSize = 10)
     @Column(name = "idRol", nullable = false, unique = true)
     private Integer id;
 
@@ -9,7 +9,9 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -20,6 +22,7 @@ import io.swagger.v3.oas.annotations.Hidden;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 
 /**
@@ -32,6 +35,7 @@ import org.springframework.format.annotation.DateTimeFormat;
  * @Entity indica que esta clase es una entidad JPA
  * @Table especifica el nombre de la tabla en la base de datos
  * @Data es una anotación de Lombok que genera automáticamente
+ * @Version versión para el bloqueo optimista (ver ETagUtils), también la incrementan los cambios de totalSpent
  */
 @Hidden
 @Entity
@@ -40,7 +44,8 @@ import org.springframework.format.annotation.DateTimeFormat;
 public class Usuario {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuario_seq")
+    @SequenceGenerator(name = "usuario_seq", sequenceName = "usuario_seq", schema = "public", allocationSize = 50)
     @Column(name = "idUser", unique = true, nullable = false)
     private Integer id;
 
@@ -79,4 +84,9 @@ public class Usuario {
 
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Pedido> pedidos = new ArrayList<>();
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Integer version;
 }
@@ -0,0 +1,43 @@
+package com.grupo06.sistemapedidos.repository;
+
+import java.time.Instant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import com.grupo06.sistemapedidos.model.OutboxRelayLease;
+
+/**
+ * Interfaz que define los métodos de acceso a datos para la entidad OutboxRelayLease.
+ * Extiende JpaRepository para proporcionar operaciones CRUD y consultas personalizadas.
+ *
+ * {@link Repository} Anotación de Spring que indica que esta interfaz es un repositorio de acceso a datos.
+ */
+@Repository
+public interface OutboxRelayLeaseRepository extends JpaRepository<OutboxRelayLease, Integer> {
+    /**
+     * Renueva la concesión si ya es de la instancia o la toma si ha caducado, con un UPDATE condicional:
+     * si dos instancias lo intentan a la vez la base de datos solo deja que una cambie la fila.
+     *
+     * @param instancia instancia que quiere publicar el outbox
+     * @param ahora     instante actual
+     * @param expira    nuevo vencimiento de la concesión
+     * @return 1 si la instancia tiene la concesión, 0 si la tiene otra
+     */
+    @Modifying
+    @Query("UPDATE OutboxRelayLease l SET l.instancia = :instancia, l.expira = :expira "
+            + "WHERE l.id = " + OutboxRelayLease.ID + " AND (l.instancia = :instancia OR l.expira < :ahora)")
+    int renew(@Param("instancia") String instancia, @Param("ahora") Instant ahora, @Param("expira") Instant expira);
+
+    /**
+     * Deja caducada la concesión de la instancia para que otra la tome sin esperar a que venza.
+     *
+     * @param instancia instancia que deja de publicar
+     * @param ahora     instante actual
+     * @return número de filas actualizadas
+     */
+    @Modifying
+    @Query("UPDATE OutboxRelayLease l SET l.expira = :ahora WHERE l.id = " + OutboxRelayLease.ID + " AND l.instancia = :instancia")
+    int release(@Param("instancia") String instancia, @Param("ahora") Instant ahora);
+}
@@ -1,6 +1,11 @@
 package com.grupo06.sistemapedidos.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.grupo06.sistemapedidos.model.PedidoEvento;
 
@@ -12,4 +17,12 @@ import com.grupo06.sistemapedidos.model.PedidoEvento;
  */
 @Repository
 public interface PedidoEventoRepository extends JpaRepository<PedidoEvento, Integer>  {
+    /**
+     * Obtiene cuáles de los eventos indicados ya se han guardado, con una sola consulta IN.
+     *
+     * @param eventIds IDs únicos de los eventos
+     * @return IDs de los eventos que ya existen
+     */
+    @Query("SELECT e.eventId FROM PedidoEvento e WHERE e.eventId IN :ids")
+    List<UUID> findExistingEventIds(@Param("ids") Collection<UUID> eventIds);
 }
\ No newline at end of file
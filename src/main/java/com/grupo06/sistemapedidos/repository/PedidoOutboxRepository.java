@@ -0,0 +1,56 @@
+package com.grupo06.sistemapedidos.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import com.grupo06.sistemapedidos.model.PedidoOutbox;
+
+/**
+ * Interfaz que define los métodos de acceso a datos para la entidad PedidoOutbox.
+ * Extiende JpaRepository para proporcionar operaciones CRUD y consultas personalizadas.
+ *
+ * {@link Repository} Anotación de Spring que indica que esta interfaz es un repositorio de acceso a datos.
+ */
+@Repository
+public interface PedidoOutboxRepository extends JpaRepository<PedidoOutbox, Long> {
+    /**
+     * Obtiene los eventos pendientes más antiguos. No bloquea las filas: solo publica la instancia que tiene la
+     * concesión del relay ({@link OutboxRelayLeaseRepository}).
+     *
+     * @param limit número máximo de eventos
+     * @return eventos ordenados por ID ascendente
+     */
+    List<PedidoOutbox> findByOrderByIdAsc(Limit limit);
+
+    /**
+     * Borra los eventos ya publicados con una sola sentencia.
+     *
+     * @param ids IDs de los eventos publicados
+     * @return número de eventos borrados
+     */
+    @Modifying
+    @Query("DELETE FROM PedidoOutbox o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Obtiene el número de eventos pendientes y la fecha del más antiguo, para las métricas de retraso.
+     *
+     * @return resumen de los eventos pendientes
+     */
+    @Query("SELECT COUNT(o) AS pendientes, MIN(o.creado) AS masAntiguo FROM PedidoOutbox o")
+    OutboxPendiente findPendiente();
+
+    /**
+     * Proyección con el número de eventos pendientes y la fecha del más antiguo (nula si no hay ninguno).
+     */
+    interface OutboxPendiente {
+        long getPendientes();
+        Instant getMasAntiguo();
+    }
+}
@@ -1,12 +1,21 @@
 package com.grupo06.sistemapedidos.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.grupo06.sistemapedidos.model.Pedido;
 import com.grupo06.sistemapedidos.model.Producto;
 import com.grupo06.sistemapedidos.model.Usuario;
+import jakarta.persistence.QueryHint;
 
 /**
  * Interfaz que define los métodos de acceso a datos para la entidad Pedido.
@@ -16,13 +25,19 @@ import com.grupo06.sistemapedidos.model.Usuario;
  */
 @Repository
 public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
+    /**
+     * Número de filas que el driver JDBC trae en cada viaje a la base de datos al recorrer un stream.
+     */
+    int EXPORT_FETCH_SIZE = 500;
     
     /**
      * Busca un pedido por su identificador.
+     * Las líneas se cargan en la misma consulta (JOIN) para evitar una segunda consulta al mapear el DTO.
      *
      * @param id el identificador del pedido
      * @return un {@link Optional} que contiene el pedido si existe, o vacío en caso contrario
      */
+    @EntityGraph(attributePaths = "lineas")
     Optional<Pedido> findById(int id);
     
     /**
@@ -54,7 +69,7 @@ public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
      * @param producto la entidad {@link Producto} que se busca dentro de los pedidos
      * @return una lista de pedidos que incluyen el producto especificado
      */
-    List<Pedido> findByProductos(Producto producto);
+    List<Pedido> findByLineasProducto(Producto producto);
     
     /**
      * Recupera la lista de pedidos asociados a un usuario y que contengan un producto específico.
@@ -63,7 +78,7 @@ public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
      * @param producto la entidad {@link Producto} que debe estar incluida en el pedido
      * @return una lista de pedidos que cumplen ambos criterios
      */
-    List<Pedido> findByUsuarioAndProductos(Usuario usuario, Producto producto);
+    List<Pedido> findByUsuarioAndLineasProducto(Usuario usuario, Producto producto);
 
     /**
      * Verifica si existe un pedido asociado a un usuario dado.
@@ -72,4 +87,84 @@ public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
      * @return
      */
     boolean existsByUsuarioId(Integer usuarioId);
+
+    /**
+     * Obtiene cuáles de los usuarios indicados ya tienen un pedido, con una única consulta.
+     * Es la versión por lotes de {@link #existsByUsuarioId(Integer)}.
+     *
+     * @param usuarioIds IDs de los usuarios, no puede estar vacía
+     * @return IDs de los usuarios que ya tienen pedido
+     */
+    @Query("SELECT p.usuario.id FROM Pedido p WHERE p.usuario.id IN :ids")
+    List<Integer> findUsuarioIdsWithPedido(@Param("ids") Collection<Integer> usuarioIds);
+
+    /**
+     * Obtiene la página siguiente de pedidos ordenados por ID ascendente (paginación por cursor).
+     * Utiliza un rango sobre la clave primaria, por lo que la base de datos recorre el índice sin OFFSET.
+     * Devuelve solo el ID del pedido y el de su usuario, sin cargar las entidades ni hacer JOIN con USUARIO.
+     *
+     * @param id último ID de la página anterior (exclusivo)
+     * @param limit número máximo de resultados
+     * @return lista de pedidos con ID mayor que el indicado
+     */
+    @Query("SELECT p.id AS id, p.usuario.id AS usuarioId FROM Pedido p WHERE p.id > :id ORDER BY p.id ASC")
+    List<PedidoResumen> findByIdGreaterThanOrderByIdAsc(@Param("id") Integer id, Limit limit);
+
+    /**
+     * Obtiene la página siguiente de pedidos ordenados por ID descendente (paginación por cursor).
+     *
+     * @param id último ID de la página anterior (exclusivo)
+     * @param limit número máximo de resultados
+     * @return lista de pedidos con ID menor que el indicado
+     */
+    @Query("SELECT p.id AS id, p.usuario.id AS usuarioId FROM Pedido p WHERE p.id < :id ORDER BY p.id DESC")
+    List<PedidoResumen> findByIdLessThanOrderByIdDesc(@Param("id") Integer id, Limit limit);
+
+    /**
+     * Obtiene en una sola consulta las líneas de varios pedidos, leyendo solo la tabla PEDIDO_LINEA.
+     * Se usa junto a las consultas de página para mapear los DTOs sin una consulta por pedido.
+     *
+     * @param ids IDs de los pedidos, no puede estar vacía
+     * @return una fila por cada línea de cada pedido
+     */
+    @Query("SELECT l.id.pedidoId AS pedidoId, l.id.productoId AS productoId, l.cantidad AS cantidad, l.precioUnitario AS precioUnitario "
+            + "FROM PedidoLinea l WHERE l.id.pedidoId IN :ids")
+    List<PedidoLineaFila> findLineasByPedidoIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Recorre todos los pedidos ordenados por ID como un {@link Stream} respaldado por un cursor JDBC,
+     * sin cargar la tabla completa en memoria. Debe consumirse dentro de una transacción y cerrarse al terminar.
+     *
+     * Devuelve una fila por cada línea de cada pedido (LEFT JOIN, los pedidos sin líneas aparecen con el
+     * producto a nulo), de forma que la exportación completa es una única consulta. Las filas de un mismo pedido
+     * son consecutivas.
+     *
+     * @return stream de filas pedido-línea ordenadas por ID de pedido ascendente
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id AS pedidoId, p.usuario.id AS usuarioId, l.id.productoId AS productoId, l.cantidad AS cantidad, "
+            + "l.precioUnitario AS precioUnitario FROM Pedido p LEFT JOIN p.lineas l ORDER BY p.id")
+    Stream<PedidoLineaFila> streamAllByOrderByIdAsc();
+
+    /**
+     * Proyección con el ID de un pedido y el de su usuario.
+     */
+    interface PedidoResumen {
+        Integer getId();
+        Integer getUsuarioId();
+    }
+
+    /**
+     * Proyección de una línea de pedido. El ID de usuario solo se rellena en la exportación.
+     */
+    interface PedidoLineaFila {
+        Integer getPedidoId();
+        Integer getUsuarioId();
+        Integer getProductoId();
+        Integer getCantidad();
+        Integer getPrecioUnitario();
+    }
 }
@@ -2,14 +2,20 @@ package com.grupo06.sistemapedidos.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.grupo06.sistemapedidos.model.Producto;
 
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
 
 /**
@@ -20,12 +26,20 @@ import jakarta.transaction.Transactional;
  */
 @Repository
 public interface ProductRepository extends JpaRepository<Producto, Integer> {
+    /**
+     * Número de filas que el driver JDBC trae en cada viaje a la base de datos al recorrer un stream.
+     */
+    int EXPORT_FETCH_SIZE = 500;
+
     /**
      * Busca un producto por su nombre.
      *
+     * El resultado se guarda en la caché de consultas y se invalida cuando se modifica la tabla PRODUCTO.
+     *
      * @param name Nombre del producto a buscar.
      * @return Un Optional que contiene el producto encontrado, o vacío si no se encuentra.
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Producto> findByName(String name);
 
     /**
@@ -43,8 +57,91 @@ public interface ProductRepository extends JpaRepository<Producto, Integer> {
      */
     List<Producto> findAllByName(String name);
 
+    // Declara la tabla afectada para que Hibernate no vacíe toda la caché de segundo nivel al ejecutar SQL nativo
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pedido_linea"))
+    @Query(value = "DELETE FROM pedido_linea WHERE producto_id = :productoId", nativeQuery = true)
+    void deletePedidoLineaByProductoId(Integer productoId);
+
+    /**
+     * Reserva stock de un producto de forma atómica: solo descuenta la cantidad si hay stock suficiente.
+     * La comprobación y la resta se hacen en la misma sentencia sobre la fila bloqueada, así que dos pedidos
+     * concurrentes del mismo producto nunca pueden dejar el stock en negativo. También incrementa la versión,
+     * para que una edición del producto leída antes de la reserva no sobrescriba el stock descontado.
+     *
+     * El espacio de consulta "producto_stock" no corresponde a ninguna entidad, de forma que Hibernate no vacía
+     * la región "producto" de la caché en cada pedido; StockService desaloja solo los productos modificados.
+     *
+     * @param id ID del producto
+     * @param cantidad unidades a reservar
+     * @return 1 si se ha reservado, 0 si no hay stock suficiente o el producto no existe
+     */
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "producto_stock"))
+    @Query(value = "UPDATE producto SET stock = stock - :cantidad, version = version + 1 WHERE id_producto = :id AND stock >= :cantidad", nativeQuery = true)
+    int reserveStock(@Param("id") Integer id, @Param("cantidad") int cantidad);
+
+    /**
+     * Devuelve al stock de un producto las unidades reservadas por un pedido modificado o eliminado.
+     *
+     * @param id ID del producto
+     * @param cantidad unidades a devolver
+     * @return 1 si se ha actualizado, 0 si el producto ya no existe
+     */
     @Modifying
     @Transactional
-    @Query(value = "DELETE FROM pedido_producto WHERE producto_id = :productoId", nativeQuery = true)
-    void deletePedidoProductoByProductoId(Integer productoId);
-}
\ No newline at end of file
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "producto_stock"))
+    @Query(value = "UPDATE producto SET stock = stock + :cantidad, version = version + 1 WHERE id_producto = :id", nativeQuery = true)
+    int releaseStock(@Param("id") Integer id, @Param("cantidad") int cantidad);
+
+    /**
+     * Obtiene la página siguiente de productos ordenados por ID ascendente (paginación por cursor).
+     * Utiliza un rango sobre la clave primaria, por lo que la base de datos recorre el índice sin OFFSET.
+     *
+     * @param id último ID de la página anterior (exclusivo)
+     * @param limit número máximo de resultados
+     * @return lista de productos con ID mayor que el indicado
+     */
+    List<Producto> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    /**
+     * Obtiene la página siguiente de productos ordenados por ID descendente (paginación por cursor).
+     *
+     * @param id último ID de la página anterior (exclusivo)
+     * @param limit número máximo de resultados
+     * @return lista de productos con ID menor que el indicado
+     */
+    List<Producto> findByIdLessThanOrderByIdDesc(Integer id, Limit limit);
+
+    /**
+     * Recorre todos los productos ordenados por ID como un {@link Stream} respaldado por un cursor JDBC,
+     * sin cargar la tabla completa en memoria. Debe consumirse dentro de una transacción y cerrarse al terminar.
+     *
+     * @return stream de productos ordenados por ID ascendente
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Producto p ORDER BY p.id")
+    Stream<Producto> streamAllByOrderByIdAsc();
+
+    /**
+     * Obtiene el ID y el nombre de todos los productos, sin cargar las entidades.
+     * Se usa para construir el índice en memoria del catálogo al arrancar.
+     *
+     * @return lista con el ID y el nombre de cada producto
+     */
+    @Query("SELECT p.id AS id, p.name AS name FROM Producto p")
+    List<ProductoSlug> findAllSlugs();
+
+    /**
+     * Proyección con el ID y el nombre (slug) de un producto.
+     */
+    interface ProductoSlug {
+        Integer getId();
+        String getName();
+    }
+}
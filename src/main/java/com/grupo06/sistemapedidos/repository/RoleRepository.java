@@ -2,9 +2,14 @@ package com.grupo06.sistemapedidos.repository;
 
 import com.grupo06.sistemapedidos.enums.RoleEnum;
 import com.grupo06.sistemapedidos.model.Roles;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -23,8 +28,11 @@ public interface RoleRepository extends JpaRepository<Roles, Integer> {
      * Este método busca un rol basado en el nombre del rol definido en el enum 'RoleEnum'.
      *
      * @param name El nombre del rol, representado como un valor del enumerado 'RoleEnum'.
+     * El resultado se guarda en la caché de consultas y se invalida cuando se modifica la tabla ROLES.
+     *
      * @return Un objeto Optional que contiene el rol encontrado, o vacío si no se encuentra.
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Roles> findByName(RoleEnum name);
 
     /**
@@ -35,4 +43,23 @@ public interface RoleRepository extends JpaRepository<Roles, Integer> {
      * @param name El nombre del rol, representado como un valor del enumerado 'RoleEnum'.
      */
     void deleteByName(RoleEnum name);
+
+    /**
+     * Obtiene la página siguiente de roles ordenados por ID ascendente (paginación por cursor).
+     * Utiliza un rango sobre la clave primaria, por lo que la base de datos recorre el índice sin OFFSET.
+     *
+     * @param id último ID de la página anterior (exclusivo)
+     * @param limit número máximo de resultados
+     * @return lista de roles con ID mayor que el indicado
+     */
+    List<Roles> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    /**
+     * Obtiene la página siguiente de roles ordenados por ID descendente (paginación por cursor).
+     *
+     * @param id último ID de la página anterior (exclusivo)
+     * @param limit número máximo de resultados
+     * @return lista de roles con ID menor que el indicado
+     */
+    List<Roles> findByIdLessThanOrderByIdDesc(Integer id, Limit limit);
 }
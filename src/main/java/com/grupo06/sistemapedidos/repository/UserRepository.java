@@ -1,8 +1,14 @@
 package com.grupo06.sistemapedidos.repository;
 
 import com.grupo06.sistemapedidos.model.Usuario;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,4 +46,106 @@ public interface UserRepository extends JpaRepository<Usuario, Integer> {
      * @return un Optional que contiene el usuario si se encuentra, o vacío si no
      */
     Optional<List<Usuario>> findByIdIn(List<Integer> list);
+
+    /**
+     * Obtiene cuáles de los IDs indicados pertenecen a usuarios existentes, con una única consulta
+     * y sin cargar las entidades ni sus roles.
+     *
+     * @param ids IDs de los usuarios, no puede estar vacía
+     * @return IDs de los usuarios que existen
+     */
+    @Query("SELECT u.id FROM Usuario u WHERE u.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Suma un importe al total gastado de un usuario con un UPDATE atómico, sin leer la fila antes.
+     * Incrementa también la versión, para que una edición del usuario con el total antiguo falle en lugar
+     * de sobrescribirlo.
+     *
+     * @param id ID del usuario
+     * @param importe importe a sumar, negativo para restar
+     * @return número de filas actualizadas (0 si el usuario no existe)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuario u SET u.totalSpent = u.totalSpent + :importe, u.version = u.version + 1 WHERE u.id = :id")
+    int addTotalSpent(@Param("id") Integer id, @Param("importe") int importe);
+
+    /**
+     * Suma al total gastado de cada usuario el importe de sus pedidos indicados, con una única sentencia.
+     * Es la versión por lotes de {@link #addTotalSpent(Integer, int)}, los pedidos ya deben estar escritos en la base de datos.
+     *
+     * @param pedidoIds IDs de los pedidos nuevos, no puede estar vacía
+     * @return número de usuarios actualizados
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuario u SET u.totalSpent = u.totalSpent + "
+            + "(SELECT COALESCE(SUM(l.cantidad * l.precioUnitario), 0) FROM PedidoLinea l WHERE l.pedido.usuario = u AND l.pedido.id IN :ids), "
+            + "u.version = u.version + 1 "
+            + "WHERE u.id IN (SELECT p.usuario.id FROM Pedido p WHERE p.id IN :ids)")
+    int addTotalSpentOfPedidos(@Param("ids") Collection<Integer> pedidoIds);
+
+    /**
+     * Obtiene el ID de usuario más alto, para repartir la conciliación en tramos de IDs.
+     *
+     * @return el ID más alto, o 0 si no hay usuarios
+     */
+    @Query("SELECT COALESCE(MAX(u.id), 0) FROM Usuario u")
+    int findMaxId();
+
+    /**
+     * Recalcula el total gastado de los usuarios de un tramo de IDs a partir de las líneas de sus pedidos
+     * (unidades por precio de compra de cada línea).
+     *
+     * @param desde ID inicial del tramo (exclusivo)
+     * @param hasta ID final del tramo (inclusivo)
+     * @return una fila por usuario con el total guardado y el recalculado
+     */
+    @Query("SELECT u.id AS id, u.totalSpent AS totalSpent, COALESCE(SUM(l.cantidad * l.precioUnitario), 0) AS expected "
+            + "FROM Usuario u LEFT JOIN u.pedidos p LEFT JOIN p.lineas l "
+            + "WHERE u.id > :desde AND u.id <= :hasta GROUP BY u.id, u.totalSpent")
+    List<TotalSpentCheck> checkTotalSpent(@Param("desde") int desde, @Param("hasta") int hasta);
+
+    /**
+     * Corrige el total gastado de un usuario solo si sigue teniendo el valor leído en la conciliación,
+     * así no se pierde un incremento de un pedido confirmado entretanto.
+     *
+     * @param id ID del usuario
+     * @param actual total gastado leído en la conciliación
+     * @param esperado total gastado recalculado
+     * @return 1 si se ha corregido, 0 si el total ha cambiado desde la lectura
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuario u SET u.totalSpent = :esperado, u.version = u.version + 1 WHERE u.id = :id AND u.totalSpent = :actual")
+    int repairTotalSpent(@Param("id") Integer id, @Param("actual") int actual, @Param("esperado") int esperado);
+
+    /**
+     * Proyección con el total gastado guardado de un usuario y el recalculado a partir de sus pedidos.
+     */
+    interface TotalSpentCheck {
+        Integer getId();
+        Integer getTotalSpent();
+        Long getExpected();
+    }
+
+    /**
+     * Obtiene la página siguiente de usuarios ordenados por ID ascendente (paginación por cursor).
+     * Utiliza un rango sobre la clave primaria, por lo que la base de datos recorre el índice sin OFFSET.
+     *
+     * @param id último ID de la página anterior (exclusivo)
+     * @param limit número máximo de resultados
+     * @return lista de usuarios con ID mayor que el indicado
+     */
+    List<Usuario> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    /**
+     * Obtiene la página siguiente de usuarios ordenados por ID descendente (paginación por cursor).
+     *
+     * @param id último ID de la página anterior (exclusivo)
+     * @param limit número máximo de resultados
+     * @return lista de usuarios con ID menor que el indicado
+     */
+    List<Usuario> findByIdLessThanOrderByIdDesc(Integer id, Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.repository.PedidoRepository;
+import com.grupo06.sistemapedidos.repository.PedidoRepository.PedidoLineaFila;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Servicio para exportar pedidos y productos en formato NDJSON (un objeto JSON por línea).
+ *
+ * Las filas se leen de un {@link Stream} JPA respaldado por un cursor JDBC y se escriben directamente en el
+ * OutputStream de la respuesta. Cada cierto número de filas se vacía el contexto de persistencia y el buffer de
+ * salida, de forma que la memoria utilizada no depende del tamaño de la tabla.
+ */
+@Service
+public class ExportService {
+    private final PedidoRepository pedidoRepository;
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    // Número de filas tras el que se libera el contexto de persistencia y se envía el buffer al cliente
+    @Value("${pedidos.export.chunk-size:500}")
+    private int chunkSize;
+
+    public ExportService(PedidoRepository pedidoRepository, ProductRepository productRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.pedidoRepository = pedidoRepository;
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Exporta todos los pedidos con el ID de su usuario y sus líneas.
+     * Formato de cada línea: {"id":1,"usuario":2,"lineas":[{"producto":3,"cantidad":2,"precioUnitario":100}]}
+     *
+     * Se lee una única consulta con una fila por línea de cada pedido; las filas de un mismo pedido llegan
+     * consecutivas, así que cada pedido se escribe en cuanto empieza el siguiente.
+     *
+     * @param out OutputStream de destino, no se cierra al terminar
+     * @return número de pedidos exportados
+     * @throws IOException si falla la escritura (por ejemplo, el cliente cierra la conexión)
+     */
+    @Transactional(readOnly = true)
+    public long exportPedidos(OutputStream out) throws IOException {
+        try (Stream<PedidoLineaFila> filas = pedidoRepository.streamAllByOrderByIdAsc();
+             JsonGenerator json = newGenerator(out)) {
+            long count = 0;
+            Integer pedidoActual = null;
+            for (PedidoLineaFila fila : (Iterable<PedidoLineaFila>) filas::iterator) {
+                if (!fila.getPedidoId().equals(pedidoActual)) {
+                    if (pedidoActual != null) {
+                        json.writeEndArray();
+                        json.writeEndObject();
+                        count = nextLine(json, count);
+                    }
+                    pedidoActual = fila.getPedidoId();
+                    json.writeStartObject();
+                    json.writeNumberField("id", fila.getPedidoId());
+                    json.writeNumberField("usuario", fila.getUsuarioId());
+                    json.writeArrayFieldStart("lineas");
+                }
+                if (fila.getProductoId() != null) {
+                    json.writeStartObject();
+                    json.writeNumberField("producto", fila.getProductoId());
+                    json.writeNumberField("cantidad", fila.getCantidad());
+                    json.writeNumberField("precioUnitario", fila.getPrecioUnitario());
+                    json.writeEndObject();
+                }
+            }
+            if (pedidoActual != null) {
+                json.writeEndArray();
+                json.writeEndObject();
+                count = nextLine(json, count);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Exporta todos los productos.
+     * Formato de cada línea: {"id":1,"name":"...","stock":10,"price":100,"description":"..."}
+     *
+     * @param out OutputStream de destino, no se cierra al terminar
+     * @return número de productos exportados
+     * @throws IOException si falla la escritura (por ejemplo, el cliente cierra la conexión)
+     */
+    @Transactional(readOnly = true)
+    public long exportProductos(OutputStream out) throws IOException {
+        try (Stream<Producto> productos = productRepository.streamAllByOrderByIdAsc();
+             JsonGenerator json = newGenerator(out)) {
+            long count = 0;
+            for (Producto producto : (Iterable<Producto>) productos::iterator) {
+                json.writeStartObject();
+                json.writeNumberField("id", producto.getId());
+                json.writeStringField("name", producto.getName());
+                json.writeNumberField("stock", producto.getStock());
+                json.writeNumberField("price", producto.getPrice());
+                json.writeStringField("description", producto.getDescription());
+                json.writeEndObject();
+                count = nextLine(json, count);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Crea un generador JSON sobre el OutputStream que no lo cierra al terminar
+     * y separa los objetos raíz con un salto de línea (NDJSON).
+     */
+    private JsonGenerator newGenerator(OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+        return json;
+    }
+
+    /**
+     * Termina la línea actual y, cada {@code chunkSize} filas, envía el buffer al cliente y
+     * desvincula las entidades ya escritas del contexto de persistencia.
+     */
+    private long nextLine(JsonGenerator json, long count) throws IOException {
+        json.writeRaw('\n');
+        count++;
+        if (count % chunkSize == 0) {
+            json.flush();
+            entityManager.clear();
+        }
+        return count;
+    }
+}
@@ -1,14 +1,34 @@
 package com.grupo06.sistemapedidos.service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
-import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
 import com.grupo06.sistemapedidos.model.PedidoEvento;
-import com.grupo06.sistemapedidos.utilities.ColorUtils;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Servicio que consume mensajes de Kafka para diversos eventos relacionados con los pedidos.
@@ -16,157 +36,253 @@ import com.grupo06.sistemapedidos.utilities.ColorUtils;
  * - pedido-creado</strong>: Notifica la creación de un pedido.
  * - pedido-modificado</strong>: Notifica la modificación de un pedido.
  * - pedido-cancelado</strong>: Notifica la cancelación de un pedido.
+* Los eventos de estos tres tópicos llegan en formato binario ({@link PedidoEventoCodec}) con el ID del pedido como clave;
+* un evento repetido no se guarda dos veces.
 *
  * Un consumer de Kafka es un componente que se suscribe a un tópico y procesa los mensajes que recibe en una cola.
  * Los consumers son responsables de recibir y procesar los mensajes enviados por los producers.
  * Procesa los mensajes de forma asíncrona. 
  * En un sistema Kafka los mensajes se almacenan en tópicos (que actúan de forma similar a una cola asíncrona) y
  * los consumers se suscriben a esas particiones para procesar los mensajes de forma paralela y distribuida.
+ *
+ * Los listeners son por lotes: reciben todos los mensajes de un poll (como máximo {@code pedidos.kafka.batch.max-records})
+ * y los guardan con un único saveAll en una transacción. Los offsets del lote se confirman cuando el listener termina,
+ * es decir, después de confirmar la transacción.
+ *
+ * Si el guardado de un lote de eventos falla, el manejador de errores del contenedor
+ * ({@link com.grupo06.sistemapedidos.config.KafkaConfig}) reenvía sus eventos a {@link #REINTENTO_TOPIC} y el listener
+ * sigue consumiendo. Allí se reintentan uno a uno en tópicos con espera creciente
+ * ({@code pedidos.kafka.retry.*}) y, si se agotan los intentos, acaban en {@link #DLT_TOPIC} con las cabeceras del
+ * tópico, la partición y el offset de origen y de la excepción.
+ *
+ * El número de consumidores de cada tópico se configura con {@code pedidos.kafka.concurrency.<tópico>} (como mucho
+ * uno por partición; los que sobran quedan sin particiones). Con {@code pedidos.kafka.listener.single-container=true}
+ * los tres tópicos de eventos de pedidos se consumen en un único contenedor y grupo ({@code pedidos.kafka.concurrency.pedidos}
+ * consumidores), en lugar de un contenedor y un grupo por tópico. Los mensajes recibidos se cuentan por tópico y
+ * partición en la métrica {@code pedidos.kafka.consumed}.
  * 
  * {@link Service} indica que esta clase es un servicio de Spring, lo que permite la inyección de dependencias y 
  * la gestión del ciclo de vida del bean.
-* {@link Retryable} indica que el método se reintentará en caso de que falle.
-* value = { Exception.class, RequestException.class } indica qué excepciones se deben manejar.
-* maxAttempts = 3 indica el número máximo de reintentos.
-* backoff = @Backoff(delay = 2000) indica el tiempo de espera entre reintentos.
-* En este caso, se espera 2000 ms (2 segundos) entre cada intento.
 */
+@Slf4j
 @Service
 public class KafkaConsumerService {
+    /**
+     * Tópico al que se reenvían los eventos de pedidos de un lote que no se ha podido guardar.
+     */
+    public static final String REINTENTO_TOPIC = "pedido-evento-reintento";
+
+    /**
+     * Tópico de los eventos de pedidos que no se pueden leer o que han agotado los reintentos.
+     */
+    public static final String DLT_TOPIC = REINTENTO_TOPIC + "-dlt";
 
-    private final KafkaProducerService kafkaProducerService;
     private final PedidoEventoService pedidoEventoService;
+    private final DeadLetterPublishingRecoverer pedidoEventoDltRecoverer;
+    private final MeterRegistry meterRegistry;
+    private final PedidoEventoParallelService pedidoEventoParallelService;
+
+    // Guarda los eventos de cada lote en carriles paralelos por pedido en lugar de en un único saveAll
+    @Value("${pedidos.kafka.parallel.enabled:false}")
+    private boolean parallel;
 
-    public KafkaConsumerService(KafkaProducerService kafkaProducerService, PedidoEventoService pedidoEventoService) {
-        this.kafkaProducerService = kafkaProducerService;
+    public KafkaConsumerService(PedidoEventoService pedidoEventoService,
+            @Qualifier("pedidoEventoDltRecoverer") DeadLetterPublishingRecoverer pedidoEventoDltRecoverer,
+            ObjectProvider<MeterRegistry> meterRegistry, PedidoEventoParallelService pedidoEventoParallelService) {
         this.pedidoEventoService = pedidoEventoService;
+        this.pedidoEventoParallelService = pedidoEventoParallelService;
+        this.pedidoEventoDltRecoverer = pedidoEventoDltRecoverer;
+        this.meterRegistry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
     }
 
-    
-     /**
-      * Escucha y procesa los mensajes del tópico "pedido-creado".
-      * 
-      * @param message el mensaje recibido que indica la creación de un pedido. 
-      * @param pedido el pedido que se está procesando.
-      * @throws Exception si el pedido es nulo o si ocurre un error al procesar el mensaje, sera recivido por el método fallback.
-      */
-    @Retryable(
-        value = { Exception.class, RequestException.class },
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 2000)
-    )
-    @KafkaListener(topics = "pedido-creado", groupId = "pedido_creado_group")
-    public void listenCreado(String message) throws Exception {
-        // Guardamops el evento en la base de datos para generar persistencia
-        PedidoEvento pedidoEvento = new PedidoEvento("pedido-creado", message, LocalDate.now());
-        pedidoEventoService.saveEvent(pedidoEvento);
-
-        System.out.println(ColorUtils.pintarVerde("Pedido creado recibido: " + message));
+    /**
+     * Escucha y procesa los lotes de mensajes de los tres tópicos de eventos de pedidos en un único contenedor
+     * y grupo de consumidores. Solo se arranca con {@code pedidos.kafka.listener.single-container=true}; en ese caso
+     * no se arrancan los listeners de cada tópico.
+     *
+     * @param records los eventos binarios recibidos en un poll, de cualquiera de los tres tópicos.
+     */
+    @KafkaListener(topics = { "pedido-creado", "pedido-modificado", "pedido-cancelado" }, groupId = "pedido_evento_group",
+            containerFactory = "pedidoEventoListenerContainerFactory",
+            concurrency = "${pedidos.kafka.concurrency.pedidos:3}",
+            autoStartup = "${pedidos.kafka.listener.single-container:false}")
+    public void listenPedidos(List<ConsumerRecord<String, byte[]>> records) {
+        saveEventos(records);
     }
 
     /**
-     * Escucha y procesa los mensajes del tópico "pedido-creado".
-     * 
-     * @param message el mensaje recibido que indica la creación de un pedido.
-     * @param pedido el pedido que se está procesando.
-     * @throws Exception si el pedido es nulo o si ocurre un error al procesar el mensaje, sera recivido por el método fallback.
+     * Escucha y procesa los lotes de mensajes del tópico "pedido-creado".
+     *
+     * @param records los eventos binarios recibidos en un poll.
      */
-    @Retryable(
-        value = { Exception.class, RequestException.class },
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 2000)
-    )
-    @KafkaListener(topics = "pedido-procesado", groupId = "pedido_procesado_group")
-    public void listenProccesed(String message) throws Exception {
-        // Guardamops el evento en la base de datos para generar persistencia
-        PedidoEvento pedidoEvento = new PedidoEvento("pedido-procesado", message , LocalDate.now());
-        pedidoEventoService.saveEvent(pedidoEvento);
-        
-        System.out.println(ColorUtils.pintarVerde("Pedido procesado recibido: " + message));
+    @KafkaListener(topics = "pedido-creado", groupId = "pedido_creado_group", containerFactory = "pedidoEventoListenerContainerFactory",
+            concurrency = "${pedidos.kafka.concurrency.pedido-creado:1}",
+            autoStartup = "#{!${pedidos.kafka.listener.single-container:false}}")
+    public void listenCreado(List<ConsumerRecord<String, byte[]>> records) {
+        saveEventos(records);
     }
-    
+
+    /**
+     * Escucha y procesa los lotes de mensajes del tópico "pedido-procesado".
+     *
+     * @param records los mensajes de texto recibidos en un poll.
+     */
+    @KafkaListener(topics = "pedido-procesado", groupId = "pedido_procesado_group", containerFactory = "pedidoTextoListenerContainerFactory",
+            concurrency = "${pedidos.kafka.concurrency.pedido-procesado:1}")
+    public void listenProccesed(List<ConsumerRecord<String, String>> records) {
+        count(records);
+        // Guardamops los eventos en la base de datos para generar persistencia
+        List<PedidoEvento> eventos = records.stream()
+                .map(record -> new PedidoEvento("pedido-procesado", record.value(), LocalDate.now()))
+                .toList();
+        pedidoEventoService.saveEvents(eventos);
+        log.debug("Lote de {} pedidos procesados guardado", eventos.size());
+    }
+
     /**
-     * Escucha y procesa los mensajes del tópico "pedido-modificado".
+     * Escucha y procesa los lotes de mensajes del tópico "pedido-modificado".
      *
-     * @param message el mensaje recibido que indica la modificación de un pedido.
-     * @param pedido el pedido que se está procesando.
-     * @throws Exception si el pedido es nulo o si ocurre un error al procesar el mensaje, sera recivido por el método fallback.
+     * @param records los eventos binarios recibidos en un poll.
      */
-    @Retryable(
-        value = { Exception.class, RequestException.class },
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 2000)
-    )
-    @KafkaListener(topics = "pedido-modificado", groupId = "pedido_modificado_group")
-    public void listenModificado(String message) throws Exception {
-        // Guardamops el evento en la base de datos para generar persistencia
-        PedidoEvento pedidoEvento = new PedidoEvento("pedido-modificado", message , LocalDate.now());
-        pedidoEventoService.saveEvent(pedidoEvento);
-
-        System.out.println(ColorUtils.pintarVerde("Pedido modificado recibido: " + message));
+    @KafkaListener(topics = "pedido-modificado", groupId = "pedido_modificado_group", containerFactory = "pedidoEventoListenerContainerFactory",
+            concurrency = "${pedidos.kafka.concurrency.pedido-modificado:1}",
+            autoStartup = "#{!${pedidos.kafka.listener.single-container:false}}")
+    public void listenModificado(List<ConsumerRecord<String, byte[]>> records) {
+        saveEventos(records);
     }
-    
+
     /**
-     * Escucha y procesa los mensajes del tópico "pedido-cancelado".
+     * Escucha y procesa los lotes de mensajes del tópico "pedido-cancelado".
      *
-     * @param message el mensaje recibido que indica la cancelación de un pedido.
-     * @param pedido el pedido que se está procesando.
-    * @throws Exception si el pedido es nulo o si ocurre un error al procesar el mensaje, sera recivido por el método fallback.
-    */
-    @Retryable(
-        value = { Exception.class, RequestException.class },
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 2000)
-    )
-    @KafkaListener(topics = "pedido-cancelado", groupId = "pedido_cancelado_group")
-    public void listenCancelado(String message) throws Exception {
-        // Si el pedido sigue existiendo, lanzamos una excepción para que se reintente el mensaje.
-        // En un caso real, aquí se podría enviar el mensaje a un dead-letter topic o manejarlo de otra manera.
-        // Modificamos el estado del pedido a cancelado
-        PedidoEvento pedidoEvento = new PedidoEvento("pedido-cancelado", message , LocalDate.now());
-        pedidoEventoService.saveEvent(pedidoEvento);
-
-        System.out.println(ColorUtils.pintarRojo("Pedido cancelado recibido: " + message));
+     * @param records los eventos binarios recibidos en un poll.
+     */
+    @KafkaListener(topics = "pedido-cancelado", groupId = "pedido_cancelado_group", containerFactory = "pedidoEventoListenerContainerFactory",
+            concurrency = "${pedidos.kafka.concurrency.pedido-cancelado:1}",
+            autoStartup = "#{!${pedidos.kafka.listener.single-container:false}}")
+    public void listenCancelado(List<ConsumerRecord<String, byte[]>> records) {
+        saveEventos(records);
     }
 
     /**
-     * Escucha y procesa los mensajes del tópico "pedido-dead-letter". Es una convención para manejar mensajes que no se pudieron procesar.
+     * Escucha y procesa los lotes de mensajes del tópico "pedido-dead-letter". Es una convención para manejar mensajes que no se pudieron procesar.
+     * Un error al guardarlos solo se registra en el log, para no volver a enviarlos al propio dead letter.
      * 
-     * @param message el mensaje recibido que indica la creación de un pedido.
+     * @param records los mensajes recibidos en un poll.
      */
-    @KafkaListener(topics = "pedido-dead-letter", groupId = "dead_letter_group")
-    public void listenDeadLetter(String message) {
+    @KafkaListener(topics = "pedido-dead-letter", groupId = "dead_letter_group", containerFactory = "pedidoTextoListenerContainerFactory",
+            concurrency = "${pedidos.kafka.concurrency.pedido-dead-letter:1}")
+    public void listenDeadLetter(List<ConsumerRecord<String, String>> records) {
+        count(records);
         try {
-            System.out.println(ColorUtils.pintarRojo("Mensaje en dead letter: " + message));
-            PedidoEvento pedidoEvento = new PedidoEvento("pedido-dead-letter", message , LocalDate.now());
-            pedidoEventoService.saveEvent(pedidoEvento);
+            records.forEach(record -> log.warn("Mensaje en dead letter: {}", record.value()));
+            pedidoEventoService.saveEvents(records.stream()
+                    .map(record -> new PedidoEvento("pedido-dead-letter", record.value(), LocalDate.now()))
+                    .toList());
         } catch (Exception e) {
             // Manejo de excepciones al guardar el evento en la base de datos
-            System.err.println(ColorUtils.pintarRojo("Error en el dead leatter :("));
-            e.printStackTrace();
+            log.error("Error al guardar los mensajes del dead letter", e);
         }
-       
     }
 
     /**
-     * Escucha y procesa los mensajes del tópico "reserva-evento".
-     * {@link Recover} indica el método que se ejecutará en caso de que falle el método original.
-     * 
-     * @param message el mensaje recibido que indica la creación de un pedido.
-     * @param pedido el pedido que se está procesando.
-     * @param e la excepción que se lanzó al procesar el mensaje.
-     * @throws Exception si el pedido es nulo o si ocurre un error al procesar el mensaje.
+     * Reintenta guardar un evento de pedido de un lote que ha fallado.
+     * Si vuelve a fallar, el evento pasa a un tópico de reintento con espera ({@code pedido-evento-reintento-retry-<espera>}),
+     * cada uno con el doble de espera que el anterior hasta {@code pedidos.kafka.retry.max-delay-ms}. El consumidor
+     * de cada tópico de reintento pausa la partición hasta que vence la espera del evento, sin bloquear a los demás
+     * listeners. Un evento que no se puede leer no se reintenta.
+     *
+     * @param payload el evento binario.
      */
-    @Recover
-    public void fallback(Exception e, String message) throws Exception {
-        // Lo añadimos a un dead-letter topic para que se procese posteriormente
-        String deadLetterMessage = "Error al procesar pedido message: " + message;
-        kafkaProducerService.sendDeadLetter(deadLetterMessage);
+    @RetryableTopic(
+        attempts = "${pedidos.kafka.retry.attempts:4}",
+        backoff = @Backoff(
+            delayExpression = "${pedidos.kafka.retry.delay-ms:1000}",
+            multiplierExpression = "${pedidos.kafka.retry.multiplier:2}",
+            maxDelayExpression = "${pedidos.kafka.retry.max-delay-ms:30000}"),
+        dltTopicSuffix = "-dlt",
+        exclude = IllegalArgumentException.class,
+        kafkaTemplate = "pedidoEventoKafkaTemplate")
+    @KafkaListener(topics = REINTENTO_TOPIC, groupId = "pedido_reintento_group", containerFactory = "pedidoEventoReintentoListenerContainerFactory")
+    public void listenReintento(byte[] payload) {
+        pedidoEventoService.saveMensajes(List.of(PedidoEventoCodec.decode(payload)));
+    }
+
+    /**
+     * Guarda como evento de texto los eventos de pedidos que no se han podido procesar, con su origen y el error.
+     * No se reintenta: si falla solo queda en el log.
+     *
+     * @param record el evento fallido, con las cabeceras kafka_dlt-*.
+     */
+    @DltHandler
+    public void listenDlt(ConsumerRecord<String, byte[]> record) {
+        String descripcion = "Evento de " + header(record, KafkaHeaders.DLT_ORIGINAL_TOPIC, StandardCharsets.UTF_8::decode)
+                + "-" + header(record, KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer::getInt)
+                + "@" + header(record, KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer::getLong)
+                + " sin procesar (" + header(record, KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN, StandardCharsets.UTF_8::decode) + "): "
+                + Base64.getEncoder().encodeToString(record.value());
+        log.error("{}, error: {}", descripcion, header(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE, StandardCharsets.UTF_8::decode));
+        // La descripción se guarda en una columna de 255 caracteres
+        descripcion = descripcion.substring(0, Math.min(descripcion.length(), 255));
+        try {
+            pedidoEventoService.saveEvents(List.of(new PedidoEvento(DLT_TOPIC, descripcion, LocalDate.now())));
+        } catch (Exception e) {
+            log.error("Error al guardar el evento fallido", e);
+        }
+    }
+
+    /**
+     * Lee los eventos binarios de un lote y los guarda juntos, o repartidos en carriles por pedido con
+     * {@code pedidos.kafka.parallel.enabled=true} ({@link PedidoEventoParallelService}).
+     * Un evento que no se puede leer no se arregla reintentando: se envía directamente a {@link #DLT_TOPIC} y no
+     * bloquea al resto del lote.
+     *
+     * En paralelo, si falla algún carril se lanza {@link org.springframework.kafka.listener.BatchListenerFailedException}
+     * con el primer mensaje sin guardar: el manejador de errores confirma solo los offsets anteriores, que están todos guardados, envía ese
+     * mensaje al tópico de reintentos y vuelve a entregar el resto (los ya guardados se descartan por su ID).
+     *
+     * @param records los eventos binarios recibidos en un poll.
+     */
+    private void saveEventos(List<ConsumerRecord<String, byte[]>> records) {
+        count(records);
+        List<PedidoEventoMensaje> eventos = new ArrayList<>(records.size());
+        List<Integer> posiciones = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            try {
+                eventos.add(PedidoEventoCodec.decode(record.value()));
+                posiciones.add(i);
+            } catch (IllegalArgumentException e) {
+                log.warn("Evento de pedido ilegible en {}-{}@{}: {}", record.topic(), record.partition(), record.offset(), e.getMessage());
+                pedidoEventoDltRecoverer.accept(record, e);
+            }
+        }
+        if (!parallel) {
+            int guardados = pedidoEventoService.saveMensajes(eventos);
+            log.debug("Lote de {} eventos de pedido recibido, {} guardados", records.size(), guardados);
+            return;
+        }
+        pedidoEventoParallelService.save(eventos, posiciones);
+        log.debug("Lote de {} eventos de pedido recibido y guardado en paralelo", records.size());
+    }
 
-        // Guardamops el evento en la base de datos para generar persistencia
-        PedidoEvento pedidoEvento = new PedidoEvento("pedido-dead-letter", message , LocalDate.now());
-        pedidoEventoService.saveEvent(pedidoEvento);
+    /**
+     * Cuenta los mensajes recibidos por tópico y partición en {@code pedidos.kafka.consumed}, para ver el ritmo de
+     * consumo de cada partición (por ejemplo, con rate() en Prometheus).
+     */
+    private void count(List<? extends ConsumerRecord<?, ?>> records) {
+        Map<TopicPartition, Long> porParticion = records.stream()
+                .collect(Collectors.groupingBy(record -> new TopicPartition(record.topic(), record.partition()), Collectors.counting()));
+        porParticion.forEach((particion, mensajes) -> Counter.builder("pedidos.kafka.consumed")
+                .description("Mensajes de Kafka recibidos por los listeners")
+                .tag("topic", particion.topic())
+                .tag("partition", String.valueOf(particion.partition()))
+                .register(meterRegistry)
+                .increment(mensajes));
+    }
 
-        System.out.println(ColorUtils.pintarRojo(message));
+    // Lee una cabecera kafka_dlt-*, o "?" si el mensaje no la tiene
+    private static Object header(ConsumerRecord<?, ?> record, String name, Function<ByteBuffer, Object> valor) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? valor.apply(ByteBuffer.wrap(header.value())) : "?";
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,22 @@
 package com.grupo06.sistemapedidos.service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Servicio productor de mensajes para Kafka.
@@ -11,31 +26,61 @@ import org.springframework.stereotype.Service;
  * En Kafka, un producer es un componente que envía mensajes a un tópico específico en el clúster. Los producers
  * son responsables de serializar los mensajes y enviarlos a las particiones correspondientes, facilitando la distribución
  * y entrega de la información de forma efectiva.
+ *
+ * Ningún envío espera a la confirmación de Kafka: al completarse se registra su duración en
+ * {@code pedidos.kafka.send} (etiquetas {@code topic} y {@code result}) y los fallos se registran en el log. Como mucho
+ * puede haber {@code pedidos.kafka.producer.max-in-flight} envíos sin confirmar; por encima de ese límite los envíos se
+ * rechazan al momento (future fallido, aviso en el log y {@code pedidos.kafka.send.rejected}) en lugar de bloquear al hilo que envía
+ * cuando se llena el buffer del productor. Los envíos pendientes se ven en {@code pedidos.kafka.producer.in-flight}.
  * 
  * {@link Service} indica que esta clase es un servicio de Spring, lo que permite la inyección de dependencias y
  * la gestión del ciclo de vida del bean.
  */
+@Slf4j
 @Service
 public class KafkaProducerService {
 
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> pedidoEventoKafkaTemplate;
+    private final Semaphore enVuelo;
+    private final MeterRegistry registry;
+    private final Counter rechazados;
 
     /**
      * Constructor para la inyección de dependencias.
      *
-     * @param kafkaTemplate plantilla de Kafka para enviar mensajes.
+     * @param kafkaTemplate plantilla de Kafka para enviar mensajes de texto.
+     * @param pedidoEventoKafkaTemplate plantilla de Kafka para enviar los eventos de pedidos en formato binario.
+     * @param maxInFlight máximo de envíos sin confirmar.
+     * @param meterRegistry registro de métricas, si existe.
      */
-    public KafkaProducerService(KafkaTemplate<String, String> kafkaTemplate) {
+    public KafkaProducerService(KafkaTemplate<String, String> kafkaTemplate, KafkaTemplate<String, byte[]> pedidoEventoKafkaTemplate,
+            @Value("${pedidos.kafka.producer.max-in-flight:10000}") int maxInFlight, ObjectProvider<MeterRegistry> meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
+        this.pedidoEventoKafkaTemplate = pedidoEventoKafkaTemplate;
+        this.enVuelo = new Semaphore(maxInFlight);
+        this.registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.rechazados = Counter.builder("pedidos.kafka.send.rejected")
+                .description("Envíos a Kafka rechazados por superar el máximo de envíos sin confirmar").register(registry);
+        Gauge.builder("pedidos.kafka.producer.in-flight", enVuelo, permisos -> maxInFlight - permisos.availablePermits())
+                .description("Envíos a Kafka pendientes de confirmación").register(registry);
     }
 
     /**
-     * Envía una notificación de creación de pedido al tópico "pedido-creado".
+     * Envía un evento de pedido serializado con {@link PedidoEventoCodec} sin esperar a la confirmación.
+     * La clave es el ID del pedido: los eventos de un mismo pedido van a la misma partición y se consumen en orden.
+     * La versión del esquema (primer byte del evento) se copia a la cabecera {@link PedidoEventoCodec#SCHEMA_VERSION_HEADER}.
      *
-     * @param message el mensaje a enviar que indica la creación de un pedido.
+     * @param topic el tópico de destino.
+     * @param key la clave del mensaje, el ID del pedido.
+     * @param payload el evento serializado.
+     * @return CompletableFuture que se completa cuando Kafka confirma el mensaje o falla el envío, o que ya ha fallado
+     * con {@link RejectedExecutionException} si hay demasiados envíos sin confirmar.
      */
-    public void sendOrderCreated(String message) {
-        kafkaTemplate.send("pedido-creado", message);
+    public CompletableFuture<SendResult<String, byte[]>> sendEvent(String topic, String key, byte[] payload) {
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, key, payload);
+        record.headers().add(PedidoEventoCodec.SCHEMA_VERSION_HEADER, new byte[] { PedidoEventoCodec.version(payload) });
+        return send(pedidoEventoKafkaTemplate, record);
     }
 
     /**
@@ -44,25 +89,7 @@ public class KafkaProducerService {
      * @param message el mensaje a enviar que indica el procesamiento de un pedido.
      */
     public void sendOrderProcessed(String message) {
-        kafkaTemplate.send("pedido-procesado", message);
-    }
-    
-    /**
-     * Envía una notificación de modificación de pedido al tópico "pedido-modificado".
-     *
-     * @param message el mensaje a enviar que indica la modificación de un pedido.
-     */
-    public void sendModificationNotification(String message) {
-        kafkaTemplate.send("pedido-modificado", message);
-    }
-    
-     /**
-     * Envía una notificación de cancelación de pedido al tópico "pedido-cancelado".
-     *
-     * @param message el mensaje a enviar que indica la cancelación de un pedido.
-     */
-    public void sendCancellationNotification(String message) {
-        kafkaTemplate.send("pedido-cancelado", message);
+        send(kafkaTemplate, new ProducerRecord<>("pedido-procesado", message));
     }
 
     /**
@@ -71,6 +98,34 @@ public class KafkaProducerService {
      * @param message el mensaje a enviar que indica un error en el procesamiento de un pedido.
      */
     public void sendDeadLetter(String message) {
-        kafkaTemplate.send("pedido-dead-letter", message);
+        send(kafkaTemplate, new ProducerRecord<>("pedido-dead-letter", message));
+    }
+
+    /**
+     * Envía un mensaje si no se ha alcanzado el máximo de envíos sin confirmar, y al completarse libera su plaza y
+     * registra su duración y, si ha fallado, el error.
+     */
+    private <V> CompletableFuture<SendResult<String, V>> send(KafkaTemplate<String, V> template, ProducerRecord<String, V> record) {
+        if (!enVuelo.tryAcquire()) {
+            rechazados.increment();
+            log.warn("Demasiados envíos a Kafka sin confirmar, se rechaza el mensaje a {}", record.topic());
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Demasiados envíos a Kafka sin confirmar, se descarta el mensaje a " + record.topic()));
+        }
+        long inicio = System.nanoTime();
+        CompletableFuture<SendResult<String, V>> envio;
+        try {
+            envio = template.send(record);
+        } catch (RuntimeException e) {
+            envio = CompletableFuture.failedFuture(e);
+        }
+        return envio.whenComplete((resultado, e) -> {
+            enVuelo.release();
+            Timer.builder("pedidos.kafka.send").description("Duración de los envíos a Kafka hasta su confirmación")
+                    .tag("topic", record.topic()).tag("result", e == null ? "ok" : "error").register(registry)
+                    .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            if (e != null)
+                log.warn("Error al enviar un mensaje a {}: {}", record.topic(), e.getMessage());
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.grupo06.sistemapedidos.model.OutboxRelayLease;
+import com.grupo06.sistemapedidos.model.PedidoOutbox;
+import com.grupo06.sistemapedidos.repository.OutboxRelayLeaseRepository;
+import com.grupo06.sistemapedidos.repository.PedidoOutboxRepository;
+import com.grupo06.sistemapedidos.repository.PedidoOutboxRepository.OutboxPendiente;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publica en Kafka los eventos de la tabla outbox.
+ *
+ * Cada {@code pedidos.outbox.poll-interval-ms} se leen lotes de hasta {@code pedidos.outbox.batch-size} eventos en orden
+ * de ID. Todos los mensajes del lote se envían sin esperar uno a uno, se espera a la confirmación de todos (como máximo
+ * {@code pedidos.outbox.send-timeout-ms}) y solo entonces se borran las filas. La lectura y el borrado son transacciones
+ * cortas: mientras se espera a Kafka no hay ninguna transacción abierta ni conexión del pool ocupada. Si algún envío
+ * falla las filas se quedan en la tabla y el lote entero se reintenta en la siguiente pasada: la entrega es al menos una
+ * vez y un consumidor puede recibir un evento repetido, nunca perderlo.
+ *
+ * Para que los eventos de un mismo pedido mantengan su orden solo publica una instancia a la vez: la que tiene la
+ * concesión de {@link OutboxRelayLease}. Antes de cada lote la instancia la renueva por {@code pedidos.outbox.relay.lease-ms}
+ * (o la toma si ha caducado); si la tiene otra, la pasada no hace nada. La concesión debe durar más que
+ * {@code pedidos.outbox.send-timeout-ms} para que no caduque a mitad de un lote.
+ *
+ * Métricas en Actuator: {@code pedidos.outbox.published} (eventos publicados, su tasa es el rendimiento),
+ * {@code pedidos.outbox.pending} (eventos pendientes), {@code pedidos.outbox.lag} (antigüedad del evento pendiente más
+ * antiguo), {@code pedidos.outbox.batch} (duración de cada lote) y {@code pedidos.outbox.failures} (lotes fallidos).
+ */
+@Slf4j
+@Service
+public class OutboxRelayService {
+    private final PedidoOutboxRepository outboxRepository;
+    private final OutboxRelayLeaseRepository leaseRepository;
+    private final KafkaProducerService kafkaProducerService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter publicados;
+    private final Counter fallos;
+    private final Timer duracionLote;
+    private final AtomicLong pendientes = new AtomicLong();
+    private final AtomicLong retrasoMs = new AtomicLong();
+    // Identifica a esta instancia en la concesión del relay
+    private final String instancia = UUID.randomUUID().toString();
+
+    // Número máximo de eventos por lote
+    @Value("${pedidos.outbox.batch-size:500}")
+    private int batchSize;
+
+    // Si es false esta instancia no publica el outbox (lo hacen otras instancias)
+    @Value("${pedidos.outbox.relay.enabled:true}")
+    private boolean relayEnabled;
+
+    // Tiempo máximo de espera a la confirmación de Kafka de un lote
+    @Value("${pedidos.outbox.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    // Duración de la concesión del relay, debe ser mayor que send-timeout-ms
+    @Value("${pedidos.outbox.relay.lease-ms:30000}")
+    private long leaseMs;
+
+    public OutboxRelayService(PedidoOutboxRepository outboxRepository, OutboxRelayLeaseRepository leaseRepository,
+                              KafkaProducerService kafkaProducerService,
+                              PlatformTransactionManager transactionManager, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.leaseRepository = leaseRepository;
+        this.kafkaProducerService = kafkaProducerService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.publicados = Counter.builder("pedidos.outbox.published").description("Eventos del outbox publicados en Kafka").register(registry);
+        this.fallos = Counter.builder("pedidos.outbox.failures").description("Lotes del outbox que no se han podido publicar").register(registry);
+        this.duracionLote = Timer.builder("pedidos.outbox.batch").description("Duración de la publicación de un lote del outbox").register(registry);
+        Gauge.builder("pedidos.outbox.pending", pendientes, AtomicLong::get).description("Eventos pendientes en el outbox").register(registry);
+        Gauge.builder("pedidos.outbox.lag", retrasoMs, valor -> valor.get() / 1000.0).baseUnit("seconds")
+                .description("Antigüedad del evento pendiente más antiguo del outbox").register(registry);
+    }
+
+    /**
+     * Pasada programada del relay, se puede desactivar en las instancias que no deban publicar.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.outbox.poll-interval-ms:200}")
+    public void scheduledRelay() {
+        if (relayEnabled)
+            relay();
+    }
+
+    /**
+     * Publica lotes hasta vaciar el outbox si esta instancia tiene la concesión del relay.
+     * Un fallo deja los eventos en la tabla para la siguiente pasada.
+     */
+    public void relay() {
+        try {
+            // Mientras los lotes salgan completos puede haber más eventos pendientes
+            int enviados;
+            do {
+                if (!acquireLease())
+                    return;
+                enviados = publishBatch();
+            } while (enviados == batchSize);
+        } catch (Exception e) {
+            fallos.increment();
+            log.warn("No se han podido publicar los eventos del outbox, se reintentará en la siguiente pasada: {}", e.getMessage());
+        } finally {
+            updatePendiente();
+        }
+    }
+
+    /**
+     * Publica un lote de eventos y los borra del outbox. Solo la lectura y el borrado se hacen en transacción;
+     * la transacción de lectura no es de solo lectura para que vaya siempre al primario.
+     *
+     * @return número de eventos publicados
+     */
+    public int publishBatch() {
+        List<PedidoOutbox> eventos = transactionTemplate.execute(status -> outboxRepository.findByOrderByIdAsc(Limit.of(batchSize)));
+        if (eventos == null || eventos.isEmpty())
+            return 0;
+        retrasoMs.set(Duration.between(eventos.get(0).getCreado(), Instant.now()).toMillis());
+
+        long inicio = System.nanoTime();
+        CompletableFuture<?>[] envios = eventos.stream()
+                .map(evento -> kafkaProducerService.sendEvent(evento.getTopic(), evento.getClave(), evento.getPayload()))
+                .toArray(CompletableFuture[]::new);
+        awaitAll(envios);
+        List<Long> ids = eventos.stream().map(PedidoOutbox::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteByIdIn(ids));
+        duracionLote.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        publicados.increment(eventos.size());
+        return eventos.size();
+    }
+
+    /**
+     * Renueva la concesión del relay o la toma si ha caducado. La primera instancia que arranca crea la fila.
+     *
+     * @return true si esta instancia puede publicar el outbox
+     */
+    private boolean acquireLease() {
+        Instant ahora = Instant.now();
+        Instant expira = ahora.plusMillis(leaseMs);
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (leaseRepository.renew(instancia, ahora, expira) == 1)
+                    return true;
+                if (leaseRepository.existsById(OutboxRelayLease.ID))
+                    return false;
+                leaseRepository.saveAndFlush(new OutboxRelayLease(OutboxRelayLease.ID, instancia, expira));
+                return true;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia ha creado la fila a la vez
+            return false;
+        }
+    }
+
+    /**
+     * Deja la concesión al parar la aplicación para que otra instancia publique sin esperar a que caduque.
+     */
+    @PreDestroy
+    public void releaseLease() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> leaseRepository.release(instancia, Instant.now()));
+        } catch (Exception e) {
+            log.warn("No se ha podido liberar la concesión del relay del outbox: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Espera a la confirmación de todos los envíos del lote. Cualquier fallo deja el lote en el outbox.
+     */
+    private void awaitAll(CompletableFuture<?>[] envios) {
+        try {
+            CompletableFuture.allOf(envios).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Publicación del outbox interrumpida", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Error al publicar el lote del outbox en Kafka", e);
+        }
+    }
+
+    /**
+     * Actualiza las métricas de eventos pendientes y de retraso con una consulta agregada.
+     */
+    private void updatePendiente() {
+        try {
+            OutboxPendiente pendiente = outboxRepository.findPendiente();
+            pendientes.set(pendiente.getPendientes());
+            retrasoMs.set(pendiente.getMasAntiguo() != null
+                    ? Duration.between(pendiente.getMasAntiguo(), Instant.now()).toMillis() : 0);
+        } catch (Exception e) {
+            log.warn("No se han podido leer los eventos pendientes del outbox: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StreamsMetadata;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.streams.KafkaStreamsInteractiveQueryService;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import com.grupo06.sistemapedidos.config.KafkaStreamsConfig;
+import com.grupo06.sistemapedidos.dto.PedidoAgregadoDTO;
+import com.grupo06.sistemapedidos.dto.ProductoVendidoDTO;
+import com.grupo06.sistemapedidos.dto.TendenciaDTO;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consulta los agregados por producto y por usuario que mantiene Kafka Streams ({@link KafkaStreamsConfig}), sin
+ * acceder a la base de datos.
+ *
+ * Los almacenes de agregados son locales: con varias instancias, cada una solo tiene los productos y usuarios de las
+ * particiones que tiene asignadas. Cada instancia anuncia su dirección HTTP en {@code application.server}: un producto
+ * o usuario de otra instancia se le pide a ella, y los listados juntan lo de la instancia local con lo de todas las demás
+ * que tienen el almacén. Las peticiones entre instancias llevan la cabecera {@value #SOLO_LOCAL_HEADER} para que la otra
+ * instancia responda solo con su almacén local, y el token del usuario. Sin {@code application.server} hay una sola
+ * instancia y todo se consulta en local. Los productos más vendidos están enteros en todas las instancias.
+ *
+ * Mientras Kafka Streams arranca o reparte las particiones, o si alguna instancia no responde, se devuelve
+ * {@link ApiError#STATISTICS_UNAVAILABLE} en lugar de una respuesta incompleta.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "pedidos.streams.enabled", havingValue = "true")
+public class PedidoAgregadoService {
+    /**
+     * Cabecera de las consultas entre instancias: la instancia que la recibe responde solo con su almacén local.
+     */
+    public static final String SOLO_LOCAL_HEADER = "X-Pedidos-Solo-Local";
+
+    private static final String URL = "http://{host}:{port}/api/estadisticas/{tipo}";
+
+    private final KafkaStreamsInteractiveQueryService queryService;
+    private final StreamsBuilderFactoryBean streamsBuilderFactoryBean;
+    private final RestClient restClient;
+    private final int top;
+    private final int[] ventanasMinutos;
+
+    public PedidoAgregadoService(KafkaStreamsInteractiveQueryService queryService, StreamsBuilderFactoryBean streamsBuilderFactoryBean,
+            ObjectProvider<RestClient.Builder> restClientBuilder,
+            @Value("${pedidos.streams.trending.top:10}") int top,
+            @Value("${pedidos.streams.trending.windows-minutes:5,15,60}") int[] ventanasMinutos) {
+        this.queryService = queryService;
+        this.streamsBuilderFactoryBean = streamsBuilderFactoryBean;
+        this.restClient = restClientBuilder.getIfAvailable(RestClient::builder).build();
+        this.top = top;
+        this.ventanasMinutos = ventanasMinutos;
+    }
+
+    /**
+     * Obtiene los agregados de un producto, de la instancia que lo tiene.
+     *
+     * @param id ID del producto
+     * @param soloLocal si es true se consulta solo el almacén local (petición de otra instancia)
+     * @param authorization cabecera Authorization de la petición, se reenvía a la otra instancia
+     * @return agregados del producto, a cero si no está en ningún pedido
+     */
+    public PedidoAgregadoDTO getProducto(Integer id, boolean soloLocal, String authorization) {
+        return get(KafkaStreamsConfig.PRODUCTOS_STORE, "producto", id, soloLocal, authorization);
+    }
+
+    /**
+     * Obtiene los agregados de todos los productos que han estado en algún pedido, de todas las instancias.
+     *
+     * @param soloLocal si es true se consulta solo el almacén local (petición de otra instancia)
+     * @param authorization cabecera Authorization de la petición, se reenvía a las otras instancias
+     * @return agregados por producto, ordenados por ID
+     */
+    public List<PedidoAgregadoDTO> getProductos(boolean soloLocal, String authorization) {
+        return getAll(KafkaStreamsConfig.PRODUCTOS_STORE, "producto", soloLocal, authorization);
+    }
+
+    /**
+     * Obtiene los agregados de un usuario, de la instancia que lo tiene.
+     *
+     * @param id ID del usuario
+     * @param soloLocal si es true se consulta solo el almacén local (petición de otra instancia)
+     * @param authorization cabecera Authorization de la petición, se reenvía a la otra instancia
+     * @return agregados del usuario, a cero si no tiene pedidos
+     */
+    public PedidoAgregadoDTO getUsuario(Integer id, boolean soloLocal, String authorization) {
+        return get(KafkaStreamsConfig.USUARIOS_STORE, "usuario", id, soloLocal, authorization);
+    }
+
+    /**
+     * Obtiene los agregados de todos los usuarios que han tenido algún pedido, de todas las instancias.
+     *
+     * @param soloLocal si es true se consulta solo el almacén local (petición de otra instancia)
+     * @param authorization cabecera Authorization de la petición, se reenvía a las otras instancias
+     * @return agregados por usuario, ordenados por ID
+     */
+    public List<PedidoAgregadoDTO> getUsuarios(boolean soloLocal, String authorization) {
+        return getAll(KafkaStreamsConfig.USUARIOS_STORE, "usuario", soloLocal, authorization);
+    }
+
+    /**
+     * Obtiene los productos más vendidos de una ventana, juntando los de todas las particiones. Cada partición los
+     * recalcula cada pocos segundos; las que no se han recalculado durante toda la ventana no se tienen en cuenta.
+     *
+     * @param minutos duración de la ventana, una de {@code pedidos.streams.trending.windows-minutes}
+     * @return productos con más unidades pedidas en los últimos minutos, de más a menos
+     */
+    public TendenciaDTO getTendencia(int minutos) {
+        if (Arrays.stream(ventanasMinutos).noneMatch(ventana -> ventana == minutos))
+            throw new RequestException(ApiError.INVALID_REQUEST_DATA, "Invalid Window",
+                    "Window must be one of " + Arrays.toString(ventanasMinutos) + " minutes.");
+
+        List<TendenciaDTO> particiones = query(KafkaStreamsConfig.TENDENCIA_STORE, (ReadOnlyKeyValueStore<String, TendenciaDTO> almacen) -> {
+            List<TendenciaDTO> valores = new ArrayList<>();
+            // Las claves de la ventana son "minutos#partición": van de "minutos#" a "minutos$"
+            try (KeyValueIterator<String, TendenciaDTO> iterator = almacen.range(KafkaStreamsConfig.tendenciaKey(minutos, ""), minutos + "$")) {
+                iterator.forEachRemaining(entrada -> valores.add(entrada.value));
+            }
+            return valores;
+        });
+        Instant limite = Instant.now().minus(Duration.ofMinutes(minutos));
+        List<TendenciaDTO> recientes = particiones.stream().filter(particion -> particion.getCalculada().isAfter(limite)).toList();
+        if (recientes.isEmpty())
+            throw new RequestException(ApiError.STATISTICS_UNAVAILABLE);
+
+        List<ProductoVendidoDTO> productos = recientes.stream()
+                .flatMap(particion -> particion.getProductos().stream())
+                .sorted(Comparator.comparingLong(ProductoVendidoDTO::getUnidades).reversed())
+                .limit(top)
+                .toList();
+        Instant calculada = recientes.stream().map(TendenciaDTO::getCalculada).min(Comparator.naturalOrder()).orElseThrow();
+        return new TendenciaDTO(minutos, calculada, productos);
+    }
+
+    private PedidoAgregadoDTO get(String store, String tipo, Integer id, boolean soloLocal, String authorization) {
+        HostInfo actual = queryService.getCurrentKafkaStreamsApplicationHostInfo();
+        if (!soloLocal && actual != null) {
+            HostInfo propietario = propietario(store, id);
+            if (!propietario.equals(actual))
+                return remote(propietario, tipo, id, PedidoAgregadoDTO.class, authorization);
+        }
+        PedidoAgregadoDTO agregado = query(store, (ReadOnlyKeyValueStore<Integer, PedidoAgregadoDTO> almacen) -> almacen.get(id));
+        return agregado != null ? agregado : new PedidoAgregadoDTO(id, 0, 0, 0);
+    }
+
+    private List<PedidoAgregadoDTO> getAll(String store, String tipo, boolean soloLocal, String authorization) {
+        List<PedidoAgregadoDTO> agregados = query(store, (ReadOnlyKeyValueStore<Integer, PedidoAgregadoDTO> almacen) -> {
+            List<PedidoAgregadoDTO> valores = new ArrayList<>();
+            try (KeyValueIterator<Integer, PedidoAgregadoDTO> iterator = almacen.all()) {
+                iterator.forEachRemaining(entrada -> valores.add(entrada.value));
+            }
+            return valores;
+        });
+        HostInfo actual = queryService.getCurrentKafkaStreamsApplicationHostInfo();
+        if (!soloLocal && actual != null) {
+            // Cada partición está activa en una sola instancia: juntando todas no falta ni se repite ningún ID
+            for (HostInfo host : hosts(store)) {
+                if (!host.equals(actual))
+                    agregados.addAll(Arrays.asList(remote(host, tipo, null, PedidoAgregadoDTO[].class, authorization)));
+            }
+        }
+        // El almacén ordena por los bytes de la clave, no por el valor del ID
+        agregados.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return agregados;
+    }
+
+    /**
+     * Instancia que tiene activa la partición de un ID. Si no se sabe (Kafka Streams arrancando o repartiendo las
+     * particiones) falla con {@link ApiError#STATISTICS_UNAVAILABLE}.
+     */
+    private HostInfo propietario(String store, Integer id) {
+        HostInfo host = null;
+        try {
+            host = queryService.getKafkaStreamsApplicationHostInfo(store, id, Serdes.Integer().serializer());
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido saber qué instancia tiene el ID {} del almacén {}: {}", id, store, e.getMessage());
+        }
+        // KeyQueryMetadata.NOT_AVAILABLE tiene el puerto -1
+        if (host == null || host.port() < 0)
+            throw new RequestException(ApiError.STATISTICS_UNAVAILABLE);
+        return host;
+    }
+
+    /**
+     * Instancias que tienen alguna partición del almacén.
+     */
+    private Collection<HostInfo> hosts(String store) {
+        try {
+            KafkaStreams kafkaStreams = streamsBuilderFactoryBean.getKafkaStreams();
+            return kafkaStreams.streamsMetadataForStore(store).stream().map(StreamsMetadata::hostInfo).toList();
+        } catch (RuntimeException e) {
+            log.warn("No se han podido obtener las instancias del almacén {}: {}", store, e.getMessage());
+            throw new RequestException(ApiError.STATISTICS_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Consulta el almacén local de otra instancia. Si no responde la consulta falla con
+     * {@link ApiError#STATISTICS_UNAVAILABLE}, así nunca se devuelve una respuesta incompleta.
+     */
+    private <T> T remote(HostInfo host, String tipo, Integer id, Class<T> respuesta, String authorization) {
+        try {
+            return restClient.get()
+                    .uri(id != null ? URL + "/{id}" : URL, host.host(), host.port(), tipo, id)
+                    .header(SOLO_LOCAL_HEADER, "true")
+                    .headers(cabeceras -> {
+                        if (authorization != null)
+                            cabeceras.set(HttpHeaders.AUTHORIZATION, authorization);
+                    })
+                    .retrieve()
+                    .body(respuesta);
+        } catch (RestClientException e) {
+            log.warn("No se ha podido consultar {} {} en la instancia {}:{}: {}", tipo, id != null ? id : "(todos)",
+                    host.host(), host.port(), e.getMessage());
+            throw new RequestException(ApiError.STATISTICS_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Consulta un almacén local. Si Kafka Streams no está en marcha o está repartiendo las particiones, la consulta
+     * falla con {@link ApiError#STATISTICS_UNAVAILABLE}.
+     */
+    private <K, V, T> T query(String store, Function<ReadOnlyKeyValueStore<K, V>, T> consulta) {
+        try {
+            return consulta.apply(queryService.retrieveQueryableStore(store, QueryableStoreTypes.<K, V>keyValueStore()));
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido consultar el almacén {}: {}", store, e.getMessage());
+            throw new RequestException(ApiError.STATISTICS_UNAVAILABLE);
+        }
+    }
+}
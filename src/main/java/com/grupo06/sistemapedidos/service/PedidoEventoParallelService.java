@@ -0,0 +1,92 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Service;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Guardado en paralelo de los eventos de pedidos de un lote, manteniendo el orden de cada pedido.
+ *
+ * Los eventos se reparten en {@code pedidos.kafka.parallel.lanes} carriles según el ID del pedido: todos los eventos
+ * de un pedido van al mismo carril y en el orden en que llegaron. Cada carril se guarda con un saveAll en su propia
+ * transacción, y los carriles se guardan a la vez, así que una escritura lenta solo retrasa a los pedidos de su carril.
+ * Cada carril ocupa una conexión del pool mientras se guarda.
+ *
+ * Los carriles se ejecutan en hilos virtuales ({@code pedidos.kafka.parallel.virtual-threads}, por defecto) o en un
+ * pool fijo de tantos hilos como carriles.
+ */
+@Slf4j
+@Service
+public class PedidoEventoParallelService {
+    private final PedidoEventoService pedidoEventoService;
+    private final int lanes;
+    private final ExecutorService executor;
+
+    public PedidoEventoParallelService(PedidoEventoService pedidoEventoService,
+            @Value("${pedidos.kafka.parallel.lanes:8}") int lanes,
+            @Value("${pedidos.kafka.parallel.virtual-threads:true}") boolean virtualThreads) {
+        this.pedidoEventoService = pedidoEventoService;
+        this.lanes = Math.max(1, lanes);
+        this.executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(this.lanes);
+    }
+
+    /**
+     * Guarda los eventos de un lote repartidos en carriles y espera a que terminen todos.
+     *
+     * @param eventos eventos del lote, en el orden en que se han recibido
+     * @param posiciones posición en el lote de Kafka del mensaje de cada evento, en el mismo orden
+     * @throws BatchListenerFailedException si algún carril falla, con la posición del primer mensaje cuyo evento no se
+     * ha guardado y el error de su carril. Todos los mensajes anteriores a esa posición están guardados.
+     */
+    public void save(List<PedidoEventoMensaje> eventos, List<Integer> posiciones) {
+        List<List<Integer>> carriles = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++)
+            carriles.add(new ArrayList<>());
+        for (int i = 0; i < eventos.size(); i++)
+            carriles.get(Math.floorMod(eventos.get(i).pedidoId(), lanes)).add(i);
+
+        List<List<Integer>> enviados = new ArrayList<>();
+        List<Future<?>> guardados = new ArrayList<>();
+        for (List<Integer> carril : carriles) {
+            if (carril.isEmpty())
+                continue;
+            enviados.add(carril);
+            guardados.add(executor.submit(() -> pedidoEventoService.saveMensajes(carril.stream().map(eventos::get).toList())));
+        }
+
+        // Un carril que falla se deshace entero: el primer mensaje sin guardar es el primero de los carriles fallidos
+        int primeroSinGuardar = -1;
+        Throwable error = null;
+        for (int i = 0; i < guardados.size(); i++) {
+            try {
+                guardados.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BatchListenerFailedException("Guardado del lote interrumpido", e, posiciones.get(0));
+            } catch (ExecutionException e) {
+                int posicion = posiciones.get(enviados.get(i).get(0));
+                log.warn("Error al guardar un carril de {} eventos desde la posición {} del lote", enviados.get(i).size(), posicion, e.getCause());
+                if (primeroSinGuardar < 0 || posicion < primeroSinGuardar) {
+                    primeroSinGuardar = posicion;
+                    error = e.getCause();
+                }
+            }
+        }
+        if (primeroSinGuardar >= 0)
+            throw new BatchListenerFailedException("Error al guardar los eventos de pedido del lote", error, primeroSinGuardar);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
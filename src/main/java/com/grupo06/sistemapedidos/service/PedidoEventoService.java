@@ -1,6 +1,13 @@
 package com.grupo06.sistemapedidos.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
 import com.grupo06.sistemapedidos.model.PedidoEvento;
 import com.grupo06.sistemapedidos.repository.PedidoEventoRepository;
 
@@ -29,6 +36,40 @@ public class PedidoEventoService {
         pedidoEventoRepository.save(pedidoEvento);
     }
 
+    /**
+     * Guarda varios eventos de texto con un único saveAll (INSERT en lotes JDBC) en una transacción.
+     *
+     * @param pedidoEventos Eventos de pedido recibidos en un lote.
+     */
+    @Transactional
+    public void saveEvents(List<PedidoEvento> pedidoEventos) {
+        pedidoEventoRepository.saveAll(pedidoEventos);
+    }
+
+    /**
+     * Guarda un lote de eventos binarios de pedido con sus campos estructurados, con una consulta IN para descartar
+     * los ya guardados y un único saveAll (INSERT en lotes JDBC) en una transacción.
+     * Los eventos se entregan al menos una vez, así que un evento que ya se ha guardado, o que aparece dos veces
+     * en el lote, se ignora.
+     *
+     * @param eventos Eventos de pedido recibidos en un lote.
+     * @return número de eventos guardados, sin contar las repeticiones.
+     */
+    @Transactional
+    public int saveMensajes(List<PedidoEventoMensaje> eventos) {
+        if (eventos.isEmpty())
+            return 0;
+        Set<UUID> guardados = new HashSet<>(pedidoEventoRepository.findExistingEventIds(
+                eventos.stream().map(PedidoEventoMensaje::eventId).toList()));
+        List<PedidoEvento> nuevos = new ArrayList<>(eventos.size());
+        for (PedidoEventoMensaje evento : eventos) {
+            if (guardados.add(evento.eventId()))
+                nuevos.add(new PedidoEvento(evento));
+        }
+        pedidoEventoRepository.saveAll(nuevos);
+        return nuevos.size();
+    }
+
     /**
      * Elimina un evento de pedido por su ID.
      * 
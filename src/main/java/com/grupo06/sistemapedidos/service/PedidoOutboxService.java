@@ -0,0 +1,50 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.util.List;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.model.PedidoOutbox;
+import com.grupo06.sistemapedidos.repository.PedidoOutboxRepository;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+
+/**
+ * Servicio que registra los eventos de pedidos en la tabla outbox.
+ *
+ * Los eventos se guardan en la misma transacción que el cambio del pedido (propagación MANDATORY: fuera de una
+ * transacción falla), así un pedido que se deshace no publica ningún evento y uno confirmado no lo pierde aunque
+ * Kafka no esté disponible. {@link OutboxRelayService} los publica después en el tópico de su tipo, con el ID
+ * del pedido como clave y serializados con {@link PedidoEventoCodec}.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class PedidoOutboxService {
+    private final PedidoOutboxRepository outboxRepository;
+
+    public PedidoOutboxService(PedidoOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    /**
+     * Registra un evento de pedido.
+     *
+     * @param evento el evento a publicar
+     */
+    public void add(PedidoEventoMensaje evento) {
+        outboxRepository.save(toOutbox(evento));
+    }
+
+    /**
+     * Registra varios eventos de pedido; los INSERT se agrupan en lotes JDBC.
+     *
+     * @param eventos los eventos a publicar, en el orden en que se deben publicar
+     */
+    public void addAll(List<PedidoEventoMensaje> eventos) {
+        outboxRepository.saveAll(eventos.stream().map(PedidoOutboxService::toOutbox).toList());
+    }
+
+    private static PedidoOutbox toOutbox(PedidoEventoMensaje evento) {
+        return new PedidoOutbox(evento.tipo().getTopic(), String.valueOf(evento.pedidoId()), PedidoEventoCodec.encode(evento));
+    }
+}
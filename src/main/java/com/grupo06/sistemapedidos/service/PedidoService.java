@@ -1,19 +1,47 @@
 package com.grupo06.sistemapedidos.service;
 
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
+import com.grupo06.sistemapedidos.dto.ExceptionDTO;
+import com.grupo06.sistemapedidos.dto.LineaPedidoDTO;
+import com.grupo06.sistemapedidos.dto.PedidoBatchResultDTO;
 import com.grupo06.sistemapedidos.dto.PedidoDTO;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
 import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
 import com.grupo06.sistemapedidos.exception.RequestException;
 import com.grupo06.sistemapedidos.mapper.PedidoMapper;
 import com.grupo06.sistemapedidos.model.Pedido;
+import com.grupo06.sistemapedidos.model.PedidoLinea;
 import com.grupo06.sistemapedidos.model.Producto;
 import com.grupo06.sistemapedidos.model.Usuario;
 import com.grupo06.sistemapedidos.repository.PedidoRepository;
+import com.grupo06.sistemapedidos.repository.PedidoRepository.PedidoLineaFila;
+import com.grupo06.sistemapedidos.repository.PedidoRepository.PedidoResumen;
 import com.grupo06.sistemapedidos.repository.ProductRepository;
 import com.grupo06.sistemapedidos.repository.UserRepository;
+import com.grupo06.sistemapedidos.utilities.CursorUtils;
+import com.grupo06.sistemapedidos.utilities.ETagUtils;
 
 /**
  * Clase de servicio para manejar la lógica de negocio relacionada con los pedidos.
@@ -34,14 +62,20 @@ public class PedidoService {
     private final PedidoRepository pedidoRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
-    private final KafkaProducerService kafkaProducerService;
+    private final PedidoOutboxService outboxService;
+    private final StockService stockService;
 
-    public PedidoService (PedidoMapper pedidoMapper, PedidoRepository pedidoRepository, UserRepository userRepository, ProductRepository productRepository, KafkaProducerService kafkaProducerService) {
+    // Número máximo de pedidos por lote en POST /api/pedido/batch
+    @Value("${pedidos.batch.max-size:5000}")
+    private int batchMaxSize;
+
+    public PedidoService (PedidoMapper pedidoMapper, PedidoRepository pedidoRepository, UserRepository userRepository, ProductRepository productRepository, PedidoOutboxService outboxService, StockService stockService) {
         this.pedidoRepository = pedidoRepository;
         this.pedidoMapper = pedidoMapper;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
-        this.kafkaProducerService = kafkaProducerService;
+        this.outboxService = outboxService;
+        this.stockService = stockService;
     }
 
     /**
@@ -50,6 +84,7 @@ public class PedidoService {
      * @param id ID del pedido a obtener
      * @return PedidoDTO DTO para la transferencia de pedidos, pedido encontrado
      */
+    @Transactional(readOnly = true)
     public PedidoDTO getPedidoById(int id)  {
         try {
             Optional<Pedido> newPedidoOptional = pedidoRepository.findById(id);
@@ -66,6 +101,7 @@ public class PedidoService {
         }
     }
 
+    @Transactional(readOnly = true)
     public PedidoDTO getPedidoByNombre(String nombre)  {
         try {
             Optional<Pedido> newPedidoOptional = pedidoRepository.findById(1);
@@ -81,30 +117,44 @@ public class PedidoService {
     }
     
      /**
-     * Obtiene todos los pedidos.
+     * Obtiene todos los pedidos paginados por cursor.
      * 
-     * @return List<PedidoDTO> DTO para la transferencia de pedidos
+     * @param cursor cursor opaco devuelto en la página anterior, nulo para la primera página
+     * @param size tamaño de página, por defecto {@link CursorUtils#DEFAULT_PAGE_SIZE} y como máximo {@link CursorUtils#MAX_PAGE_SIZE}
+     * @param sort ordenación por ID de la primera página: "asc" o "desc"
+     * @return CursorPageDTO<PedidoDTO> página de pedidos con el cursor de la página siguiente
      */
-    public List<PedidoDTO> getAllPedidos()  {
+    @Transactional(readOnly = true)
+    public CursorPageDTO<PedidoDTO> getAllPedidos(String cursor, Integer size, String sort) {
         try {
-        List<Pedido> listaPedidos = pedidoRepository.findAll();
-        List<PedidoDTO> listaPedidosDTO = listaPedidos.stream()
-                .map(pedidoMapper::toDTO)
-                .toList();
-
-        return listaPedidosDTO;
+            CursorUtils.Cursor posicion = CursorUtils.decode(cursor, sort);
+            int pageSize = CursorUtils.pageSize(size);
+            // Se pide un elemento más para saber si existe una página siguiente
+            Limit limit = Limit.of(pageSize + 1);
+            List<PedidoResumen> listaPedidos = posicion.descending()
+                    ? pedidoRepository.findByIdLessThanOrderByIdDesc(posicion.boundary(), limit)
+                    : pedidoRepository.findByIdGreaterThanOrderByIdAsc(posicion.boundary(), limit);
+            // Una sola consulta para las líneas de toda la página, en lugar de una por pedido
+            Map<Integer, List<LineaPedidoDTO>> lineasPorPedido = getLineasPorPedido(
+                    listaPedidos.stream().map(PedidoResumen::getId).toList());
+            return CursorUtils.toPage(listaPedidos, pageSize, posicion, PedidoResumen::getId,
+                    resumen -> pedidoMapper.toDTO(resumen.getUsuarioId(),
+                            lineasPorPedido.getOrDefault(resumen.getId(), List.of())));
+        } catch (RequestException e) {
+            throw e;
         } catch (Exception e) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
-        
     }
 
       /**
-     * Crea un nuevo pedido.
+     * Crea un nuevo pedido, reserva el stock de sus productos y suma su importe al total gastado del usuario.
+     * Si no hay stock suficiente de algún producto no se crea el pedido ni se reserva nada.
      * 
      * @param pedidoDTO DTO para la transferencia de pedidos
      * @return PedidoDTO DTO para la transferencia de pedidos
      */
+    @Transactional
     public PedidoDTO postPedido(PedidoDTO pedidoDTO) {
         try {
             // Verificamos si el usuario que hace la peticion ya hizo un pedido
@@ -113,18 +163,21 @@ public class PedidoService {
 
             // Obtenemos el usuario de la fk
             Usuario usuarioEntity = getUsuarioEntityByFK(pedidoDTO);
-            List<Producto> listaProductos = getListProductosFK(pedidoDTO);
+            SortedMap<Integer, Integer> cantidades = getCantidades(pedidoDTO);
+            Map<Integer, Producto> productos = getProductosFK(cantidades.keySet());
+            stockService.reserve(cantidades);
 
-            // Devemos pasarle el usuario asoicado al pedido y la lista de productos
-            Pedido newPedido = pedidoMapper.toEntity(usuarioEntity, listaProductos);
+            // Devemos pasarle el usuario asoicado al pedido y sus líneas, con el precio actual de cada producto
+            Pedido newPedido = pedidoMapper.toEntity(usuarioEntity, cantidades, productos);
             Pedido pedidoSave = pedidoRepository.save(newPedido);
+            userRepository.addTotalSpent(usuarioEntity.getId(), importe(pedidoSave));
 
-             // Añadmir un evento al topic de Kafka
-            kafkaProducerService.sendOrderCreated("Nuevo pedido de usuario " + pedidoDTO.getUsuario() + " con productos " + pedidoDTO.getProductos());
+            // El evento se guarda en el outbox en la misma transacción, se publica en Kafka después de confirmarla
+            outboxService.add(pedidoMapper.toEvento(PedidoEventoTipo.CREADO, pedidoSave));
 
             return pedidoMapper.toDTO(pedidoSave);
         } catch (RequestException e) {
-            // Tanto getUsuarioEntityByFK como getListProductosFK pueden lanzar una RequestException
+            // Tanto getUsuarioEntityByFK como getProductosFK pueden lanzar una RequestException
             // si no se encuentra el usuario o el producto, por lo que la excepción se lanza y se maneja aquí
             throw e;
         } catch (Exception e) {
@@ -133,42 +186,220 @@ public class PedidoService {
     }
 
     /**
-     * Actualiza un pedido existente.
+     * Crea un lote de pedidos en una sola transacción y devuelve el resultado de cada uno.
+     *
+     * A diferencia de {@link #postPedido(PedidoDTO)}, un pedido que no se puede crear no hace fallar al resto:
+     * su resultado lleva el error que habría devuelto por separado. Los usuarios, los pedidos existentes y los
+     * productos de todo el lote se consultan con una consulta IN cada uno, el stock se reserva con un UPDATE por
+     * producto distinto, los pedidos y sus líneas se insertan en lotes JDBC, el total gastado de todos los usuarios
+     * se actualiza con una sola sentencia y los eventos se guardan en el outbox con un lote JDBC.
+     *
+     * @param pedidos pedidos del lote, como máximo {@code pedidos.batch.max-size}
+     * @return List<PedidoBatchResultDTO> resultado de cada pedido, en el mismo orden que el lote
+     */
+    @Transactional
+    public List<PedidoBatchResultDTO> postPedidos(List<PedidoDTO> pedidos) {
+        try {
+            if (pedidos.size() > batchMaxSize)
+                throw new RequestException(ApiError.BATCH_TOO_LARGE);
+
+            PedidoBatchResultDTO[] resultados = new PedidoBatchResultDTO[pedidos.size()];
+            List<SortedMap<Integer, Integer>> cantidadesPorPedido = new ArrayList<>(pedidos.size());
+            Set<Integer> usuarioIds = new HashSet<>();
+            Set<Integer> productoIds = new HashSet<>();
+            for (int i = 0; i < pedidos.size(); i++) {
+                PedidoDTO pedidoDTO = pedidos.get(i);
+                SortedMap<Integer, Integer> cantidades = pedidoDTO != null ? pedidoMapper.toCantidades(pedidoDTO) : null;
+                cantidadesPorPedido.add(cantidades);
+                if (cantidades == null || pedidoDTO.getUsuario() == null) {
+                    resultados[i] = batchError(i, ApiError.INVALID_FORMAT, null);
+                    continue;
+                }
+                usuarioIds.add(pedidoDTO.getUsuario());
+                productoIds.addAll(cantidades.keySet());
+            }
+
+            // Una consulta por tabla para todo el lote
+            Set<Integer> usuariosExistentes = usuarioIds.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingIds(usuarioIds));
+            Set<Integer> usuariosConPedido = usuarioIds.isEmpty() ? new HashSet<>() : new HashSet<>(pedidoRepository.findUsuarioIdsWithPedido(usuarioIds));
+            Map<Integer, Producto> productosPorId = productRepository.findAllById(productoIds).stream()
+                    .collect(Collectors.toMap(Producto::getId, Function.identity()));
+
+            // Se comprueba cada pedido y se le asigna stock sobre una copia del stock leído, en el orden del lote
+            Map<Integer, Integer> stockRestante = new HashMap<>();
+            productosPorId.forEach((id, producto) -> stockRestante.put(id, producto.getStock()));
+            Map<Integer, SortedMap<Integer, Integer>> aceptados = new LinkedHashMap<>();
+            for (int i = 0; i < pedidos.size(); i++) {
+                if (resultados[i] != null)
+                    continue;
+                PedidoDTO pedidoDTO = pedidos.get(i);
+                if (!usuariosExistentes.contains(pedidoDTO.getUsuario())) {
+                    resultados[i] = batchError(i, ApiError.USER_NOT_FOUND, null);
+                    continue;
+                }
+                // Cada usuario solo puede tener un pedido, también dentro del propio lote
+                if (!usuariosConPedido.add(pedidoDTO.getUsuario())) {
+                    resultados[i] = batchError(i, ApiError.USER_ALREADY_HAS_ORDER, null);
+                    continue;
+                }
+                SortedMap<Integer, Integer> cantidades = cantidadesPorPedido.get(i);
+                Map<String, String> noEncontrados = new LinkedHashMap<>();
+                Map<String, String> sinStock = new LinkedHashMap<>();
+                cantidades.forEach((id, cantidad) -> {
+                    if (!productosPorId.containsKey(id))
+                        noEncontrados.put(String.valueOf(id), ApiError.PRODUCT_NOT_FOUND.getDetail());
+                    else if (stockRestante.get(id) < cantidad)
+                        sinStock.put(String.valueOf(id), ApiError.INSUFFICIENT_STOCK.getDetail());
+                });
+                if (!noEncontrados.isEmpty() || !sinStock.isEmpty()) {
+                    usuariosConPedido.remove(pedidoDTO.getUsuario());
+                    resultados[i] = noEncontrados.isEmpty()
+                            ? batchError(i, ApiError.INSUFFICIENT_STOCK, sinStock)
+                            : batchError(i, ApiError.PRODUCT_NOT_FOUND, noEncontrados);
+                    continue;
+                }
+                cantidades.forEach((id, cantidad) -> stockRestante.merge(id, -cantidad, Integer::sum));
+                aceptados.put(i, cantidades);
+            }
+
+            // Se reservan las unidades de todos los pedidos aceptados con un UPDATE por producto. Si otra transacción
+            // ha consumido stock desde la lectura, se rechazan los pedidos con ese producto y se devuelve lo demás que reservaron
+            Map<Integer, Integer> totales = new HashMap<>();
+            aceptados.values().forEach(cantidades -> cantidades.forEach((id, cantidad) -> totales.merge(id, cantidad, Integer::sum)));
+            Set<Integer> agotados = stockService.reserveAvailable(totales);
+            if (!agotados.isEmpty()) {
+                Map<Integer, Integer> devolver = new HashMap<>();
+                aceptados.entrySet().removeIf(aceptado -> {
+                    Map<String, String> sinStock = new LinkedHashMap<>();
+                    aceptado.getValue().keySet().stream().filter(agotados::contains)
+                            .forEach(id -> sinStock.put(String.valueOf(id), ApiError.INSUFFICIENT_STOCK.getDetail()));
+                    if (sinStock.isEmpty())
+                        return false;
+                    aceptado.getValue().forEach((id, cantidad) -> {
+                        if (!agotados.contains(id))
+                            devolver.merge(id, cantidad, Integer::sum);
+                    });
+                    resultados[aceptado.getKey()] = batchError(aceptado.getKey(), ApiError.INSUFFICIENT_STOCK, sinStock);
+                    return true;
+                });
+                stockService.release(devolver);
+            }
+
+            // Los INSERT de pedidos y de pedido_linea se agrupan en lotes JDBC (IDs de secuencia pooled)
+            List<Pedido> nuevos = new ArrayList<>(aceptados.size());
+            aceptados.forEach((i, cantidades) -> nuevos.add(pedidoMapper.toEntity(
+                    userRepository.getReferenceById(pedidos.get(i).getUsuario()), cantidades, productosPorId)));
+            pedidoRepository.saveAll(nuevos);
+            pedidoRepository.flush();
+            if (!nuevos.isEmpty())
+                userRepository.addTotalSpentOfPedidos(nuevos.stream().map(Pedido::getId).toList());
+
+            List<PedidoEventoMensaje> eventos = new ArrayList<>(nuevos.size());
+            int n = 0;
+            for (Integer i : aceptados.keySet()) {
+                Pedido pedido = nuevos.get(n++);
+                resultados[i] = new PedidoBatchResultDTO(i, HttpStatus.CREATED.value(), pedido.getId(), pedidoMapper.toDTO(pedido), null);
+                eventos.add(pedidoMapper.toEvento(PedidoEventoTipo.CREADO, pedido));
+            }
+            if (!eventos.isEmpty())
+                outboxService.addAll(eventos);
+
+            return Arrays.asList(resultados);
+        } catch (RequestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Construye el resultado de un pedido del lote que no se ha creado, con el mismo cuerpo de error que devolvería la API.
+     * No se lanza una RequestException por cada pedido rechazado para no registrar un error en el log por cada uno.
+     */
+    private static PedidoBatchResultDTO batchError(int index, ApiError apiError, Map<String, String> reasons) {
+        ExceptionDTO error = new ExceptionDTO(apiError.getTitle(), apiError.getDetail(), apiError.getStatus().value(),
+                reasons, ZonedDateTime.now(ZoneId.of("Z")).toLocalDateTime());
+        return new PedidoBatchResultDTO(index, apiError.getStatus().value(), null, null, error);
+    }
+
+    /**
+     * Actualiza un pedido existente y ajusta el stock: se reservan los productos añadidos y se devuelven los retirados.
+     * La diferencia de importe se aplica al total gastado del usuario.
      * 
+     * @param id ID del pedido a actualizar
      * @param pedidoDTO DTO para la transferencia de pedidos
+     * @param version versión esperada del pedido (cabecera If-Match), nula para no comprobarla
      * @return PedidoDTO DTO para la transferencia de pedidos
      */
-    public PedidoDTO putPedidoById(PedidoDTO pedidoDTO) {
+    @Transactional
+    public PedidoDTO putPedidoById(Integer id, PedidoDTO pedidoDTO, Integer version) {
         try {
-            String eventMessage = "Pedido modificado de usuario " + pedidoDTO.getUsuario() + " con productos " + pedidoDTO.getProductos();
+            Pedido pedido = pedidoRepository.findById(id)
+                    .orElseThrow(() -> new RequestException(ApiError.PEDIDO_NOT_FOUND));
+            ETagUtils.checkVersion(version, pedido.getVersion());
+            // Si el pedido cambia de usuario, el nuevo usuario no puede tener ya otro pedido
+            if(!pedido.getUsuario().getId().equals(pedidoDTO.getUsuario()) && pedidoRepository.existsByUsuarioId(pedidoDTO.getUsuario()))
+                throw new RequestException(ApiError.USER_ALREADY_HAS_ORDER);
             
             Usuario usuarioEntity = getUsuarioEntityByFK(pedidoDTO);
-            List<Producto> listaProductos = getListProductosFK(pedidoDTO);
-            
-            Pedido newPedido = pedidoMapper.toEntity(usuarioEntity, listaProductos);
-            Pedido pedidoSave = pedidoRepository.save(newPedido);
+            SortedMap<Integer, Integer> cantidades = getCantidades(pedidoDTO);
+            SortedMap<Integer, Integer> anteriores = pedidoMapper.toCantidades(pedido.getLineas());
+            // Solo hace falta leer los productos que no estaban ya en el pedido
+            Set<Integer> nuevosProductos = new HashSet<>(cantidades.keySet());
+            nuevosProductos.removeAll(anteriores.keySet());
+            Map<Integer, Producto> productos = getProductosFK(nuevosProductos);
+            stockService.adjust(anteriores, cantidades);
+
+            Integer usuarioAnterior = pedido.getUsuario().getId();
+            int importeAnterior = importe(pedido);
+            pedido.setUsuario(usuarioEntity);
+            pedidoMapper.updateLineas(pedido, cantidades, productos);
+            int importeNuevo = importe(pedido);
+            // Se resta el importe anterior al usuario anterior y se suma el nuevo al nuevo (una sola sentencia si no cambia)
+            if (usuarioAnterior.equals(usuarioEntity.getId())) {
+                if (importeNuevo != importeAnterior)
+                    userRepository.addTotalSpent(usuarioAnterior, importeNuevo - importeAnterior);
+            } else {
+                userRepository.addTotalSpent(usuarioAnterior, -importeAnterior);
+                userRepository.addTotalSpent(usuarioEntity.getId(), importeNuevo);
+            }
 
-            kafkaProducerService.sendModificationNotification(eventMessage);
+            Pedido pedidoSave = pedidoRepository.saveAndFlush(pedido);
+
+            outboxService.add(pedidoMapper.toEvento(PedidoEventoTipo.MODIFICADO, pedidoSave));
             return pedidoMapper.toDTO(pedidoSave);
+        } catch (RequestException e) {
+            throw e;
+        } catch (OptimisticLockingFailureException e) {
+            throw new RequestException(ApiError.CONCURRENT_MODIFICATION);
         } catch (Exception e) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
     }
     
     /**
-     * Elimina un pedido por su id.
+     * Elimina un pedido por su id, devuelve al stock las unidades de sus productos y resta su importe del total gastado del usuario.
      * 
      * @param id ID del pedido a eliminar
      */
+    @Transactional
     public void deletePedidoById(Integer id){
         try {
             Optional<Pedido> newPedidoOptional = pedidoRepository.findById(id);
             if(!newPedidoOptional.isPresent())
                 throw new RequestException(ApiError.PEDIDO_NOT_FOUND);
 
-            kafkaProducerService.sendCancellationNotification("Pedido eliminado con id " + id);
-            // Eliminar el pedido de la base de datos
-            pedidoRepository.deleteById(id);
+            Pedido pedido = newPedidoOptional.get();
+            stockService.release(pedidoMapper.toCantidades(pedido.getLineas()));
+            userRepository.addTotalSpent(pedido.getUsuario().getId(), -importe(pedido));
+
+            // Eliminar el pedido de la base de datos; el evento se guarda después del DELETE, con la fila ya bloqueada
+            pedidoRepository.delete(pedido);
+            pedidoRepository.flush();
+            // El evento de cancelación lleva las líneas que tenía el pedido
+            outboxService.add(pedidoMapper.toEvento(PedidoEventoTipo.CANCELADO, pedido));
+        } catch (RequestException e) {
+            throw e;
         } catch (Exception e) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
@@ -176,22 +407,72 @@ public class PedidoService {
     }
 
     /**
-     * Método para obtener todos los productos asicaidos a traves de una lista de IDs
+     * Calcula el importe de un pedido: la suma de unidades por precio de compra de sus líneas.
+     *
+     * @param pedido pedido con sus líneas
+     * @return importe total del pedido
+     */
+    private static int importe(Pedido pedido) {
+        return pedido.getLineas().stream().mapToInt(PedidoLinea::getImporte).sum();
+    }
+
+    /**
+     * Obtiene las unidades por producto del pedido, con las líneas y la lista de IDs del formato antiguo.
+     *
+     * @param pedidoDTO DTO del pedido
+     * @return unidades por ID de producto ordenadas por ID
+     * @throws RequestException con {@link ApiError#INVALID_FORMAT} si no hay productos ni líneas o alguna línea no es válida
+     */
+    private SortedMap<Integer, Integer> getCantidades(PedidoDTO pedidoDTO) {
+        SortedMap<Integer, Integer> cantidades = pedidoMapper.toCantidades(pedidoDTO);
+        if (cantidades == null)
+            throw new RequestException(ApiError.INVALID_FORMAT);
+        return cantidades;
+    }
+
+    /**
+     * Obtiene las líneas de varios pedidos con una única consulta a la tabla de líneas.
+     *
+     * @param pedidoIds IDs de los pedidos
+     * @return Map con el ID del pedido como clave y la lista de sus líneas como valor
+     */
+    private Map<Integer, List<LineaPedidoDTO>> getLineasPorPedido(List<Integer> pedidoIds) {
+        if (pedidoIds.isEmpty())
+            return Map.of();
+        return pedidoRepository.findLineasByPedidoIdIn(pedidoIds).stream()
+                .collect(Collectors.groupingBy(PedidoLineaFila::getPedidoId, Collectors.mapping(
+                        fila -> new LineaPedidoDTO(fila.getProductoId(), fila.getCantidad(), fila.getPrecioUnitario()),
+                        Collectors.toList())));
+    }
+
+    /**
+     * Método para obtener todos los productos asicaidos a traves de sus IDs
+     * Los productos se obtienen con una única consulta IN y si falta algún producto se informa de todos los IDs
+     * que no existen a la vez.
      * 
-     * @param pedidoDTO DTO para la transferencia de pedidos, se compone de el id del usuario y una lista de ids de productos
-     * @return List<Producto> lista de productos asociados al pedido
+     * @param idsProductos IDs de los productos del pedido
+     * @return Map<Integer, Producto> productos asociados al pedido por ID
      */
-    public List<Producto> getListProductosFK(PedidoDTO pedidoDTO) {
+    public Map<Integer, Producto> getProductosFK(Collection<Integer> idsProductos) {
         try {
-            List<Producto> listaProductos = new ArrayList<>();
-            for(Integer idPedido : pedidoDTO.getProductos()){
-                Optional<Producto> newProducto = productRepository.findById(idPedido);
-                // Verificamos que el producto existe, si no existe lanzamos una excepción
-                if(!newProducto.isPresent())
-                    throw new RequestException(ApiError.PRODUCT_NOT_FOUND);
-                listaProductos.add(newProducto.get());
+            if (idsProductos.isEmpty())
+                return Map.of();
+            Map<Integer, Producto> productosPorId = productRepository.findAllById(idsProductos).stream()
+                    .collect(Collectors.toMap(Producto::getId, Function.identity()));
+
+            // Verificamos que todos los productos existen, si alguno no existe lanzamos una excepción con todos los que faltan
+            Map<String, String> productosNoEncontrados = new LinkedHashMap<>();
+            for(Integer idProducto : idsProductos){
+                if(!productosPorId.containsKey(idProducto))
+                    productosNoEncontrados.put(String.valueOf(idProducto), ApiError.PRODUCT_NOT_FOUND.getDetail());
             }
-            return listaProductos;
+            if(!productosNoEncontrados.isEmpty())
+                throw new RequestException(
+                    ApiError.PRODUCT_NOT_FOUND.getTitle(),
+                    ApiError.PRODUCT_NOT_FOUND.getDetail(),
+                    ApiError.PRODUCT_NOT_FOUND.getStatus(),
+                    productosNoEncontrados);
+            return productosPorId;
         } catch (RequestException e) {
             throw e;
         } catch (Exception e) {
@@ -0,0 +1,142 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.grupo06.sistemapedidos.mapper.ProductMapper;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+import com.grupo06.sistemapedidos.repository.ProductRepository.ProductoSlug;
+import com.grupo06.sistemapedidos.utilities.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Índice en memoria del catálogo de productos, por slug (nombre normalizado con {@link ProductMapper#toSlug}) y por ID.
+ *
+ * Resuelve un nombre a su ID sin consultar la base de datos por nombre. Los datos del producto (stock, precio...)
+ * no se guardan aquí: se leen por ID, que normalmente sale de la caché de segundo nivel. Los mapas son
+ * {@link ConcurrentHashMap}, así que las lecturas no bloquean.
+ *
+ * Se carga al arrancar y ProductService lo actualiza después de confirmar cada alta, modificación o borrado.
+ * ProductImportService lo recarga entero después de cada importación masiva. Los cambios hechos por otras
+ * instancias no llegan aquí, así que el índice es solo un atajo: si no tiene el nombre, o el producto leído ya no
+ * se llama así, se busca por nombre en la base de datos y se corrige la entrada. La unicidad del nombre la
+ * garantiza el índice único de la tabla PRODUCTO, no este catálogo.
+ */
+@Service
+public class ProductCatalog {
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, Integer> idsBySlug = new ConcurrentHashMap<>();
+    private final Map<Integer, String> slugsById = new ConcurrentHashMap<>();
+
+    public ProductCatalog(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        // Transacción de escritura para leer del principal, igual que RoleRegistry
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Carga el índice al iniciar la aplicación.
+     */
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Vuelve a cargar el índice completo desde la base de datos, por ejemplo tras una importación masiva.
+     * No se vacía antes de cargar: se añaden los productos leídos y después se quitan los que ya no existen,
+     * así que mientras se recarga las búsquedas siguen encontrando los productos que había.
+     */
+    public synchronized void reload() {
+        Set<Integer> ids = new HashSet<>();
+        for (ProductoSlug producto : transactionTemplate.execute(status -> productRepository.findAllSlugs())) {
+            put(producto.getId(), producto.getName());
+            ids.add(producto.getId());
+        }
+        for (Integer id : Set.copyOf(slugsById.keySet()))
+            if (!ids.contains(id))
+                remove(id);
+    }
+
+    /**
+     * Busca un producto por su nombre, que se normaliza antes de buscar. Si el índice lo tiene se lee por ID;
+     * si no, o si la entrada ha quedado antigua, se busca por nombre en la base de datos.
+     *
+     * @param name nombre del producto
+     * @return Optional con el producto, o vacío si no existe
+     */
+    public Optional<Producto> findByName(String name) {
+        String slug = ProductMapper.toSlug(name);
+        Integer id = idsBySlug.get(slug);
+        if (id != null) {
+            Optional<Producto> producto = productRepository.findById(id);
+            if (producto.isPresent() && slug.equals(producto.get().getName()))
+                return producto;
+            // Borrado o renombrado en otra instancia
+            evict(slug, id);
+        }
+        Optional<Producto> producto = productRepository.findByName(slug);
+        producto.ifPresent(encontrado -> put(encontrado.getId(), encontrado.getName()));
+        return producto;
+    }
+
+    /**
+     * Indica si ya existe un producto con ese nombre (normalizado).
+     *
+     * @param name nombre del producto
+     * @return true si existe
+     */
+    public boolean existsByName(String name) {
+        return findByName(name).isPresent();
+    }
+
+    /**
+     * Registra o actualiza un producto cuando se confirme la transacción actual.
+     * Si el producto cambia de nombre se elimina el slug anterior.
+     *
+     * @param id ID del producto
+     * @param name nombre del producto
+     */
+    public void registerAfterCommit(Integer id, String name) {
+        TransactionUtils.afterCommit(() -> put(id, name));
+    }
+
+    /**
+     * Elimina un producto del índice cuando se confirme la transacción actual.
+     *
+     * @param id ID del producto
+     */
+    public void removeAfterCommit(Integer id) {
+        TransactionUtils.afterCommit(() -> remove(id));
+    }
+
+    private synchronized void put(Integer id, String name) {
+        String slug = ProductMapper.toSlug(name);
+        String previous = slugsById.put(id, slug);
+        // Se publica el nuevo slug antes de retirar el anterior, un lector concurrente nunca deja de encontrar el producto
+        idsBySlug.put(slug, id);
+        if (previous != null && !previous.equals(slug))
+            idsBySlug.remove(previous, id);
+    }
+
+    private synchronized void evict(String slug, Integer id) {
+        idsBySlug.remove(slug, id);
+        slugsById.remove(id, slug);
+    }
+
+    private synchronized void remove(Integer id) {
+        String slug = slugsById.remove(id);
+        if (slug != null)
+            idsBySlug.remove(slug, id);
+    }
+}
@@ -0,0 +1,449 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grupo06.sistemapedidos.dto.ImportReportDTO;
+import com.grupo06.sistemapedidos.dto.ProductDTO;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.mapper.ProductMapper;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.utilities.TransactionUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Servicio de importación masiva de productos desde CSV o NDJSON.
+ *
+ * El fichero se lee línea a línea y cada fila se valida con las restricciones de {@link ProductDTO} y se normaliza
+ * con {@link ProductMapper#toSlug}, igual que en el alta individual. Las filas válidas no se acumulan en memoria:
+ * <ul>
+ *   <li>En PostgreSQL se envían con el protocolo COPY a una tabla temporal, y desde ella se insertan (y actualizan,
+ *   si se pide upsert) todas de una vez con SQL sobre conjuntos.</li>
+ *   <li>En el resto de bases de datos (H2) se insertan en lotes JDBC de {@code pedidos.import.batch-size} filas,
+ *   comprobando los duplicados de cada lote con una sola consulta.</li>
+ * </ul>
+ * Los productos se consideran duplicados si tienen el mismo nombre normalizado. Toda la importación se hace en una
+ * transacción: si falla la escritura no se importa nada. Los IDs se reservan de la secuencia producto_seq por bloques,
+ * igual que hace Hibernate, así que no chocan con los productos creados por la API durante la importación.
+ */
+@Service
+public class ProductImportService {
+    /**
+     * Debe coincidir con el allocationSize de producto_seq en {@link Producto}: cada valor de la secuencia reserva un bloque de IDs.
+     */
+    private static final int ID_ALLOCATION_SIZE = 50;
+    private static final String SEQUENCE = "public.producto_seq";
+    private static final List<String> CSV_COLUMNS = List.of("name", "stock", "price", "description");
+
+    private final EntityManager entityManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ProductCatalog productCatalog;
+
+    // Filas por lote JDBC en las bases de datos sin COPY
+    @Value("${pedidos.import.batch-size:1000}")
+    private int batchSize;
+
+    public ProductImportService(EntityManager entityManager, EntityManagerFactory entityManagerFactory, ObjectMapper objectMapper,
+            Validator validator, ProductCatalog productCatalog) {
+        this.entityManager = entityManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.productCatalog = productCatalog;
+    }
+
+    /**
+     * Importa los productos del fichero.
+     *
+     * @param in contenido del fichero, no se cierra al terminar
+     * @param ndjson true si el fichero es NDJSON (un producto JSON por línea), false si es CSV con cabecera name,stock,price,description
+     * @param upsert true para actualizar stock, precio y descripción de los productos que ya existen, false para ignorarlos
+     * @return ImportReportDTO resumen de la importación
+     * @throws IOException si falla la lectura del fichero
+     */
+    @Transactional
+    public ImportReportDTO importProductos(InputStream in, boolean ndjson, boolean upsert) throws IOException {
+        long inicio = System.nanoTime();
+        ImportReportDTO report = new ImportReportDTO();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Session session = entityManager.unwrap(Session.class);
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        // Los cambios pendientes de Hibernate se escriben antes de trabajar directamente con la conexión
+        session.flush();
+        try {
+            session.doWork(connection -> {
+                IdAllocator ids = new IdAllocator(connection, dialect.getSequenceSupport().getSequenceNextValString(SEQUENCE));
+                ProductoSink sink = dialect instanceof PostgreSQLDialect
+                        ? new CopySink(connection, ids, upsert, report)
+                        : new BatchSink(connection, ids, upsert, report);
+                try {
+                    readRows(reader, ndjson, report, sink);
+                    sink.finish();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    sink.close();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // El SQL directo no pasa por Hibernate: se invalidan las cachés de productos y se recarga el catálogo al confirmar
+        TransactionUtils.afterCommit(() -> {
+            SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+            sessionFactory.getCache().evictEntityData(Producto.class);
+            sessionFactory.getCache().evictQueryRegions();
+            productCatalog.reload();
+        });
+        report.setElapsedMs((System.nanoTime() - inicio) / 1_000_000);
+        return report;
+    }
+
+    /**
+     * Lee el fichero línea a línea y envía al destino cada fila válida, ya normalizada.
+     */
+    private void readRows(BufferedReader reader, boolean ndjson, ImportReportDTO report, ProductoSink sink) throws IOException, SQLException {
+        long linea = 0;
+        Map<String, Integer> columnas = null;
+        String texto;
+        while ((texto = reader.readLine()) != null) {
+            linea++;
+            if (texto.isBlank())
+                continue;
+            if (!ndjson && columnas == null) {
+                columnas = parseHeader(texto);
+                continue;
+            }
+            report.setRead(report.getRead() + 1);
+
+            ProductDTO producto;
+            try {
+                producto = ndjson ? objectMapper.readValue(texto, ProductDTO.class) : parseCsvRow(texto, columnas);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                report.reject(linea, ApiError.INVALID_FORMAT.getDetail());
+                continue;
+            }
+            Set<ConstraintViolation<ProductDTO>> errores = validator.validate(producto);
+            if (!errores.isEmpty()) {
+                report.reject(linea, errores.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+                continue;
+            }
+            producto.setName(ProductMapper.toSlug(producto.getName()));
+            sink.add(linea, producto);
+        }
+    }
+
+    /**
+     * Obtiene la posición de cada columna a partir de la cabecera del CSV.
+     */
+    private Map<String, Integer> parseHeader(String cabecera) {
+        List<String> nombres = parseCsvLine(cabecera);
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < nombres.size(); i++)
+            columnas.put(nombres.get(i).trim().toLowerCase(), i);
+        if (!columnas.keySet().containsAll(CSV_COLUMNS))
+            throw new RequestException(ApiError.INVALID_FORMAT, ApiError.INVALID_FORMAT.getTitle(),
+                    "CSV header must contain the columns " + String.join(",", CSV_COLUMNS));
+        return columnas;
+    }
+
+    private ProductDTO parseCsvRow(String texto, Map<String, Integer> columnas) {
+        List<String> valores = parseCsvLine(texto);
+        if (valores.size() < columnas.size())
+            throw new IllegalArgumentException("Missing columns");
+        return new ProductDTO(
+                valores.get(columnas.get("name")),
+                Integer.valueOf(valores.get(columnas.get("stock")).trim()),
+                Integer.valueOf(valores.get(columnas.get("price")).trim()),
+                valores.get(columnas.get("description")),
+                null);
+    }
+
+    /**
+     * Separa una línea CSV en campos. Admite campos entre comillas con comas y comillas dobladas ("")
+     * dentro, pero no saltos de línea dentro de un campo.
+     */
+    static List<String> parseCsvLine(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    /**
+     * Escribe un valor como campo CSV entre comillas, para el formato CSV de COPY.
+     */
+    private static void appendCsv(StringBuilder sb, String valor) {
+        sb.append('"').append(valor.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * Reserva IDs de producto_seq por bloques con la misma regla que el optimizador pooled de Hibernate:
+     * cada valor V de la secuencia reserva los IDs (V - allocationSize, V].
+     */
+    static class IdAllocator {
+        private final Connection connection;
+        private final String nextValSql;
+        private int next;
+        private int hi;
+
+        IdAllocator(Connection connection, String nextValSql) {
+            this.connection = connection;
+            this.nextValSql = nextValSql;
+        }
+
+        int next() throws SQLException {
+            if (next == 0 || next > hi) {
+                try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(nextValSql)) {
+                    rs.next();
+                    hi = rs.getInt(1);
+                }
+                // Igual que Hibernate, un valor menor que el bloque (el valor inicial 1) solo reserva ese ID
+                next = hi < ID_ALLOCATION_SIZE ? hi : hi - ID_ALLOCATION_SIZE + 1;
+            }
+            return next++;
+        }
+    }
+
+    /**
+     * Destino de las filas válidas de la importación.
+     */
+    private interface ProductoSink {
+        void add(long linea, ProductDTO producto) throws SQLException;
+
+        void finish() throws SQLException;
+
+        void close();
+    }
+
+    /**
+     * Importación en PostgreSQL: COPY a una tabla temporal y después inserción y actualización con SQL sobre conjuntos.
+     */
+    private static class CopySink implements ProductoSink {
+        private final Connection connection;
+        private final IdAllocator ids;
+        private final boolean upsert;
+        private final ImportReportDTO report;
+        private final CopyIn copyIn;
+        private final StringBuilder fila = new StringBuilder();
+
+        CopySink(Connection connection, IdAllocator ids, boolean upsert, ImportReportDTO report) throws SQLException {
+            this.connection = connection;
+            this.ids = ids;
+            this.upsert = upsert;
+            this.report = report;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE producto_import (linea bigint, id_producto integer, name text, "
+                        + "stock integer, price integer, description text) ON COMMIT DROP");
+            }
+            this.copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY producto_import FROM STDIN WITH (FORMAT csv)");
+        }
+
+        @Override
+        public void add(long linea, ProductDTO producto) throws SQLException {
+            fila.setLength(0);
+            fila.append(linea).append(',').append(ids.next()).append(',');
+            appendCsv(fila, producto.getName());
+            fila.append(',').append(producto.getStock()).append(',').append(producto.getPrice()).append(',');
+            appendCsv(fila, producto.getDescription());
+            fila.append('\n');
+            byte[] bytes = fila.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            copyIn.endCopy();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE INDEX ON producto_import (name, linea)");
+                statement.execute("ANALYZE producto_import");
+                // Duplicados dentro del fichero: con upsert gana la última fila de cada nombre, si no la primera
+                report.setSkipped(report.getSkipped() + statement.executeUpdate(
+                        "DELETE FROM producto_import s USING producto_import t WHERE s.name = t.name AND s.linea "
+                        + (upsert ? "<" : ">") + " t.linea"));
+                if (upsert) {
+                    report.setUpdated(statement.executeUpdate(
+                            "UPDATE producto p SET stock = s.stock, price = s.price, description = s.description, version = p.version + 1 "
+                            + "FROM producto_import s WHERE p.name = s.name"));
+                } else {
+                    try (ResultSet rs = statement.executeQuery(
+                            "SELECT count(*) FROM producto_import s WHERE EXISTS (SELECT 1 FROM producto p WHERE p.name = s.name)")) {
+                        rs.next();
+                        report.setSkipped(report.getSkipped() + rs.getLong(1));
+                    }
+                }
+                report.setInserted(statement.executeUpdate(
+                        "INSERT INTO producto (id_producto, name, stock, price, description, version) "
+                        + "SELECT s.id_producto, s.name, s.stock, s.price, s.description, 0 FROM producto_import s "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM producto p WHERE p.name = s.name)"));
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (copyIn.isActive())
+                    copyIn.cancelCopy();
+            } catch (SQLException e) {
+                // La transacción se deshace igualmente, no hay nada más que limpiar
+            }
+        }
+    }
+
+    /**
+     * Importación genérica (H2): lotes JDBC con una consulta por lote para encontrar los nombres que ya existen.
+     * Solo se guarda en memoria el lote actual. Un nombre repetido en un lote anterior ya está escrito y se trata como un
+     * producto existente: sin upsert se ignora, igual que en {@link CopySink}, y con upsert se aplica y cuenta como
+     * actualizado, mientras que {@link CopySink} lo cuenta como ignorado.
+     */
+    private class BatchSink implements ProductoSink {
+        private final Connection connection;
+        private final IdAllocator ids;
+        private final boolean upsert;
+        private final ImportReportDTO report;
+        private final PreparedStatement insert;
+        private final PreparedStatement update;
+        private final Map<String, ProductDTO> lote = new LinkedHashMap<>();
+
+        BatchSink(Connection connection, IdAllocator ids, boolean upsert, ImportReportDTO report) throws SQLException {
+            this.connection = connection;
+            this.ids = ids;
+            this.upsert = upsert;
+            this.report = report;
+            this.insert = connection.prepareStatement(
+                    "INSERT INTO producto (id_producto, name, stock, price, description, version) VALUES (?, ?, ?, ?, ?, 0)");
+            this.update = connection.prepareStatement(
+                    "UPDATE producto SET stock = ?, price = ?, description = ?, version = version + 1 WHERE name = ?");
+        }
+
+        @Override
+        public void add(long linea, ProductDTO producto) throws SQLException {
+            // Duplicados dentro del lote: con upsert gana la última fila de cada nombre, si no la primera
+            if (lote.containsKey(producto.getName())) {
+                report.setSkipped(report.getSkipped() + 1);
+                if (!upsert)
+                    return;
+            }
+            lote.put(producto.getName(), producto);
+            if (lote.size() >= batchSize)
+                flush();
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            flush();
+        }
+
+        private void flush() throws SQLException {
+            if (lote.isEmpty())
+                return;
+            Set<String> existentes = findExisting(lote.keySet());
+            for (ProductDTO producto : lote.values()) {
+                if (!existentes.contains(producto.getName())) {
+                    insert.setInt(1, ids.next());
+                    insert.setString(2, producto.getName());
+                    insert.setInt(3, producto.getStock());
+                    insert.setInt(4, producto.getPrice());
+                    insert.setString(5, producto.getDescription());
+                    insert.addBatch();
+                    report.setInserted(report.getInserted() + 1);
+                } else if (upsert) {
+                    update.setInt(1, producto.getStock());
+                    update.setInt(2, producto.getPrice());
+                    update.setString(3, producto.getDescription());
+                    update.setString(4, producto.getName());
+                    update.addBatch();
+                    report.setUpdated(report.getUpdated() + 1);
+                } else {
+                    report.setSkipped(report.getSkipped() + 1);
+                }
+            }
+            insert.executeBatch();
+            update.executeBatch();
+            lote.clear();
+        }
+
+        private Set<String> findExisting(Set<String> nombres) throws SQLException {
+            String marcadores = String.join(",", Collections.nCopies(nombres.size(), "?"));
+            try (PreparedStatement select = connection.prepareStatement("SELECT name FROM producto WHERE name IN (" + marcadores + ")")) {
+                int i = 1;
+                for (String nombre : nombres)
+                    select.setString(i++, nombre);
+                try (ResultSet rs = select.executeQuery()) {
+                    Set<String> existentes = new HashSet<>();
+                    while (rs.next())
+                        existentes.add(rs.getString(1));
+                    return existentes;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                insert.close();
+                update.close();
+            } catch (SQLException e) {
+                // Las sentencias se cierran igualmente con la conexión
+            }
+        }
+    }
+}
@@ -2,13 +2,20 @@ package com.grupo06.sistemapedidos.service;
 
 import java.util.List;
 import java.util.Optional;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
 import com.grupo06.sistemapedidos.dto.ProductDTO;
 import com.grupo06.sistemapedidos.enums.ApiError;
 import com.grupo06.sistemapedidos.exception.RequestException;
 import com.grupo06.sistemapedidos.mapper.ProductMapper;
 import com.grupo06.sistemapedidos.model.Producto;
 import com.grupo06.sistemapedidos.repository.ProductRepository;
+import com.grupo06.sistemapedidos.utilities.CursorUtils;
+import com.grupo06.sistemapedidos.utilities.ETagUtils;
 
 /**
  * Clase de servicio para manejar la lógica de negocio relacionada con los productos.
@@ -21,22 +28,35 @@ public class ProductService {
   
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final ProductCatalog productCatalog;
 
-    public ProductService(ProductRepository productRepository, ProductMapper productMapper) {
+    public ProductService(ProductRepository productRepository, ProductMapper productMapper, ProductCatalog productCatalog) {
         this.productRepository = productRepository;
         this.productMapper = productMapper;
+        this.productCatalog = productCatalog;
     }
 
     /**
-     * Obtiene todos los productos
+     * Obtiene todos los productos paginados por cursor
      * 
-     * @return List<ProductDTO> Lista de productos encontrados
+     * @param cursor cursor opaco devuelto en la página anterior, nulo para la primera página
+     * @param size tamaño de página, por defecto {@link CursorUtils#DEFAULT_PAGE_SIZE} y como máximo {@link CursorUtils#MAX_PAGE_SIZE}
+     * @param sort ordenación por ID de la primera página: "asc" o "desc"
+     * @return CursorPageDTO<ProductDTO> Página de productos encontrados
      */
-    public List<ProductDTO> getAllProductos() {
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> getAllProductos(String cursor, Integer size, String sort) {
         try {
-            List<Producto> listProductos = productRepository.findAll();
-            return listProductos.stream()
-            .map(productMapper::toDTO).toList();
+            CursorUtils.Cursor posicion = CursorUtils.decode(cursor, sort);
+            int pageSize = CursorUtils.pageSize(size);
+            // Se pide un elemento más para saber si existe una página siguiente
+            Limit limit = Limit.of(pageSize + 1);
+            List<Producto> listProductos = posicion.descending()
+                    ? productRepository.findByIdLessThanOrderByIdDesc(posicion.boundary(), limit)
+                    : productRepository.findByIdGreaterThanOrderByIdAsc(posicion.boundary(), limit);
+            return CursorUtils.toPage(listProductos, pageSize, posicion, Producto::getId, productMapper::toDTO);
+        } catch (RequestException e) {
+            throw e;
         } catch (Exception e) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
@@ -48,6 +68,7 @@ public class ProductService {
      * @param id ID del producto a obtener
      * @return Optional<Producto> Producto encontrado
      */
+    @Transactional(readOnly = true)
     public ProductDTO getProductoById(Integer id) {
         try {
             Optional<Producto> newProducto = productRepository.findById(id);
@@ -63,14 +84,16 @@ public class ProductService {
     }
     
     /**
-     * Obtiene un producto por nombre
+     * Obtiene un producto por nombre. El nombre se resuelve a su ID con el índice del catálogo
+     * y el producto se lee por ID (caché de segundo nivel); si el índice no lo tiene se busca por nombre.
      * 
      * @param name Nombre del producto a obtener
      * @return Optional<Producto> Producto encontrado
      */
+    @Transactional(readOnly = true)
     public ProductDTO getProductoByName(String name) {
         try {
-            Optional<Producto> newProducto = productRepository.findByName(name);
+            Optional<Producto> newProducto = productCatalog.findByName(name);
             if(!newProducto.isPresent()){
                 throw new RequestException(ApiError.RECORD_NOT_FOUND);
             }
@@ -92,15 +115,17 @@ public class ProductService {
     public ProductDTO postProduct(ProductDTO productoDTO) {
         try {
             // Verificamos que el producto no existe, si existe lanzamos una excepción
-            Optional<Producto> newProductoOptional = productRepository.findByName(productoDTO.getName());
-            if(newProductoOptional.isPresent())
+            if(productCatalog.existsByName(productoDTO.getName()))
                 throw new RequestException(ApiError.PRODUCT_ALREADY_EXISTS);
 
             Producto newProducto = productMapper.toEntity(productoDTO);
             Producto savedProduct =  productRepository.save(newProducto);
+            productCatalog.registerAfterCommit(savedProduct.getId(), savedProduct.getName());
             return productMapper.toDTO(savedProduct);
         }catch (RequestException e) {
             throw e;
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateNameOrInternalError(e);
         } catch (Exception e) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
@@ -111,21 +136,24 @@ public class ProductService {
      * 
      * @param id ID del producto a actualizar
      * @param productoDTO DTO del producto a actualizar
+     * @param version versión esperada del producto (cabecera If-Match), nula para no comprobarla
      * @return Producto actualizado
      */
-    public ProductDTO updateProductById(Integer id, ProductDTO productoDTO) {
+    @Transactional
+    public ProductDTO updateProductById(Integer id, ProductDTO productoDTO, Integer version) {
         try {
             Optional<Producto> newProducto = productRepository.findById(id);
             // Verificamos que el producto existe, si no existe lanzamos una excepción
             if(!newProducto.isPresent())
                 throw new RequestException(ApiError.RECORD_NOT_FOUND);
             
-            Producto producto = productMapper.toEntity(productoDTO);
-            producto.setId(newProducto.get().getId());
-            Producto updatedProduct = productRepository.save(producto);
-            return productMapper.toDTO(updatedProduct);
+            return saveUpdatedProduct(newProducto.get(), productoDTO, version);
         } catch (RequestException e) {
             throw e;
+        } catch (OptimisticLockingFailureException e) {
+            throw new RequestException(ApiError.CONCURRENT_MODIFICATION);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateNameOrInternalError(e);
         } catch (Exception e) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
@@ -136,21 +164,24 @@ public class ProductService {
      * 
      * @param nombre Nombre del producto a actualizar
      * @param productoDTO DTO del producto a actualizar
+     * @param version versión esperada del producto (cabecera If-Match), nula para no comprobarla
      * @return Producto actualizado
      */
-    public ProductDTO updateProductByName(String name, ProductDTO productoDTO) {
+    @Transactional
+    public ProductDTO updateProductByName(String name, ProductDTO productoDTO, Integer version) {
         try {
-            Optional<Producto> newProducto = productRepository.findByName(name);
+            Optional<Producto> producto = productCatalog.findByName(name);
             // Verificamos que el producto existe, si no existe lanzamos una excepción
-            if(!newProducto.isPresent())
+            if(!producto.isPresent())
                 throw new RequestException(ApiError.RECORD_NOT_FOUND);
             
-            Producto producto = productMapper.toEntity(productoDTO);
-            producto.setId(newProducto.get().getId());
-            Producto updatedProduct = productRepository.save(producto);
-            return productMapper.toDTO(updatedProduct);
+            return saveUpdatedProduct(producto.get(), productoDTO, version);
         } catch (RequestException e) {
             throw e;
+        } catch (OptimisticLockingFailureException e) {
+            throw new RequestException(ApiError.CONCURRENT_MODIFICATION);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateNameOrInternalError(e);
         } catch (Exception e) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
@@ -169,6 +200,9 @@ public class ProductService {
             if(!newProducto.isPresent())
                 throw new RequestException(ApiError.RECORD_NOT_FOUND);
             productRepository.deleteById(id);
+            productCatalog.removeAfterCommit(id);
+        } catch (RequestException e) {
+            throw e;
         } catch (Exception e) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
@@ -182,19 +216,20 @@ public class ProductService {
      */
     public int deleteByName(String name) {
         try {
-            // Obtenemos todos los productos con ese nombre
-            List<Producto> productos = productRepository.findAllByName(name);
-            
-            // Verificamos que exista al menos un producto, si no existe lanzamos una excepción
-            if (productos.isEmpty())
+            // Verificamos en el índice que exista el producto, si no existe lanzamos una excepción sin consultar la base de datos
+            if (!productCatalog.existsByName(name))
                 throw new RequestException(ApiError.RECORD_NOT_FOUND);
+
+            // Obtenemos todos los productos con ese nombre
+            List<Producto> productos = productRepository.findAllByName(ProductMapper.toSlug(name));
             
-                // Para cada producto, primero eliminamos sus referencias en pedido_producto
+                // Para cada producto, primero eliminamos sus líneas de pedido
             for (Producto producto : productos) 
-                productRepository.deletePedidoProductoByProductoId(producto.getId());
+                productRepository.deletePedidoLineaByProductoId(producto.getId());
         
             // Eliminamos todos los productos encontrados
             productRepository.deleteAll(productos);
+            productos.forEach(producto -> productCatalog.removeAfterCommit(producto.getId()));
             
             // Devolvemos la cantidad de productos eliminados
             return productos.size();
@@ -204,4 +239,36 @@ public class ProductService {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Sobrescribe el producto y actualiza su nombre en el índice del catálogo.
+     * Si el nuevo nombre ya pertenece a otro producto se lanza PRODUCT_ALREADY_EXISTS, y si la versión
+     * esperada no coincide con la actual PRECONDITION_FAILED.
+     *
+     * @param producto producto a actualizar, leído en la transacción actual
+     * @param productoDTO DTO con los nuevos datos
+     * @param version versión esperada del producto, nula para no comprobarla
+     * @return Producto actualizado
+     */
+    private ProductDTO saveUpdatedProduct(Producto producto, ProductDTO productoDTO, Integer version) {
+        ETagUtils.checkVersion(version, producto.getVersion());
+        Optional<Integer> owner = productCatalog.findByName(productoDTO.getName()).map(Producto::getId);
+        if (owner.isPresent() && !owner.get().equals(producto.getId()))
+            throw new RequestException(ApiError.PRODUCT_ALREADY_EXISTS);
+
+        Producto updatedProduct = productRepository.saveAndFlush(productMapper.updateEntity(producto, productoDTO));
+        productCatalog.registerAfterCommit(updatedProduct.getId(), updatedProduct.getName());
+        return productMapper.toDTO(updatedProduct);
+    }
+
+    /**
+     * Traduce la violación del índice único del nombre a PRODUCT_ALREADY_EXISTS: la comprobación previa con el
+     * catálogo no impide que dos altas o renombrados concurrentes usen el mismo nombre, el índice sí.
+     */
+    private static RequestException duplicateNameOrInternalError(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        if (message != null && message.toLowerCase().contains(Producto.NAME_UNIQUE_CONSTRAINT))
+            return new RequestException(ApiError.PRODUCT_ALREADY_EXISTS);
+        return new RequestException(ApiError.INTERNAL_SERVER_ERROR);
+    }
+}
@@ -0,0 +1,77 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.grupo06.sistemapedidos.enums.RoleEnum;
+import com.grupo06.sistemapedidos.model.Roles;
+import com.grupo06.sistemapedidos.repository.RoleRepository;
+import com.grupo06.sistemapedidos.utilities.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Registro en memoria de los roles del sistema, indexado por {@link RoleEnum}.
+ *
+ * Solo existe un rol por cada valor de RoleEnum, así que se cargan todos al arrancar en un {@link EnumMap}
+ * y las búsquedas por nombre (registro de usuarios, seguridad) no hacen ninguna consulta a la base de datos.
+ * El mapa es inmutable y se sustituye entero al refrescarlo, de forma que los lectores nunca ven un estado a medias.
+ * RoleService lo refresca cada vez que crea, actualiza o elimina un rol.
+ */
+@Service
+public class RoleRegistry {
+    private final RoleRepository roleRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Map<RoleEnum, Roles> roles = Collections.unmodifiableMap(new EnumMap<>(RoleEnum.class));
+
+    public RoleRegistry(RoleRepository roleRepository, PlatformTransactionManager transactionManager) {
+        this.roleRepository = roleRepository;
+        // Transacción de escritura para leer siempre del principal y no de una réplica con retraso.
+        // REQUIRES_NEW porque el refresco también se lanza desde afterCommit, donde la transacción anterior ya terminó
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Carga los roles al iniciar la aplicación.
+     */
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    /**
+     * Busca un rol por su nombre sin acceder a la base de datos.
+     *
+     * @param name Nombre del rol.
+     * @return Optional con el rol, o vacío si no existe.
+     */
+    public Optional<Roles> find(RoleEnum name) {
+        return Optional.ofNullable(roles.get(name));
+    }
+
+    /**
+     * Vuelve a cargar todos los roles de la base de datos y sustituye el mapa actual.
+     */
+    public synchronized void refresh() {
+        List<Roles> all = transactionTemplate.execute(status -> roleRepository.findAll());
+        Map<RoleEnum, Roles> nuevo = new EnumMap<>(RoleEnum.class);
+        for (Roles role : all)
+            nuevo.put(role.getName(), role);
+        roles = Collections.unmodifiableMap(nuevo);
+    }
+
+    /**
+     * Refresca el registro cuando termine la transacción actual (si la hay y se confirma),
+     * o inmediatamente si no hay transacción. Así un rollback no deja cambios en el registro.
+     */
+    public void refreshAfterCommit() {
+        TransactionUtils.afterCommit(this::refresh);
+    }
+}
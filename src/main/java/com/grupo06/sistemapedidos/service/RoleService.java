@@ -2,7 +2,10 @@ package com.grupo06.sistemapedidos.service;
 
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
 import com.grupo06.sistemapedidos.dto.RolesDTO;
 import com.grupo06.sistemapedidos.enums.ApiError;
 import com.grupo06.sistemapedidos.enums.RoleEnum;
@@ -10,11 +13,12 @@ import com.grupo06.sistemapedidos.exception.RequestException;
 import com.grupo06.sistemapedidos.mapper.RoleMapper;
 import com.grupo06.sistemapedidos.model.Roles;
 import com.grupo06.sistemapedidos.repository.RoleRepository;
-import jakarta.transaction.Transactional;
+import com.grupo06.sistemapedidos.utilities.CursorUtils;
 
 /**
  * Clase de servicio para manejar la lógica de negocio relacionada con los roles.
  * Proporciona métodos para crear y eliminar roles.
+ * Las búsquedas por nombre usan {@link RoleRegistry}, que se refresca después de cada creación, actualización o borrado.
  * 
 * @Service indica que esta clase es un servicio de Spring y permite la inyección de dependencias.
  */
@@ -22,10 +26,12 @@ import jakarta.transaction.Transactional;
 public class RoleService {
     private final RoleRepository roleRepository;
     private final RoleMapper roleMapper;
+    private final RoleRegistry roleRegistry;
 
-    public RoleService(RoleRepository roleRepository, RoleMapper roleMapper) {
+    public RoleService(RoleRepository roleRepository, RoleMapper roleMapper, RoleRegistry roleRegistry) {
         this.roleRepository = roleRepository;
         this.roleMapper = roleMapper;
+        this.roleRegistry = roleRegistry;
     }
 
     /**
@@ -34,6 +40,7 @@ public class RoleService {
      * @param id ID del rol a buscar.
      * @return RolesDTO DTO que representa el rol encontrado.
      */
+    @Transactional(readOnly = true)
     public RolesDTO getRoleById(Integer id) {
         try {
             Optional<Roles> role = roleRepository.findById(id);
@@ -49,36 +56,48 @@ public class RoleService {
     }
 
     /**
-     * Método para obtener un rol por su nombre.
+     * Método para obtener un rol por su nombre, desde el registro en memoria.
      * 
      * @param name Nombre del rol a buscar.
      * @return RolesDTO DTO que representa el rol encontrado.
      */
     public RolesDTO getRoleByName(RoleEnum name) {
         try {
-            Optional<Roles> role = roleRepository.findByName(name);
+            Optional<Roles> role = roleRegistry.find(name);
             if(!role.isPresent()){
                 throw new RequestException(ApiError.ROLE_NOT_FOUND);
             }
             return roleMapper.toDto(role.get());
+        } catch (RequestException e) {
+            throw e;
         } catch (Exception e) {
              throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
     }
 
     /**
-     * Método para obtener todos los roles.
+     * Método para obtener todos los roles paginados por cursor.
      * 
-     * @return Lista de RolesDTO que representan todos los roles.
+     * @param cursor cursor opaco devuelto en la página anterior, nulo para la primera página
+     * @param size tamaño de página, por defecto {@link CursorUtils#DEFAULT_PAGE_SIZE} y como máximo {@link CursorUtils#MAX_PAGE_SIZE}
+     * @param sort ordenación por ID de la primera página: "asc" o "desc"
+     * @return Página de RolesDTO que representan los roles.
      */
-    public List<RolesDTO> getAllRoles() {
+    @Transactional(readOnly = true)
+    public CursorPageDTO<RolesDTO> getAllRoles(String cursor, Integer size, String sort) {
         try {
-            List<Roles> roles = roleRepository.findAll();
-            return roles.stream()
-                    .map(roleMapper::toDto)
-                    .toList();
+            CursorUtils.Cursor posicion = CursorUtils.decode(cursor, sort);
+            int pageSize = CursorUtils.pageSize(size);
+            // Se pide un elemento más para saber si existe una página siguiente
+            Limit limit = Limit.of(pageSize + 1);
+            List<Roles> roles = posicion.descending()
+                    ? roleRepository.findByIdLessThanOrderByIdDesc(posicion.boundary(), limit)
+                    : roleRepository.findByIdGreaterThanOrderByIdAsc(posicion.boundary(), limit);
+            return CursorUtils.toPage(roles, pageSize, posicion, Roles::getId, roleMapper::toDto);
+        } catch (RequestException e) {
+            throw e;
         } catch (Exception e) {
-             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
+            throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
     }
 
@@ -90,12 +109,13 @@ public class RoleService {
      */
     public RolesDTO createRole(RolesDTO role) {
         try {
-            Optional<Roles> roleOptional = roleRepository.findByName(role.getName());
+            Optional<Roles> roleOptional = roleRegistry.find(role.getName());
             //Ya existe por lo que no se puede crear
             if(roleOptional.isPresent())
                 throw new RequestException(ApiError.ROLE_ALREADY_EXISTS);
 
             Roles newRole = roleRepository.save(roleMapper.toEntity(role));
+            roleRegistry.refreshAfterCommit();
             return roleMapper.toDto(newRole);
         }catch(RequestException e){
             throw e;
@@ -114,7 +134,7 @@ public class RoleService {
     public void updateRoleById(Integer id, RolesDTO entity) {
         try {
             Optional<Roles> role = roleRepository.findById(id);
-            Optional<Roles> roleName = roleRepository.findByName(entity.getName());
+            Optional<Roles> roleName = roleRegistry.find(entity.getName());
             if(!role.isPresent())
                 throw new RequestException(ApiError.ROLE_NOT_FOUND);
             if(roleName.isPresent())
@@ -124,6 +144,7 @@ public class RoleService {
             Roles updatedRole = roleMapper.toEntity(entity);
             updatedRole.setId(role.get().getId());
             roleRepository.save(updatedRole);
+            roleRegistry.refreshAfterCommit();
         } catch (RequestException e) {
             throw e;
         } catch (Exception e) {
@@ -140,8 +161,8 @@ public class RoleService {
      */
     public void updateRoleByName(String name, RolesDTO entity) {
         try {
-            Optional<Roles> role = roleRepository.findByName(RoleEnum.valueOf(name.toUpperCase()));
-            Optional<Roles> newRole = roleRepository.findByName(entity.getName());
+            Optional<Roles> role = roleRegistry.find(RoleEnum.valueOf(name.toUpperCase()));
+            Optional<Roles> newRole = roleRegistry.find(entity.getName());
             if(!role.isPresent())
                 throw new RequestException(ApiError.ROLE_NOT_FOUND);
             if(newRole.isPresent())
@@ -150,6 +171,7 @@ public class RoleService {
             Roles updatedRole = roleMapper.toEntity(entity);
             updatedRole.setId(role.get().getId());
             roleRepository.save(updatedRole);
+            roleRegistry.refreshAfterCommit();
         } catch (IllegalArgumentException e) {
             throw new RequestException(ApiError.ROLE_NOT_FOUND); 
         } catch (RequestException e) {
@@ -171,6 +193,7 @@ public class RoleService {
                 throw new RequestException(ApiError.ROLE_NOT_FOUND);
 
             roleRepository.deleteById(id);
+            roleRegistry.refreshAfterCommit();
         } catch(RequestException e) {
             throw e;
         } catch (Exception e) {
@@ -186,11 +209,13 @@ public class RoleService {
     @Transactional
     public void deleteRoleByName(RoleEnum roleEnum) {
         try {
-            Optional<Roles> role = roleRepository.findByName(roleEnum);
+            Optional<Roles> role = roleRegistry.find(roleEnum);
             if(!role.isPresent())
                 throw new RequestException(ApiError.ROLE_NOT_FOUND);
 
             roleRepository.deleteByName(role.get().getName());
+            // Se refresca al confirmar la transacción, si hay rollback el registro no cambia
+            roleRegistry.refreshAfterCommit();
         }catch(RequestException e){
             throw e;
         }catch (Exception e) {
@@ -0,0 +1,116 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+import com.grupo06.sistemapedidos.utilities.TransactionUtils;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Servicio de reserva de stock de los pedidos.
+ *
+ * Cada línea se reserva con un UPDATE condicional ({@code stock = stock - ? WHERE stock >= ?}), de forma que la
+ * comprobación y la resta son atómicas en la base de datos y no hace falta leer el producto ni bloquearlo antes.
+ * Las filas se actualizan siempre en orden ascendente de ID para que dos pedidos con los mismos productos
+ * no se bloqueen mutuamente (deadlock). Si falta stock de algún producto se lanza una RequestException y la
+ * transacción del pedido se deshace entera, incluidas las líneas ya reservadas.
+ *
+ * Las actualizaciones no pasan por las entidades, así que al confirmar la transacción se desalojan de la
+ * caché de segundo nivel solo los productos modificados.
+ */
+@Service
+public class StockService {
+    private final ProductRepository productRepository;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public StockService(ProductRepository productRepository, EntityManagerFactory entityManagerFactory) {
+        this.productRepository = productRepository;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Reserva el stock de todos los productos de un pedido.
+     *
+     * @param cantidades unidades por ID de producto
+     */
+    @Transactional
+    public void reserve(Map<Integer, Integer> cantidades) {
+        adjust(Map.of(), cantidades);
+    }
+
+    /**
+     * Reserva todo el stock posible de varios productos sin deshacer nada si alguno no tiene suficiente.
+     * La usan los lotes de pedidos, que reservan de una vez las unidades de todos los pedidos del lote y
+     * después rechazan solo los pedidos que contienen un producto sin stock.
+     *
+     * @param cantidades unidades por ID de producto
+     * @return IDs de los productos que no se han podido reservar, el resto quedan reservados
+     */
+    @Transactional
+    public Set<Integer> reserveAvailable(Map<Integer, Integer> cantidades) {
+        Set<Integer> sinStock = new HashSet<>();
+        Set<Integer> reservados = new HashSet<>();
+        new TreeMap<>(cantidades).forEach((id, cantidad) -> {
+            if (cantidad <= 0)
+                return;
+            if (productRepository.reserveStock(id, cantidad) == 0)
+                sinStock.add(id);
+            else
+                reservados.add(id);
+        });
+        TransactionUtils.afterCommit(() -> reservados.forEach(id -> entityManagerFactory.getCache().evict(Producto.class, id)));
+        return sinStock;
+    }
+
+    /**
+     * Devuelve al stock las unidades de un pedido eliminado.
+     *
+     * @param cantidades unidades por ID de producto
+     */
+    @Transactional
+    public void release(Map<Integer, Integer> cantidades) {
+        adjust(cantidades, Map.of());
+    }
+
+    /**
+     * Ajusta el stock al modificar un pedido: solo se actualizan los productos cuya cantidad cambia,
+     * reservando las unidades añadidas y devolviendo las retiradas.
+     *
+     * @param anteriores unidades por ID de producto antes de la modificación
+     * @param nuevas unidades por ID de producto después de la modificación
+     */
+    @Transactional
+    public void adjust(Map<Integer, Integer> anteriores, Map<Integer, Integer> nuevas) {
+        // TreeMap para recorrer los productos en orden de ID y bloquear las filas siempre en el mismo orden
+        SortedMap<Integer, Integer> diferencias = new TreeMap<>(nuevas);
+        anteriores.forEach((id, cantidad) -> diferencias.merge(id, -cantidad, Integer::sum));
+
+        Map<String, String> sinStock = new LinkedHashMap<>();
+        diferencias.forEach((id, diferencia) -> {
+            if (diferencia > 0 && productRepository.reserveStock(id, diferencia) == 0)
+                sinStock.put(String.valueOf(id), ApiError.INSUFFICIENT_STOCK.getDetail());
+            else if (diferencia < 0)
+                productRepository.releaseStock(id, -diferencia);
+        });
+        if (!sinStock.isEmpty())
+            throw new RequestException(
+                ApiError.INSUFFICIENT_STOCK.getTitle(),
+                ApiError.INSUFFICIENT_STOCK.getDetail(),
+                ApiError.INSUFFICIENT_STOCK.getStatus(),
+                sinStock);
+
+        TransactionUtils.afterCommit(() -> diferencias.forEach((id, diferencia) -> {
+            if (diferencia != 0)
+                entityManagerFactory.getCache().evict(Producto.class, id);
+        }));
+    }
+}
@@ -0,0 +1,131 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.grupo06.sistemapedidos.dto.ReconciliationReportDTO;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.repository.UserRepository;
+import com.grupo06.sistemapedidos.repository.UserRepository.TotalSpentCheck;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Conciliación del total gastado de los usuarios.
+ *
+ * PedidoService mantiene Usuario.totalSpent con incrementos atómicos al crear, modificar o eliminar pedidos.
+ * Este servicio lo recalcula a partir de las líneas de los pedidos para detectar diferencias
+ * (por ejemplo, cambios hechos directamente en la base de datos) y, si se pide, corregirlas.
+ *
+ * Los usuarios se reparten en tramos de {@code pedidos.reconciliation.chunk-size} IDs que se procesan en paralelo
+ * con {@code pedidos.reconciliation.threads} hilos, cada tramo con una única consulta agregada en su propia
+ * transacción. Se ejecuta de forma programada ({@code pedidos.reconciliation.cron}, por defecto cada noche) y
+ * desde el endpoint de administración.
+ *
+ * Cada línea guarda el precio de compra, así que modificar el precio de un producto no produce diferencias.
+ */
+@Slf4j
+@Service
+public class TotalSpentReconciliationService {
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Número de IDs de usuario por tramo
+    @Value("${pedidos.reconciliation.chunk-size:1000}")
+    private int chunkSize;
+
+    // Tramos que se procesan a la vez, cada uno ocupa una conexión del pool
+    @Value("${pedidos.reconciliation.threads:4}")
+    private int threads;
+
+    public TotalSpentReconciliationService(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        // Transacción de escritura para leer del principal: en una réplica con retraso aparecerían diferencias falsas
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Conciliación programada: solo informa de las diferencias en el log, no las corrige.
+     */
+    @Scheduled(cron = "${pedidos.reconciliation.cron:0 0 4 * * *}")
+    public void scheduledReconciliation() {
+        reconcile(false);
+    }
+
+    /**
+     * Recalcula el total gastado de todos los usuarios y lo compara con el guardado.
+     *
+     * @param repair true para corregir las diferencias encontradas, false para solo informar de ellas
+     * @return ReconciliationReportDTO resumen de la conciliación
+     */
+    public ReconciliationReportDTO reconcile(boolean repair) {
+        long inicio = System.nanoTime();
+        int maxId = userRepository.findMaxId();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<ReconciliationReportDTO>> tramos = new ArrayList<>();
+            for (int desde = 0; desde < maxId; desde += chunkSize) {
+                int inicioTramo = desde;
+                int finTramo = Math.min(desde + chunkSize, maxId);
+                tramos.add(executor.submit(() -> transactionTemplate.execute(status -> reconcileChunk(inicioTramo, finTramo, repair))));
+            }
+
+            // Se combinan en orden de tramo para que el detalle del informe sea siempre el de los IDs más bajos
+            ReconciliationReportDTO report = new ReconciliationReportDTO();
+            for (Future<ReconciliationReportDTO> tramo : tramos)
+                report.merge(tramo.get());
+            report.setElapsedMs((System.nanoTime() - inicio) / 1_000_000);
+
+            if (report.getDrifted() > 0)
+                log.warn("Conciliación de totalSpent: {} de {} usuarios con diferencias (total {}), {} corregidos, detalle: {}",
+                        report.getDrifted(), report.getChecked(), report.getTotalDrift(), report.getRepaired(), report.getDrifts());
+            else
+                log.info("Conciliación de totalSpent: {} usuarios sin diferencias en {} ms", report.getChecked(), report.getElapsedMs());
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
+        } catch (ExecutionException e) {
+            log.error("Error en la conciliación de totalSpent", e.getCause());
+            throw new RequestException(ApiError.DATABASE_ERROR);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Concilia los usuarios de un tramo de IDs.
+     *
+     * @param desde ID inicial del tramo (exclusivo)
+     * @param hasta ID final del tramo (inclusivo)
+     * @param repair true para corregir las diferencias
+     * @return ReconciliationReportDTO resultado del tramo
+     */
+    private ReconciliationReportDTO reconcileChunk(int desde, int hasta, boolean repair) {
+        ReconciliationReportDTO report = new ReconciliationReportDTO();
+        report.setChunks(1);
+        for (TotalSpentCheck usuario : userRepository.checkTotalSpent(desde, hasta)) {
+            report.setChecked(report.getChecked() + 1);
+            long diferencia = usuario.getExpected() - usuario.getTotalSpent();
+            if (diferencia == 0)
+                continue;
+            report.setDrifted(report.getDrifted() + 1);
+            report.setTotalDrift(report.getTotalDrift() + diferencia);
+            report.drift(usuario.getId(), diferencia);
+            // Solo se corrige si el total no ha cambiado desde la lectura, si no se pisaría un pedido recién confirmado
+            if (repair && userRepository.repairTotalSpent(usuario.getId(), usuario.getTotalSpent(), Math.toIntExact(usuario.getExpected())) == 1)
+                report.setRepaired(report.getRepaired() + 1);
+        }
+        return report;
+    }
+}
@@ -1,5 +1,6 @@
 package com.grupo06.sistemapedidos.service;
 
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
 import com.grupo06.sistemapedidos.dto.UsuarioDTO;
 import com.grupo06.sistemapedidos.enums.ApiError;
 import com.grupo06.sistemapedidos.enums.RoleEnum;
@@ -11,10 +12,15 @@ import com.grupo06.sistemapedidos.security.JwtAuthentication;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import com.grupo06.sistemapedidos.utilities.CursorUtils;
+import com.grupo06.sistemapedidos.utilities.ETagUtils;
 
 /**
  * Servicio de gestión de usuarios.
@@ -40,7 +46,7 @@ public class UserService {
      * Método para registrar un nuevo usuario.
      *
      * Este método verifica si el usuario ya existe por su correo electrónico. Si no existe, guarda un nuevo usuario en la base de datos.
-     * Si el campo `totalSpent` está vacío, se asigna un valor predeterminado de 0.
+     * El campo `totalSpent` se ignora: un usuario nuevo empieza siempre en 0.
      * {@link Authentication} Se utiliza para verificar si el usuario que está creando un nuevo usuario es un administrador.
      * {@link JwtTokenService} Se utiliza para encriptar la contraseña del usuario antes de guardarla.
      * 
@@ -89,6 +95,7 @@ public class UserService {
      * @param userDTO DTO con los datos de inicio de sesión (correo y contraseña).
      * @return UsuarioDTO DTO con los datos del usuario autenticado.
      */
+    @Transactional(readOnly = true)
     public UsuarioDTO userLogin(UsuarioDTO userDTO) {
         try {
             Optional<Usuario> optionalUser = userRepository.findByEmailAndName(userDTO.getEmail(), userDTO.getName());
@@ -125,17 +132,27 @@ public class UserService {
     /**
      * Método para obtener todos los usuarios registrados.
      *
-     * Este método devuelve una lista de todos los usuarios registrados en el sistema.
+     * Este método devuelve los usuarios registrados en el sistema paginados por cursor.
      *
-     * @return Lista de DTOs de usuarios registrados.
+     * @param cursor cursor opaco devuelto en la página anterior, nulo para la primera página
+     * @param size tamaño de página, por defecto {@link CursorUtils#DEFAULT_PAGE_SIZE} y como máximo {@link CursorUtils#MAX_PAGE_SIZE}
+     * @param sort ordenación por ID de la primera página: "asc" o "desc"
+     * @return Página de DTOs de usuarios registrados.
      */
-    public List<UsuarioDTO> getAllRegisteredUsers() {
+    @Transactional(readOnly = true)
+    public CursorPageDTO<UsuarioDTO> getAllRegisteredUsers(String cursor, Integer size, String sort) {
         try {
-            List<Usuario> users = userRepository.findAll();
-            List<UsuarioDTO> usersDTO = new ArrayList<>();
-            users.forEach(user -> usersDTO.add(userMapper.toDTO(user)));
-            return usersDTO;
-        } catch (Exception ex) {
+            CursorUtils.Cursor posicion = CursorUtils.decode(cursor, sort);
+            int pageSize = CursorUtils.pageSize(size);
+            // Se pide un elemento más para saber si existe una página siguiente
+            Limit limit = Limit.of(pageSize + 1);
+            List<Usuario> users = posicion.descending()
+                    ? userRepository.findByIdLessThanOrderByIdDesc(posicion.boundary(), limit)
+                    : userRepository.findByIdGreaterThanOrderByIdAsc(posicion.boundary(), limit);
+            return CursorUtils.toPage(users, pageSize, posicion, Usuario::getId, userMapper::toDTO);
+        } catch (RequestException e) {
+            throw e;
+        } catch (Exception e) {
             throw new RequestException(ApiError.FORBIDDEN);
         }
     }
@@ -148,6 +165,7 @@ public class UserService {
      * @param id ID del usuario.
      * @return DTO con los datos del usuario.
      */
+    @Transactional(readOnly = true)
     public UsuarioDTO getUserById(Integer id) {
         try {
             Optional<Usuario> optionalUser = userRepository.findById(id);
@@ -168,6 +186,7 @@ public class UserService {
      * @param list Lista de identificadores de usuarios.
      * @return Lista de DTOs de los usuarios.
      */
+    @Transactional(readOnly = true)
     public List<UsuarioDTO> getAllUsers(List<Integer> list) {
         try {
             Optional<List<Usuario>> optionalUsers = userRepository.findByIdIn(list);
@@ -187,6 +206,7 @@ public class UserService {
      * @param email Correo electrónico del usuario.
      * @return DTO con los datos del usuario y su rol.
      */
+    @Transactional(readOnly = true)
     public UsuarioDTO getUserByEmail(String email) {
         try {
             Optional<Usuario> optionalUser = userRepository.findByEmail(email);
@@ -203,6 +223,7 @@ public class UserService {
                     user.getRole().getName()
                 );
                 usuarioDTO.setToken(token);
+                usuarioDTO.setVersion(user.getVersion());
                 return usuarioDTO;
             } else {
                 return null; // Usuario no encontrado
@@ -217,19 +238,22 @@ public class UserService {
      * 
      * @param id ID del usuario a actualizar
      * @param entity DTO con los nuevos datos del usuario
+     * @param version versión esperada del usuario (cabecera If-Match), nula para no comprobarla
      * @return UsuarioDTO DTO con los datos actualizados del usuario
      */
-    public UsuarioDTO putUserById(Integer id, UsuarioDTO entity) {
+    @Transactional
+    public UsuarioDTO putUserById(Integer id, UsuarioDTO entity, Integer version) {
         try {
             Optional<Usuario> optionalUser = userRepository.findById(id);
-            if (optionalUser.isPresent()  && optionalUser.get().getId().equals(id)) {
-                Usuario newUser = userMapper.toEntity(entity);
-                newUser.setId(id); 
-
-                return userMapper.toDTO(newUser);
+            if (optionalUser.isPresent()) {
+                return saveUpdatedUser(optionalUser.get(), entity, version);
             } else {
                 throw new RequestException(ApiError.USER_NOT_FOUND);
             }
+        } catch (RequestException ex) {
+            throw ex;
+        } catch (OptimisticLockingFailureException ex) {
+            throw new RequestException(ApiError.CONCURRENT_MODIFICATION);
         } catch (Exception ex) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
@@ -240,24 +264,45 @@ public class UserService {
      * 
      * @param email Correo electrónico del usuario a actualizar
      * @param entity DTO con los nuevos datos del usuario
+     * @param version versión esperada del usuario (cabecera If-Match), nula para no comprobarla
      * @return UsuarioDTO DTO con los datos actualizados del usuario
      */
-    public UsuarioDTO putUserByEmail(String email, UsuarioDTO entity) {
+    @Transactional
+    public UsuarioDTO putUserByEmail(String email, UsuarioDTO entity, Integer version) {
         try {
             Optional<Usuario> optionalUser = userRepository.findByEmail(email);
-            if (optionalUser.isPresent()  && optionalUser.get().getEmail().equals(email)) {
-                Usuario user = userMapper.toEntity(entity);
-                user.setId(optionalUser.get().getId()); 
-                return userMapper.toDTO(user);
-
+            if (optionalUser.isPresent()) {
+                return saveUpdatedUser(optionalUser.get(), entity, version);
             } else {
                 throw new RequestException(ApiError.USER_NOT_FOUND);
             }
+        } catch (RequestException ex) {
+            throw ex;
+        } catch (OptimisticLockingFailureException ex) {
+            throw new RequestException(ApiError.CONCURRENT_MODIFICATION);
         } catch (Exception ex) {
             throw new RequestException(ApiError.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Sobrescribe un usuario con los datos del DTO comprobando antes la versión esperada.
+     * Si el email cambia y ya pertenece a otro usuario se lanza DUPLICATE_EMAIL.
+     *
+     * @param user usuario a actualizar, leído en la transacción actual
+     * @param entity DTO con los nuevos datos del usuario
+     * @param version versión esperada del usuario, nula para no comprobarla
+     * @return UsuarioDTO DTO con los datos actualizados y la nueva versión
+     */
+    private UsuarioDTO saveUpdatedUser(Usuario user, UsuarioDTO entity, Integer version) {
+        ETagUtils.checkVersion(version, user.getVersion());
+        if (!user.getEmail().equals(entity.getEmail()) && userRepository.findByEmail(entity.getEmail()).isPresent())
+            throw new RequestException(ApiError.DUPLICATE_EMAIL);
+
+        Usuario updatedUser = userRepository.saveAndFlush(userMapper.updateEntity(user, entity));
+        return userMapper.toDTO(updatedUser);
+    }
+
     /**
      * Método para eliminar un usuario por su ID.
      * Este método elimina un usuario de la base de datos utilizando su identificador único.
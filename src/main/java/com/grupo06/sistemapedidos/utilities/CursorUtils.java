@@ -0,0 +1,107 @@
+package com.grupo06.sistemapedidos.utilities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.exception.RequestException;
+
+/**
+ * Clase utilitaria para la paginación por cursor (keyset).
+ * El cursor es opaco para el cliente: codifica en Base64 la dirección de ordenación y el último ID devuelto,
+ * de forma que la siguiente página se obtiene con un rango sobre la clave primaria (id > cursor o id < cursor)
+ * en lugar de un OFFSET que obliga a la base de datos a recorrer todas las filas anteriores.
+ */
+public class CursorUtils {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * Posición decodificada de un cursor: último ID devuelto y dirección de ordenación.
+     *
+     * @param lastId último ID de la página anterior, nulo si es la primera página
+     * @param descending true si la ordenación por ID es descendente
+     */
+    public record Cursor(Integer lastId, boolean descending) {
+
+        /**
+         * @return el límite inferior (asc) o superior (desc) exclusivo para la consulta por rango
+         */
+        public int boundary() {
+            if (lastId != null)
+                return lastId;
+            return descending ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Decodifica el cursor recibido, si no hay cursor se usa la ordenación indicada (asc por defecto).
+     *
+     * @param cursor cursor opaco recibido del cliente, puede ser nulo
+     * @param sort dirección de ordenación para la primera página: "asc" o "desc"
+     * @return posición del cursor
+     */
+    public static Cursor decode(String cursor, String sort) {
+        if (cursor == null || cursor.isBlank()) {
+            if (sort == null || sort.equalsIgnoreCase("asc"))
+                return new Cursor(null, false);
+            if (sort.equalsIgnoreCase("desc"))
+                return new Cursor(null, true);
+            throw new RequestException(ApiError.BAD_REQUEST, "Invalid Sort", "Sort must be 'asc' or 'desc'.");
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 2 || !(parts[0].equals("asc") || parts[0].equals("desc")))
+                throw new IllegalArgumentException();
+            return new Cursor(Integer.valueOf(parts[1]), parts[0].equals("desc"));
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(ApiError.INVALID_FORMAT, "Invalid Cursor", "The page cursor is malformed.");
+        }
+    }
+
+    /**
+     * Codifica la posición de la siguiente página en un cursor opaco.
+     */
+    public static String encode(Integer lastId, boolean descending) {
+        String value = (descending ? "desc:" : "asc:") + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Valida el tamaño de página solicitado, se limita a {@link #MAX_PAGE_SIZE}.
+     *
+     * @param size tamaño solicitado, puede ser nulo
+     * @return tamaño de página a utilizar
+     */
+    public static int pageSize(Integer size) {
+        if (size == null)
+            return DEFAULT_PAGE_SIZE;
+        if (size < 1)
+            throw new RequestException(ApiError.BAD_REQUEST, "Invalid Page Size", "Page size must be greater than 0.");
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Construye la página a partir de los resultados de la consulta.
+     * La consulta debe pedir un elemento más que el tamaño de página, así se sabe si hay página siguiente
+     * sin necesidad de un COUNT.
+     *
+     * @param results resultados de la consulta por rango, como máximo size + 1
+     * @param size tamaño de página
+     * @param cursor posición actual, para mantener la dirección en el siguiente cursor
+     * @param idOf función que obtiene el ID de cada resultado
+     * @param mapper función que convierte cada resultado a DTO
+     * @return página de DTOs con el cursor siguiente
+     */
+    public static <E, T> CursorPageDTO<T> toPage(List<E> results, int size, Cursor cursor,
+                                                 Function<E, Integer> idOf, Function<E, T> mapper) {
+        boolean hasNext = results.size() > size;
+        List<E> page = hasNext ? results.subList(0, size) : results;
+        String nextCursor = hasNext ? encode(idOf.apply(page.get(page.size() - 1)), cursor.descending()) : null;
+        List<T> items = page.stream().map(mapper).toList();
+        return new CursorPageDTO<>(items, nextCursor, items.size());
+    }
+}
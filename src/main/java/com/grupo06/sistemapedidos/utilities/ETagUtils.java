@@ -0,0 +1,69 @@
+package com.grupo06.sistemapedidos.utilities;
+
+import org.springframework.http.ResponseEntity;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.exception.RequestException;
+
+/**
+ * Clase utilitaria para el control de concurrencia optimista mediante ETag / If-Match.
+ * El ETag de un recurso es su columna de versión ({@code @Version}): el cliente lo recibe al leerlo y lo devuelve
+ * en la cabecera If-Match al modificarlo. Si otra petición lo ha modificado entretanto, la versión ya no coincide
+ * y la modificación se rechaza en lugar de sobrescribir sus cambios.
+ *
+ * La comprobación se hace dos veces. {@link #checkVersion} compara la cabecera con la versión leída y responde
+ * {@link ApiError#PRECONDITION_FAILED}. Después, Hibernate añade {@code WHERE version = ?} a cada UPDATE e incrementa la
+ * versión, así que una petición concurrente que modifique la fila entre la lectura y la escritura hace fallar la
+ * sentencia con {@code OptimisticLockingFailureException}, que los servicios traducen a
+ * {@link ApiError#CONCURRENT_MODIFICATION}. Los servicios guardan con {@code saveAndFlush} para que ese fallo salte
+ * dentro del método, y no al confirmar la transacción, y para que la respuesta lleve ya la versión nueva.
+ */
+public class ETagUtils {
+
+    /**
+     * Construye una respuesta 200 con el cuerpo y la versión como ETag.
+     *
+     * @param body cuerpo de la respuesta
+     * @param version versión del recurso, si es nula no se añade la cabecera
+     * @return ResponseEntity con la cabecera ETag
+     */
+    public static <T> ResponseEntity<T> ok(T body, Integer version) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (version != null)
+            response.eTag(String.valueOf(version));
+        return response.body(body);
+    }
+
+    /**
+     * Obtiene la versión esperada de la cabecera If-Match.
+     * Acepta ETags fuertes ("3") y débiles (W/"3"); sin cabecera o con "*" no se exige ninguna versión.
+     *
+     * @param ifMatch valor de la cabecera If-Match, puede ser nulo
+     * @return versión esperada, o nulo si no se exige ninguna
+     */
+    public static Integer parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*"))
+            return null;
+        String value = ifMatch.trim();
+        if (value.startsWith("W/"))
+            value = value.substring(2);
+        value = value.replace("\"", "");
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            // Un ETag que no hemos generado nosotros nunca puede coincidir con la versión actual
+            throw new RequestException(ApiError.PRECONDITION_FAILED);
+        }
+    }
+
+    /**
+     * Comprueba que la versión esperada por el cliente coincide con la versión actual del recurso.
+     *
+     * @param expected versión de la cabecera If-Match, nula si el cliente no la envía
+     * @param current versión actual de la entidad
+     * @throws RequestException con {@link ApiError#PRECONDITION_FAILED} si no coinciden
+     */
+    public static void checkVersion(Integer expected, Integer current) {
+        if (expected != null && !expected.equals(current))
+            throw new RequestException(ApiError.PRECONDITION_FAILED);
+    }
+}
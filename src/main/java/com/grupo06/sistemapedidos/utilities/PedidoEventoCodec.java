@@ -0,0 +1,139 @@
+package com.grupo06.sistemapedidos.utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje.Linea;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+
+/**
+ * Clase utilitaria para serializar los eventos de pedido en un formato binario compacto.
+ *
+ * Formato (versión 1), los enteros son varint sin signo (7 bits por byte, como en Protobuf):
+ * <pre>
+ * versión (1 byte) | tipo (1 byte) | eventId (16 bytes) | timestamp en ms (varint)
+ * | pedidoId (varint) | usuarioId (varint) | nº de líneas (varint)
+ * | por línea: diferencia de productoId con la línea anterior (varint), cantidad (varint), precio unitario (varint)
+ * </pre>
+ * Las líneas se escriben ordenadas por ID de producto, así la diferencia entre IDs suele ocupar un solo byte.
+ * El primer byte es la versión del esquema: un consumidor rechaza las versiones que no conoce en lugar de leerlas mal.
+ * La misma versión se envía en la cabecera {@link #SCHEMA_VERSION_HEADER} del mensaje de Kafka.
+ */
+public class PedidoEventoCodec {
+    /**
+     * Versión actual del esquema binario.
+     */
+    public static final byte SCHEMA_VERSION = 1;
+
+    /**
+     * Nombre de la cabecera de Kafka con la versión del esquema.
+     */
+    public static final String SCHEMA_VERSION_HEADER = "schema-version";
+
+    private PedidoEventoCodec() {
+    }
+
+    /**
+     * Serializa un evento en el formato binario actual.
+     *
+     * @param evento evento a serializar
+     * @return bytes del evento
+     */
+    public static byte[] encode(PedidoEventoMensaje evento) {
+        List<Linea> lineas = new ArrayList<>(evento.lineas());
+        lineas.sort((a, b) -> Integer.compare(a.productoId(), b.productoId()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + lineas.size() * 6);
+        out.write(SCHEMA_VERSION);
+        out.write(evento.tipo().getCode());
+        writeLong(out, evento.eventId().getMostSignificantBits());
+        writeLong(out, evento.eventId().getLeastSignificantBits());
+        writeVarLong(out, evento.timestamp().toEpochMilli());
+        writeVarLong(out, evento.pedidoId());
+        writeVarLong(out, evento.usuarioId());
+        writeVarLong(out, lineas.size());
+        int anterior = 0;
+        for (Linea linea : lineas) {
+            writeVarLong(out, linea.productoId() - anterior);
+            writeVarLong(out, linea.cantidad());
+            writeVarLong(out, linea.precioUnitario());
+            anterior = linea.productoId();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Lee un evento serializado con {@link #encode(PedidoEventoMensaje)}.
+     *
+     * @param bytes bytes del evento
+     * @return el evento
+     * @throws IllegalArgumentException si la versión del esquema no se conoce o los bytes están incompletos
+     */
+    public static PedidoEventoMensaje decode(byte[] bytes) {
+        byte version = version(bytes);
+        if (version != SCHEMA_VERSION)
+            throw new IllegalArgumentException("Versión de esquema de evento de pedido no soportada: " + version);
+        try {
+            ByteBuffer in = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+            PedidoEventoTipo tipo = PedidoEventoTipo.fromCode(in.get());
+            UUID eventId = new UUID(in.getLong(), in.getLong());
+            Instant timestamp = Instant.ofEpochMilli(readVarLong(in));
+            int pedidoId = Math.toIntExact(readVarLong(in));
+            int usuarioId = Math.toIntExact(readVarLong(in));
+            int numLineas = Math.toIntExact(readVarLong(in));
+            List<Linea> lineas = new ArrayList<>(numLineas);
+            int productoId = 0;
+            for (int i = 0; i < numLineas; i++) {
+                productoId += Math.toIntExact(readVarLong(in));
+                lineas.add(new Linea(productoId, Math.toIntExact(readVarLong(in)), Math.toIntExact(readVarLong(in))));
+            }
+            return new PedidoEventoMensaje(eventId, tipo, pedidoId, usuarioId, lineas, timestamp);
+        } catch (BufferUnderflowException | ArithmeticException e) {
+            throw new IllegalArgumentException("Evento de pedido mal formado", e);
+        }
+    }
+
+    /**
+     * Obtiene la versión del esquema de un evento serializado sin leer el resto.
+     *
+     * @param bytes bytes del evento
+     * @return versión del esquema
+     * @throws IllegalArgumentException si el evento está vacío
+     */
+    public static byte version(byte[] bytes) {
+        if (bytes == null || bytes.length == 0)
+            throw new IllegalArgumentException("Evento de pedido vacío");
+        return bytes[0];
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8)
+            out.write((int) (value >>> shift));
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Valor negativo en un evento de pedido: " + value);
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Varint demasiado largo en un evento de pedido");
+    }
+}
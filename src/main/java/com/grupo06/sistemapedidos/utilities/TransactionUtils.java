@@ -0,0 +1,30 @@
+package com.grupo06.sistemapedidos.utilities;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Clase utilitaria para ejecutar código cuando se confirma la transacción actual.
+ * Se usa para mantener los índices en memoria (roles, catálogo de productos) sincronizados con la base de datos:
+ * los cambios solo se aplican si la transacción se confirma, nunca tras un rollback.
+ */
+public class TransactionUtils {
+
+    /**
+     * Ejecuta la acción cuando se confirme la transacción actual, o inmediatamente si no hay ninguna activa.
+     *
+     * @param action acción a ejecutar
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.grupo06.sistemapedidos.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Comprueba que los productos se leen de la caché de segundo nivel sin consultar la base de datos, y que una
+ * modificación por JPA no deja valores antiguos en la caché de la entidad ni en la de la consulta por nombre.
+ *
+ * Cada llamada al repositorio es su propia transacción, como en los servicios, para que las lecturas no se sirvan
+ * de la caché de primer nivel.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(CacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CacheConfigTest {
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void productReadsHitTheCacheAndWritesInvalidateIt() {
+        Producto producto = new Producto();
+        producto.setName("teclado");
+        producto.setStock(10);
+        producto.setPrice(100);
+        producto.setDescription("descripcion");
+        Integer id = productRepository.save(producto).getId();
+
+        // La primera lectura por nombre llena la caché de consultas; las siguientes no ejecutan SQL
+        productRepository.findByName("teclado").orElseThrow();
+        long sentencias = statistics.getPrepareStatementCount();
+        assertEquals("teclado", productRepository.findById(id).orElseThrow().getName());
+        assertEquals("teclado", productRepository.findByName("teclado").orElseThrow().getName());
+        assertEquals(sentencias, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getDomainDataRegionStatistics("producto").getHitCount() > 0);
+        assertTrue(statistics.getQueryCacheHitCount() > 0);
+
+        // Tras renombrarlo, ni la entidad ni la consulta por el nombre antiguo devuelven el valor cacheado
+        producto = productRepository.findById(id).orElseThrow();
+        producto.setName("raton");
+        productRepository.save(producto);
+        assertEquals("raton", productRepository.findById(id).orElseThrow().getName());
+        assertTrue(productRepository.findByName("teclado").isEmpty());
+        assertEquals(id, productRepository.findByName("raton").orElseThrow().getId());
+    }
+}
@@ -0,0 +1,139 @@
+package com.grupo06.sistemapedidos.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.grupo06.sistemapedidos.dto.PedidoAgregadoDTO;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje.Linea;
+import com.grupo06.sistemapedidos.dto.TendenciaDTO;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+
+/**
+ * Comprueba con la topología de Kafka Streams que los agregados por producto y por usuario siguen a las altas,
+ * modificaciones y cancelaciones de pedidos, sin contar dos veces los eventos repetidos ni aplicar los atrasados,
+ * y que los productos más vendidos de cada ventana se publican cada intervalo.
+ */
+class KafkaStreamsConfigTest {
+    private static final Instant INICIO = Instant.parse("2026-01-01T10:00:00Z");
+
+    @TempDir
+    private Path stateDir;
+    private TopologyTestDriver driver;
+
+    @BeforeEach
+    void setUp() {
+        StreamsBuilder builder = new StreamsBuilder();
+        new KafkaStreamsConfig(2, 5, new int[] { 5, 15, 60 }).pedidoAgregados(builder);
+        Properties properties = new Properties();
+        properties.put(StreamsConfig.APPLICATION_ID_CONFIG, "pedidos-agregados-test");
+        properties.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        properties.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(builder.build(), properties, INICIO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void aggregatesFollowCreateModifyAndCancel() {
+        PedidoEventoMensaje creado = evento(PedidoEventoTipo.CREADO, 1, 0, new Linea(1, 2, 100), new Linea(2, 1, 50));
+        send(creado);
+        send(evento(PedidoEventoTipo.CREADO, 2, 0, new Linea(1, 1, 100)));
+        assertAgregado(productos(), 1, 2, 3, 300);
+        assertAgregado(productos(), 2, 1, 1, 50);
+        assertAgregado(usuarios(), 7, 2, 4, 350);
+
+        // La modificación quita el producto 2 y cambia las unidades del 1: solo se suma la diferencia
+        PedidoEventoMensaje modificado = evento(PedidoEventoTipo.MODIFICADO, 1, 10, new Linea(1, 5, 100));
+        send(modificado);
+        assertAgregado(productos(), 1, 2, 6, 600);
+        assertAgregado(productos(), 2, 0, 0, 0);
+        assertAgregado(usuarios(), 7, 2, 6, 600);
+
+        // Un evento repetido y uno anterior al último aplicado no cambian nada, y uno ilegible se descarta
+        send(modificado);
+        send(creado);
+        driver.createInputTopic("pedido-creado", new StringSerializer(), new ByteArraySerializer()).pipeInput("1", new byte[] { 99 });
+        assertAgregado(productos(), 1, 2, 6, 600);
+        assertAgregado(usuarios(), 7, 2, 6, 600);
+
+        // La cancelación resta el pedido entero
+        send(evento(PedidoEventoTipo.CANCELADO, 1, 20, new Linea(1, 5, 100)));
+        assertAgregado(productos(), 1, 1, 1, 100);
+        assertAgregado(usuarios(), 7, 1, 1, 100);
+        assertNull(productos().get(3));
+    }
+
+    @Test
+    void publishesTopProductsPerWindow() {
+        // Una hora de pedidos, con el reloj al final: el producto 1 se vende hace 50 minutos, el 3 hace 10 y el 2 hace 2
+        Instant ahora = INICIO.plus(Duration.ofHours(1));
+        send(evento(PedidoEventoTipo.CREADO, 1, 600, new Linea(1, 10, 100)), INICIO.plus(Duration.ofMinutes(10)));
+        send(evento(PedidoEventoTipo.CREADO, 2, 3000, new Linea(3, 5, 100)), ahora.minus(Duration.ofMinutes(10)));
+        send(evento(PedidoEventoTipo.CREADO, 3, 3480, new Linea(2, 3, 100), new Linea(3, 1, 100)), ahora.minus(Duration.ofMinutes(2)));
+        // Las unidades que se quitan de un pedido no restan ventas
+        send(evento(PedidoEventoTipo.MODIFICADO, 3, 3490, new Linea(2, 3, 100)), ahora.minus(Duration.ofMinutes(2)));
+        driver.advanceWallClockTime(Duration.between(INICIO, ahora));
+
+        KeyValueStore<String, TendenciaDTO> tendencia = driver.getKeyValueStore(KafkaStreamsConfig.TENDENCIA_STORE);
+        assertEquals(List.of(List.of(2, 3L), List.of(3, 1L)), productos(tendencia.get(KafkaStreamsConfig.tendenciaKey(5, "0"))));
+        assertEquals(List.of(List.of(3, 6L), List.of(2, 3L)), productos(tendencia.get(KafkaStreamsConfig.tendenciaKey(15, "0"))));
+        // Solo se publican los dos primeros
+        assertEquals(List.of(List.of(1, 10L), List.of(3, 6L)), productos(tendencia.get(KafkaStreamsConfig.tendenciaKey(60, "0"))));
+        assertEquals(ahora, tendencia.get(KafkaStreamsConfig.tendenciaKey(5, "0")).getCalculada());
+    }
+
+    private void send(PedidoEventoMensaje evento) {
+        send(evento, INICIO);
+    }
+
+    private void send(PedidoEventoMensaje evento, Instant momento) {
+        TestInputTopic<String, byte[]> topic = driver.createInputTopic(evento.tipo().getTopic(), new StringSerializer(), new ByteArraySerializer());
+        topic.pipeInput(String.valueOf(evento.pedidoId()), PedidoEventoCodec.encode(evento), momento);
+    }
+
+    // Producto y unidades de cada producto más vendido
+    private static List<List<Object>> productos(TendenciaDTO tendencia) {
+        return tendencia.getProductos().stream().map(producto -> List.<Object>of(producto.getProducto(), producto.getUnidades())).toList();
+    }
+
+    private KeyValueStore<Integer, PedidoAgregadoDTO> productos() {
+        return driver.getKeyValueStore(KafkaStreamsConfig.PRODUCTOS_STORE);
+    }
+
+    private KeyValueStore<Integer, PedidoAgregadoDTO> usuarios() {
+        return driver.getKeyValueStore(KafkaStreamsConfig.USUARIOS_STORE);
+    }
+
+    // Evento de un pedido del usuario 7, segundos después del inicio
+    private static PedidoEventoMensaje evento(PedidoEventoTipo tipo, int pedidoId, int segundos, Linea... lineas) {
+        return new PedidoEventoMensaje(UUID.randomUUID(), tipo, pedidoId, 7, List.of(lineas), INICIO.plusSeconds(segundos));
+    }
+
+    private static void assertAgregado(KeyValueStore<Integer, PedidoAgregadoDTO> store, int id, long pedidos, long unidades, long importe) {
+        PedidoAgregadoDTO agregado = store.get(id);
+        assertEquals(List.of(id, pedidos, unidades, importe),
+                List.of(agregado.getId(), agregado.getPedidos(), agregado.getUnidades(), agregado.getImporte()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.grupo06.sistemapedidos.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Comprueba con dos pools H2 en memoria, montados como en {@link DatabaseConfig}, que las transacciones de solo
+ * lectura van a la réplica, las de escritura al principal y las de lectura al principal si la réplica está caída.
+ */
+class ReplicaRoutingDataSourceTest {
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        primary = pool("primary");
+        replica = pool("replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        Consultas consultas = start(List.of(replica));
+
+        assertEquals("replica", consultas.leer());
+        assertEquals("primary", consultas.escribir());
+        assertEquals("replica", consultas.leer());
+    }
+
+    @Test
+    void readOnlyTransactionsFallBackToThePrimary() throws SQLException {
+        DataSource caida = mock(DataSource.class);
+        when(caida.getConnection()).thenThrow(new SQLException("Connection refused"));
+        Consultas consultas = start(List.of(caida));
+
+        assertEquals("primary", consultas.leer());
+    }
+
+    private Consultas start(List<DataSource> replicas) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replicas, 30000));
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(DataSource.class, () -> proxy);
+        context.register(TestConfig.class);
+        context.refresh();
+        return context.getBean(Consultas.class);
+    }
+
+    // Cada base de datos tiene una tabla con su nombre, para saber qué pool ha servido la consulta
+    private static HikariDataSource pool(String nombre) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:" + nombre + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setPoolName(nombre);
+        new JdbcTemplate(pool).execute("CREATE TABLE origen (nombre VARCHAR(20)); INSERT INTO origen VALUES ('" + nombre + "')");
+        return pool;
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TestConfig {
+        @Bean
+        PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        Consultas consultas(DataSource dataSource) {
+            return new Consultas(new JdbcTemplate(dataSource));
+        }
+    }
+
+    static class Consultas {
+        private final JdbcTemplate jdbcTemplate;
+
+        Consultas(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Transactional(readOnly = true)
+        public String leer() {
+            return jdbcTemplate.queryForObject("SELECT nombre FROM origen", String.class);
+        }
+
+        @Transactional
+        public String escribir() {
+            return jdbcTemplate.queryForObject("SELECT nombre FROM origen", String.class);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.grupo06.sistemapedidos.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.service.ExportService;
+import com.grupo06.sistemapedidos.service.ProductImportService;
+import com.grupo06.sistemapedidos.service.ProductService;
+
+/**
+ * Comprueba que {@code GET /api/producto/export} devuelve un objeto JSON por línea, que no guarda los productos
+ * exportados en el contexto de persistencia y que con la tabla vacía la respuesta está vacía.
+ */
+@DataJpaTest(properties = "pedidos.export.chunk-size=2")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ ProductController.class, ExportService.class })
+class ProductExportTest {
+    private static final int PRODUCTOS = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ProductController productController;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private ProductService productService;
+    @MockitoBean
+    private ProductImportService productImportService;
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(productController).build();
+    }
+
+    @Test
+    void exportWritesOneProductPerLine() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Producto producto = new Producto();
+            producto.setName("producto-" + i);
+            producto.setStock(i);
+            producto.setPrice(100 + i);
+            producto.setDescription("descripcion\n" + i);
+            ids.add(entityManager.persist(producto).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        String body = mockMvc.perform(get("/api/producto/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        // Los saltos de línea dentro de los valores van escapados, así que cada línea es un producto completo
+        String[] lineas = body.split("\n");
+        assertEquals(PRODUCTOS, lineas.length);
+        assertTrue(body.endsWith("\n"));
+        for (int i = 0; i < PRODUCTOS; i++) {
+            JsonNode producto = objectMapper.readTree(lineas[i]);
+            assertEquals(ids.get(i), producto.get("id").asInt());
+            assertEquals("producto-" + i, producto.get("name").asText());
+            assertEquals(100 + i, producto.get("price").asInt());
+            assertEquals("descripcion\n" + i, producto.get("description").asText());
+        }
+
+        // Cada dos productos se vacía el contexto: solo queda el último, no la tabla entera
+        int enContexto = entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount();
+        assertEquals(PRODUCTOS % 2, enContexto);
+    }
+
+    @Test
+    void exportOfEmptyTableIsEmpty() throws Exception {
+        mockMvc.perform(get("/api/producto/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+    }
+}
@@ -0,0 +1,97 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Comprueba que los envíos por encima del máximo sin confirmar se rechazan sin llegar al productor, que cada
+ * confirmación libera su plaza y que la duración de los envíos se registra por resultado.
+ */
+class KafkaProducerServiceTest {
+    private static final int MAX_IN_FLIGHT = 2;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> pedidoEventoKafkaTemplate = mock(KafkaTemplate.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final List<CompletableFuture<SendResult<String, byte[]>>> pendientes = new ArrayList<>();
+
+    private final KafkaProducerService kafkaProducerService = new KafkaProducerService(kafkaTemplate, pedidoEventoKafkaTemplate,
+            MAX_IN_FLIGHT, provider(registry));
+
+    @Test
+    void rejectsSendsOverTheInFlightLimit() throws Exception {
+        when(pedidoEventoKafkaTemplate.send(ArgumentMatchers.<ProducerRecord<String, byte[]>>any())).thenAnswer(invocation -> {
+            CompletableFuture<SendResult<String, byte[]>> envio = new CompletableFuture<>();
+            pendientes.add(envio);
+            return envio;
+        });
+
+        CompletableFuture<?> primero = send();
+        CompletableFuture<?> segundo = send();
+        assertEquals(MAX_IN_FLIGHT, registry.get("pedidos.kafka.producer.in-flight").gauge().value());
+
+        // El tercero se rechaza al momento, sin llegar al productor
+        CompletableFuture<?> rechazado = send();
+        ExecutionException e = assertThrows(ExecutionException.class, rechazado::get);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, registry.get("pedidos.kafka.send.rejected").counter().count());
+        verify(pedidoEventoKafkaTemplate, times(MAX_IN_FLIGHT)).send(ArgumentMatchers.<ProducerRecord<String, byte[]>>any());
+
+        // Cada confirmación, correcta o no, libera una plaza
+        pendientes.get(0).complete(null);
+        pendientes.get(1).completeExceptionally(new IllegalStateException("broker caído"));
+        assertTrue(primero.isDone() && !primero.isCompletedExceptionally());
+        assertTrue(segundo.isCompletedExceptionally());
+        assertEquals(0, registry.get("pedidos.kafka.producer.in-flight").gauge().value());
+        assertFalse(send().isDone());
+
+        assertEquals(1, registry.get("pedidos.kafka.send").tag("result", "ok").timer().count());
+        assertEquals(1, registry.get("pedidos.kafka.send").tag("result", "error").timer().count());
+    }
+
+    @Test
+    void synchronousSendErrorsFailTheFutureAndFreeTheSlot() {
+        when(pedidoEventoKafkaTemplate.send(ArgumentMatchers.<ProducerRecord<String, byte[]>>any())).thenThrow(new IllegalStateException("buffer lleno"));
+
+        for (int i = 0; i < MAX_IN_FLIGHT + 1; i++)
+            assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, send()::get).getCause());
+        assertEquals(0, registry.get("pedidos.kafka.send.rejected").counter().count());
+        assertEquals(MAX_IN_FLIGHT + 1, registry.get("pedidos.kafka.send").tag("result", "error").timer().count());
+    }
+
+    private CompletableFuture<?> send() {
+        return kafkaProducerService.sendEvent("pedido-creado", "1", new byte[] { PedidoEventoCodec.SCHEMA_VERSION });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<MeterRegistry> provider(MeterRegistry registry) {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(registry);
+        return provider;
+    }
+}
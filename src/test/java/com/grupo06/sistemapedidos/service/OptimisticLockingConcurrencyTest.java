@@ -0,0 +1,122 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.dto.ProductDTO;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.mapper.ProductMapper;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+
+/**
+ * Lanza muchas ediciones concurrentes sobre el mismo producto y comprueba que ninguna se pierde:
+ * cada edición o se aplica incrementando la versión, o se rechaza con un conflicto.
+ * Cada edición se confirma en su propia transacción, por eso el test no se ejecuta dentro de una.
+ */
+@DataJpaTest
+@Import({ ProductService.class, ProductMapper.class, ProductCatalog.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OptimisticLockingConcurrencyTest {
+    private static final int HILOS = 16;
+    private static final int EDICIONES_POR_HILO = 20;
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private Integer productoId;
+
+    @BeforeEach
+    void setUp() {
+        Producto producto = new Producto();
+        producto.setName("producto-editado");
+        producto.setStock(0);
+        producto.setPrice(100);
+        producto.setDescription("descripcion");
+        productoId = productRepository.save(producto).getId();
+        productCatalog.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentWritersNeverLoseUpdates() throws Exception {
+        AtomicInteger aplicadas = new AtomicInteger();
+        AtomicInteger conflictos = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> hilos = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            int hilo = i;
+            hilos.add(executor.submit(() -> {
+                salida.await();
+                for (int j = 0; j < EDICIONES_POR_HILO; j++) {
+                    // Cada escritor lee la versión actual y la envía como If-Match, igual que un cliente de la API
+                    Integer version = productRepository.findById(productoId).orElseThrow().getVersion();
+                    // Un stock distinto en cada edición, si no cambiara nada Hibernate no haría el UPDATE
+                    int stock = hilo * EDICIONES_POR_HILO + j + 1;
+                    try {
+                        productService.updateProductById(productoId,
+                                new ProductDTO("producto-editado", stock, 100, "descripcion", null), version);
+                        aplicadas.incrementAndGet();
+                    } catch (RequestException e) {
+                        if (e.getApiError() != ApiError.CONCURRENT_MODIFICATION && e.getApiError() != ApiError.PRECONDITION_FAILED)
+                            throw e;
+                        conflictos.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        salida.countDown();
+        for (Future<?> hilo : hilos)
+            hilo.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        // Cada edición aplicada incrementa la versión exactamente una vez: si alguna se hubiera sobrescrito
+        // sin comprobar la versión, habría menos incrementos que ediciones aplicadas
+        assertEquals(HILOS * EDICIONES_POR_HILO, aplicadas.get() + conflictos.get());
+        assertEquals(aplicadas.get(), productRepository.findById(productoId).orElseThrow().getVersion());
+    }
+
+    @Test
+    void staleIfMatchIsRejected() {
+        Integer version = productRepository.findById(productoId).orElseThrow().getVersion();
+        productService.updateProductById(productoId, new ProductDTO("producto-editado", 1, 100, "descripcion", null), version);
+
+        RequestException e = assertThrows(RequestException.class, () -> productService.updateProductById(
+                productoId, new ProductDTO("producto-editado", 2, 100, "descripcion", null), version));
+        assertEquals(ApiError.PRECONDITION_FAILED, e.getApiError());
+        assertEquals(1, productRepository.findById(productoId).orElseThrow().getStock());
+    }
+}
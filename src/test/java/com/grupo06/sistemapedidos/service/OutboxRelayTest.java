@@ -0,0 +1,242 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.grupo06.sistemapedidos.dto.PedidoDTO;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+import com.grupo06.sistemapedidos.enums.RoleEnum;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.mapper.PedidoMapper;
+import com.grupo06.sistemapedidos.model.OutboxRelayLease;
+import com.grupo06.sistemapedidos.model.Pedido;
+import com.grupo06.sistemapedidos.model.PedidoOutbox;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.model.Roles;
+import com.grupo06.sistemapedidos.model.Usuario;
+import com.grupo06.sistemapedidos.repository.OutboxRelayLeaseRepository;
+import com.grupo06.sistemapedidos.repository.PedidoOutboxRepository;
+import com.grupo06.sistemapedidos.repository.PedidoRepository;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+import com.grupo06.sistemapedidos.repository.RoleRepository;
+import com.grupo06.sistemapedidos.repository.UserRepository;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+
+/**
+ * Comprueba que los eventos de pedidos se guardan en el outbox solo si el pedido se confirma, y que el relay
+ * los publica por lotes en orden y los conserva si Kafka falla (al menos una vez), que espera a Kafka fuera de
+ * cualquier transacción y que solo publica la instancia con la concesión del relay.
+ * El relay usa sus propias transacciones, por eso el test no se ejecuta dentro de una.
+ */
+@DataJpaTest(properties = {
+    "pedidos.outbox.batch-size=2",
+    // El test llama al relay directamente, sin la pasada programada
+    "pedidos.outbox.relay.enabled=false"
+})
+@Import({ PedidoService.class, PedidoMapper.class, StockService.class, PedidoOutboxService.class, OutboxRelayService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+    @Autowired
+    private PedidoService pedidoService;
+    @Autowired
+    private OutboxRelayService relayService;
+    @Autowired
+    private PedidoOutboxRepository outboxRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PedidoRepository pedidoRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private OutboxRelayLeaseRepository leaseRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private Integer usuario;
+    private Integer producto;
+
+    @BeforeEach
+    void setUp() {
+        Usuario entity = new Usuario();
+        entity.setName("usuario");
+        entity.setEmail("usuario@pedidos.com");
+        entity.setPassword("password");
+        entity.setSignUpDate(LocalDate.now());
+        entity.setRole(roleRepository.save(new Roles(RoleEnum.USER, "Usuario")));
+        usuario = userRepository.save(entity).getId();
+
+        Producto entityProducto = new Producto();
+        entityProducto.setName("producto");
+        entityProducto.setStock(1);
+        entityProducto.setPrice(100);
+        entityProducto.setDescription("descripcion");
+        producto = productRepository.save(entityProducto).getId();
+
+        when(kafkaProducerService.sendEvent(anyString(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxRepository.deleteAll();
+        leaseRepository.deleteAll();
+        pedidoRepository.deleteAll();
+        userRepository.deleteAll();
+        productRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void committedOrderIsRelayedWithItsIdAsKey() {
+        pedidoService.postPedido(new PedidoDTO(usuario, List.of(producto), null));
+        Integer pedidoId = pedidoRepository.findByUsuarioId(usuario).get(0).getId();
+        assertEquals(1, outboxRepository.count());
+
+        relayService.relay();
+
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(kafkaProducerService).sendEvent(eq("pedido-creado"), eq(String.valueOf(pedidoId)), payload.capture());
+        PedidoEventoMensaje evento = PedidoEventoCodec.decode(payload.getValue());
+        assertEquals(PedidoEventoTipo.CREADO, evento.tipo());
+        assertEquals(pedidoId, evento.pedidoId());
+        assertEquals(usuario, evento.usuarioId());
+        assertEquals(List.of(new PedidoEventoMensaje.Linea(producto, 1, 100)), evento.lineas());
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void rolledBackOrderWritesNoEvent() {
+        // Sin stock suficiente: el pedido se deshace y con él su evento
+        assertThrows(RequestException.class,
+                () -> pedidoService.postPedido(new PedidoDTO(usuario, List.of(producto, producto), null)));
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void failedSendKeepsEventsAndRetriesInOrder() {
+        byte[][] eventos = new byte[5][];
+        for (int i = 0; i < 5; i++) {
+            eventos[i] = PedidoEventoCodec.encode(new PedidoEventoMensaje(UUID.randomUUID(), PedidoEventoTipo.MODIFICADO,
+                    1, usuario, List.of(new PedidoEventoMensaje.Linea(producto, i + 1, 100)), Instant.now()));
+            outboxRepository.save(new PedidoOutbox("pedido-modificado", "1", eventos[i]));
+        }
+        when(kafkaProducerService.sendEvent(anyString(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker caído")));
+
+        relayService.relay();
+        assertEquals(5, outboxRepository.count());
+
+        when(kafkaProducerService.sendEvent(anyString(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        // Una sola pasada vacía el outbox en lotes de 2
+        relayService.relay();
+        assertEquals(0, outboxRepository.count());
+
+        InOrder orden = inOrder(kafkaProducerService);
+        for (int i = 0; i < 5; i++)
+            orden.verify(kafkaProducerService).sendEvent("pedido-modificado", "1", eventos[i]);
+        // El primer lote falló y se volvió a enviar
+        verify(kafkaProducerService, times(2)).sendEvent("pedido-modificado", "1", eventos[0]);
+    }
+
+    @Test
+    void waitsForKafkaOutsideAnyTransaction() {
+        saveEventos(3);
+        List<Boolean> enTransaccion = new ArrayList<>();
+        when(kafkaProducerService.sendEvent(anyString(), any(), any())).thenAnswer(invocation -> {
+            enTransaccion.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        relayService.relay();
+
+        assertEquals(List.of(false, false, false), enTransaccion);
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void onlyLeaseHolderPublishes() {
+        saveEventos(3);
+        // Otra instancia tiene la concesión: esta no publica nada
+        leaseRepository.save(new OutboxRelayLease(OutboxRelayLease.ID, "otra-instancia", Instant.now().plusSeconds(60)));
+
+        relayService.relay();
+        verify(kafkaProducerService, never()).sendEvent(anyString(), any(), any());
+        assertEquals(3, outboxRepository.count());
+
+        // La concesión de la otra instancia caduca y esta la toma
+        leaseRepository.save(new OutboxRelayLease(OutboxRelayLease.ID, "otra-instancia", Instant.now().minusSeconds(1)));
+
+        relayService.relay();
+        verify(kafkaProducerService, times(3)).sendEvent(anyString(), any(), any());
+        assertEquals(0, outboxRepository.count());
+        assertNotEquals("otra-instancia", leaseRepository.findById(OutboxRelayLease.ID).orElseThrow().getInstancia());
+    }
+
+    private void saveEventos(int numero) {
+        for (int i = 0; i < numero; i++)
+            outboxRepository.save(new PedidoOutbox("pedido-modificado", "1", PedidoEventoCodec.encode(new PedidoEventoMensaje(
+                    UUID.randomUUID(), PedidoEventoTipo.MODIFICADO, 1, usuario, List.of(), Instant.now()))));
+    }
+
+    @Test
+    void eventsOfAnOrderKeepTheirOrderAcrossInstances() {
+        // Esta instancia crea un pedido; si usara bloques de IDs ya tendría reservados los siguientes
+        pedidoService.postPedido(new PedidoDTO(usuario, List.of(producto), null));
+        Pedido pedido = pedidoRepository.findByUsuarioId(usuario).get(0);
+        // El evento de creación lo escribe otra instancia, que pide a la secuencia un ID posterior a los de esta
+        PedidoOutbox creado = outboxRepository.findAll().get(0);
+        outboxRepository.deleteAll();
+        Long idOtraInstancia = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR public.pedido_outbox_seq", Long.class);
+        jdbcTemplate.update("INSERT INTO public.pedido_outbox (id, topic, clave, payload, creado) VALUES (?, ?, ?, ?, ?)",
+                idOtraInstancia, creado.getTopic(), creado.getClave(), creado.getPayload(), Timestamp.from(creado.getCreado()));
+
+        // Esta instancia modifica el pedido después: su evento tiene que ir detrás
+        pedidoService.putPedidoById(pedido.getId(), new PedidoDTO(usuario, List.of(producto), null), null);
+        List<PedidoOutbox> eventos = outboxRepository.findByOrderByIdAsc(Limit.of(10));
+        assertEquals(List.of("pedido-creado", "pedido-modificado"), eventos.stream().map(PedidoOutbox::getTopic).toList());
+
+        relayService.relay();
+        InOrder orden = inOrder(kafkaProducerService);
+        orden.verify(kafkaProducerService).sendEvent(eq("pedido-creado"), eq(String.valueOf(pedido.getId())), any());
+        orden.verify(kafkaProducerService).sendEvent(eq("pedido-modificado"), eq(String.valueOf(pedido.getId())), any());
+    }
+}
@@ -0,0 +1,162 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsMetadata;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.streams.KafkaStreamsInteractiveQueryService;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import com.grupo06.sistemapedidos.config.KafkaStreamsConfig;
+import com.grupo06.sistemapedidos.dto.PedidoAgregadoDTO;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.exception.RequestException;
+
+/**
+ * Comprueba que las consultas de agregados van a la instancia que tiene el ID, que los listados juntan los almacenes
+ * de todas las instancias y que si una no responde se devuelve 503 en lugar de una respuesta incompleta.
+ */
+class PedidoAgregadoServiceTest {
+    private static final HostInfo LOCAL = new HostInfo("pedidos-1", 8080);
+    private static final HostInfo OTRA = new HostInfo("pedidos-2", 8080);
+    private static final String TOKEN = "Bearer token";
+
+    private final KafkaStreamsInteractiveQueryService queryService = mock(KafkaStreamsInteractiveQueryService.class);
+    private final StreamsBuilderFactoryBean streamsBuilderFactoryBean = mock(StreamsBuilderFactoryBean.class);
+    private final KafkaStreams kafkaStreams = mock(KafkaStreams.class);
+    @SuppressWarnings("unchecked")
+    private final ReadOnlyKeyValueStore<Integer, PedidoAgregadoDTO> almacen = mock(ReadOnlyKeyValueStore.class);
+    private final RestClient.Builder restClientBuilder = RestClient.builder();
+    private final MockRestServiceServer otraInstancia = MockRestServiceServer.bindTo(restClientBuilder).build();
+
+    private PedidoAgregadoService service;
+
+    @BeforeEach
+    void setUp() {
+        when(queryService.retrieveQueryableStore(eq(KafkaStreamsConfig.PRODUCTOS_STORE), any())).thenReturn(almacen);
+        when(queryService.getCurrentKafkaStreamsApplicationHostInfo()).thenReturn(LOCAL);
+        when(streamsBuilderFactoryBean.getKafkaStreams()).thenReturn(kafkaStreams);
+        List<StreamsMetadata> instancias = List.of(metadata(LOCAL), metadata(OTRA));
+        when(kafkaStreams.streamsMetadataForStore(KafkaStreamsConfig.PRODUCTOS_STORE)).thenReturn(instancias);
+        service = new PedidoAgregadoService(queryService, streamsBuilderFactoryBean, provider(restClientBuilder), 10, new int[] { 5 });
+    }
+
+    @Test
+    void singleKeyIsAnsweredByItsOwner() {
+        when(almacen.get(1)).thenReturn(new PedidoAgregadoDTO(1, 1, 2, 200));
+        owner(1, LOCAL);
+        owner(2, OTRA);
+        otraInstancia.expect(requestTo("http://pedidos-2:8080/api/estadisticas/producto/2"))
+                .andExpect(header(PedidoAgregadoService.SOLO_LOCAL_HEADER, "true"))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, TOKEN))
+                .andRespond(withSuccess("{\"id\":2,\"pedidos\":3,\"unidades\":4,\"importe\":400}", MediaType.APPLICATION_JSON));
+
+        assertEquals(2, service.getProducto(1, false, TOKEN).getUnidades());
+        assertEquals(4, service.getProducto(2, false, TOKEN).getUnidades());
+        otraInstancia.verify();
+    }
+
+    @Test
+    void peerRequestsOnlyReadTheLocalStore() {
+        // La otra instancia pregunta por un ID que tiene esta: no se vuelve a reenviar
+        assertEquals(0, service.getProducto(2, true, TOKEN).getUnidades());
+        otraInstancia.verify();
+    }
+
+    @Test
+    void listsJoinEveryInstance() {
+        local(new PedidoAgregadoDTO(3, 1, 1, 100));
+        otraInstancia.expect(requestTo("http://pedidos-2:8080/api/estadisticas/producto"))
+                .andExpect(header(PedidoAgregadoService.SOLO_LOCAL_HEADER, "true"))
+                .andRespond(withSuccess("[{\"id\":5,\"pedidos\":1,\"unidades\":1,\"importe\":100},"
+                        + "{\"id\":1,\"pedidos\":1,\"unidades\":1,\"importe\":100}]", MediaType.APPLICATION_JSON));
+
+        assertEquals(List.of(1, 3, 5), service.getProductos(false, TOKEN).stream().map(PedidoAgregadoDTO::getId).toList());
+        otraInstancia.verify();
+    }
+
+    @Test
+    void unreachableInstanceMakesTheListUnavailable() {
+        local(new PedidoAgregadoDTO(3, 1, 1, 100));
+        otraInstancia.expect(requestTo("http://pedidos-2:8080/api/estadisticas/producto"))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        RequestException e = assertThrows(RequestException.class, () -> service.getProductos(false, TOKEN));
+        assertEquals(ApiError.STATISTICS_UNAVAILABLE, e.getApiError());
+    }
+
+    @Test
+    void singleInstanceWithoutApplicationServerQueriesLocally() {
+        when(queryService.getCurrentKafkaStreamsApplicationHostInfo()).thenReturn(null);
+        local(new PedidoAgregadoDTO(3, 1, 1, 100));
+
+        assertEquals(List.of(3), service.getProductos(false, TOKEN).stream().map(PedidoAgregadoDTO::getId).toList());
+        otraInstancia.verify();
+    }
+
+    private void owner(Integer id, HostInfo host) {
+        when(queryService.getKafkaStreamsApplicationHostInfo(eq(KafkaStreamsConfig.PRODUCTOS_STORE), eq(id), any())).thenReturn(host);
+    }
+
+    private void local(PedidoAgregadoDTO... agregados) {
+        Iterator<PedidoAgregadoDTO> valores = List.of(agregados).iterator();
+        when(almacen.all()).thenReturn(new KeyValueIterator<>() {
+            @Override
+            public boolean hasNext() {
+                return valores.hasNext();
+            }
+
+            @Override
+            public KeyValue<Integer, PedidoAgregadoDTO> next() {
+                PedidoAgregadoDTO agregado = valores.next();
+                return KeyValue.pair(agregado.getId(), agregado);
+            }
+
+            @Override
+            public Integer peekNextKey() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    private static StreamsMetadata metadata(HostInfo host) {
+        StreamsMetadata metadata = mock(StreamsMetadata.class);
+        when(metadata.hostInfo()).thenReturn(host);
+        when(metadata.stateStoreNames()).thenReturn(Set.of(KafkaStreamsConfig.PRODUCTOS_STORE));
+        return metadata;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<RestClient.Builder> provider(RestClient.Builder builder) {
+        ObjectProvider<RestClient.Builder> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(builder);
+        return provider;
+    }
+}
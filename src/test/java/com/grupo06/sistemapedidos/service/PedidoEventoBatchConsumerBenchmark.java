@@ -0,0 +1,116 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.config.KafkaConfig;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+import com.grupo06.sistemapedidos.repository.PedidoEventoRepository;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mide con un broker Kafka embebido el envío, el consumo por lotes y el guardado en H2 de los eventos de pedidos, con
+ * la misma configuración que {@link PedidoEventoBatchConsumerTest}.
+ * No comprueba nada: solo escribe los tiempos en el log. Su nombre no acaba en Test para que no se ejecute con el
+ * resto de pruebas; se lanza con {@code mvn test -Dtest=PedidoEventoBatchConsumerBenchmark}.
+ * Los listeners usan sus propias transacciones, por eso no se ejecuta dentro de una.
+ */
+@Slf4j
+@DataJpaTest(showSql = false, properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "spring.kafka.consumer.auto-offset-reset=earliest",
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.order_inserts=true",
+    "pedidos.kafka.batch.max-records=500",
+    "pedidos.kafka.batch.max-wait-ms=100",
+    "pedidos.kafka.listener.single-container=true",
+    "pedidos.kafka.concurrency.pedidos=3",
+    "pedidos.kafka.parallel.enabled=true"
+})
+@EmbeddedKafka(partitions = 3, topics = { "pedido-creado", "pedido-modificado", "pedido-cancelado", "pedido-procesado", "pedido-dead-letter" })
+@ImportAutoConfiguration(KafkaAutoConfiguration.class)
+@Import({ KafkaConfig.class, KafkaProducerService.class, KafkaConsumerService.class, PedidoEventoService.class, PedidoEventoParallelService.class, SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PedidoEventoBatchConsumerBenchmark {
+    private static final int EVENTOS = 10_000;
+    private static final int CALENTAMIENTO = 2_000;
+
+    @Autowired
+    private KafkaProducerService kafkaProducerService;
+    @Autowired
+    private PedidoEventoRepository pedidoEventoRepository;
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        pedidoEventoRepository.deleteAll();
+    }
+
+    @Test
+    void batchConsumptionThroughput() throws Exception {
+        PedidoEventoTipo[] tipos = PedidoEventoTipo.values();
+
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            String[] topics = container.getContainerProperties().getTopics();
+            if (container.isRunning() && !topics[0].startsWith(KafkaConsumerService.REINTENTO_TOPIC))
+                ContainerTestUtils.waitForAssignment(container, topics.length * 3);
+        }
+
+        // Un primer envío calienta productor, consumidores y guardado para que no cuenten en la medida
+        send(eventos(CALENTAMIENTO, tipos), tipos);
+        await(CALENTAMIENTO);
+
+        List<byte[]> eventos = eventos(EVENTOS, tipos);
+        long inicio = System.nanoTime();
+        send(eventos, tipos);
+        long guardados = await(CALENTAMIENTO + EVENTOS) - CALENTAMIENTO;
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        log.info("Consumo por lotes: {} eventos guardados en {} s, {} eventos/s", guardados,
+                String.format("%.2f", segundos), String.format("%.0f", guardados / segundos));
+    }
+
+    private static List<byte[]> eventos(int cantidad, PedidoEventoTipo[] tipos) {
+        List<byte[]> eventos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            eventos.add(PedidoEventoCodec.encode(new PedidoEventoMensaje(UUID.randomUUID(), tipos[i % tipos.length], i, i % 100,
+                    List.of(new PedidoEventoMensaje.Linea(i % 50, 1 + i % 3, 100)), Instant.now())));
+        }
+        return eventos;
+    }
+
+    private void send(List<byte[]> eventos, PedidoEventoTipo[] tipos) throws Exception {
+        List<CompletableFuture<?>> envios = new ArrayList<>(eventos.size());
+        for (int i = 0; i < eventos.size(); i++)
+            envios.add(kafkaProducerService.sendEvent(tipos[i % tipos.length].getTopic(), String.valueOf(i), eventos.get(i)));
+        CompletableFuture.allOf(envios.toArray(CompletableFuture[]::new)).get();
+    }
+
+    private long await(long esperados) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 60_000;
+        long guardados = pedidoEventoRepository.count();
+        while (guardados < esperados && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+            guardados = pedidoEventoRepository.count();
+        }
+        return guardados;
+    }
+}
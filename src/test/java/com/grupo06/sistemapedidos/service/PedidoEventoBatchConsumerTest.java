@@ -0,0 +1,125 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.config.KafkaConfig;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+import com.grupo06.sistemapedidos.repository.PedidoEventoRepository;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Comprueba con un broker Kafka embebido que los listeners por lotes guardan los eventos de pedidos sin duplicados.
+ * Los tres tópicos se consumen en un único contenedor con tres consumidores que guardan cada lote en carriles
+ * paralelos, y la métrica por partición cuenta todos los eventos. El rendimiento se mide aparte, en
+ * {@link PedidoEventoBatchConsumerBenchmark}.
+ * Los listeners usan sus propias transacciones, por eso el test no se ejecuta dentro de una.
+ */
+@DataJpaTest(showSql = false, properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "spring.kafka.consumer.auto-offset-reset=earliest",
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.order_inserts=true",
+    "pedidos.kafka.batch.max-records=500",
+    "pedidos.kafka.batch.max-wait-ms=100",
+    "pedidos.kafka.listener.single-container=true",
+    "pedidos.kafka.concurrency.pedidos=3",
+    "pedidos.kafka.parallel.enabled=true"
+})
+@EmbeddedKafka(partitions = 3, topics = { "pedido-creado", "pedido-modificado", "pedido-cancelado", "pedido-procesado", "pedido-dead-letter" })
+@ImportAutoConfiguration(KafkaAutoConfiguration.class)
+@Import({ KafkaConfig.class, KafkaProducerService.class, KafkaConsumerService.class, PedidoEventoService.class, PedidoEventoParallelService.class, SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PedidoEventoBatchConsumerTest {
+    private static final int EVENTOS = 10_000;
+
+    @Autowired
+    private KafkaProducerService kafkaProducerService;
+    @Autowired
+    private PedidoEventoRepository pedidoEventoRepository;
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        pedidoEventoRepository.deleteAll();
+    }
+
+    @Test
+    void batchListenersPersistEventsOnce() throws Exception {
+        PedidoEventoTipo[] tipos = PedidoEventoTipo.values();
+        List<byte[]> eventos = new ArrayList<>(EVENTOS);
+        for (int i = 0; i < EVENTOS; i++) {
+            eventos.add(PedidoEventoCodec.encode(new PedidoEventoMensaje(UUID.randomUUID(), tipos[i % tipos.length], i, i % 100,
+                    List.of(new PedidoEventoMensaje.Linea(i % 50, 1 + i % 3, 100)), Instant.now())));
+        }
+
+        // Se envía cuando los consumidores tienen asignadas sus particiones
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            // Los tópicos de reintento se crean con las particiones por defecto del broker
+            String[] topics = container.getContainerProperties().getTopics();
+            if (container.isRunning() && !topics[0].startsWith(KafkaConsumerService.REINTENTO_TOPIC))
+                ContainerTestUtils.waitForAssignment(container, topics.length * 3);
+        }
+
+        send(eventos, tipos);
+        assertEquals(EVENTOS, await(EVENTOS));
+
+        // Cada partición de los tres tópicos tiene su contador y entre todos suman los eventos recibidos
+        Collection<Counter> particiones = meterRegistry.find("pedidos.kafka.consumed").tag("topic", topic -> topic.startsWith("pedido-")
+                && !topic.equals("pedido-procesado") && !topic.equals("pedido-dead-letter")).counters();
+        assertEquals(9, particiones.size());
+        assertEquals(EVENTOS, particiones.stream().mapToDouble(Counter::count).sum());
+
+        // Una nueva entrega de los mismos eventos (al menos una vez) no crea duplicados. Se envían con la misma clave
+        // que una marca de fin nueva: están en la misma partición, así que cuando se guarda la marca ya se han procesado
+        List<CompletableFuture<?>> envios = new ArrayList<>();
+        for (byte[] evento : eventos.subList(0, 300))
+            envios.add(kafkaProducerService.sendEvent("pedido-creado", "repetidos", evento));
+        envios.add(kafkaProducerService.sendEvent("pedido-creado", "repetidos", PedidoEventoCodec.encode(new PedidoEventoMensaje(
+                UUID.randomUUID(), PedidoEventoTipo.CREADO, 0, 0, List.of(), Instant.now()))));
+        CompletableFuture.allOf(envios.toArray(CompletableFuture[]::new)).get();
+        assertEquals(EVENTOS + 1, await(EVENTOS + 1));
+    }
+
+    private void send(List<byte[]> eventos, PedidoEventoTipo[] tipos) throws Exception {
+        List<CompletableFuture<?>> envios = new ArrayList<>(eventos.size());
+        for (int i = 0; i < eventos.size(); i++)
+            envios.add(kafkaProducerService.sendEvent(tipos[i % tipos.length].getTopic(), String.valueOf(i), eventos.get(i)));
+        CompletableFuture.allOf(envios.toArray(CompletableFuture[]::new)).get();
+    }
+
+    private long await(long esperados) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 60_000;
+        long guardados = pedidoEventoRepository.count();
+        while (guardados < esperados && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+            guardados = pedidoEventoRepository.count();
+        }
+        return guardados;
+    }
+}
@@ -0,0 +1,93 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+
+/**
+ * Comprueba que el guardado en carriles mantiene el orden de los eventos de cada pedido y devuelve el primer mensaje
+ * sin guardar cuando falla un carril. La comparación de tiempos con un único saveAll está en
+ * {@link PedidoEventoSaveBenchmark}.
+ */
+class PedidoEventoParallelServiceTest {
+    private static final int LANES = 8;
+    private static final int LOTE = 500;
+    private static final int PEDIDOS = 50;
+
+    private final PedidoEventoService pedidoEventoService = mock(PedidoEventoService.class);
+    private final PedidoEventoParallelService parallelService = new PedidoEventoParallelService(pedidoEventoService, LANES, true);
+    private final List<List<PedidoEventoMensaje>> guardados = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void tearDown() {
+        parallelService.shutdown();
+    }
+
+    @Test
+    void keepsOrderPerPedido() {
+        when(pedidoEventoService.saveMensajes(anyList())).thenAnswer(invocation -> {
+            List<PedidoEventoMensaje> eventos = invocation.getArgument(0);
+            guardados.add(eventos);
+            return eventos.size();
+        });
+
+        parallelService.save(lote(), posiciones());
+
+        assertEquals(LANES, guardados.size());
+        for (List<PedidoEventoMensaje> carril : guardados) {
+            int[] ultimo = new int[PEDIDOS];
+            for (PedidoEventoMensaje evento : carril) {
+                // Todos los eventos de un pedido están en el mismo carril y en orden de llegada
+                assertTrue(evento.lineas().get(0).cantidad() > ultimo[evento.pedidoId()]);
+                ultimo[evento.pedidoId()] = evento.lineas().get(0).cantidad();
+            }
+        }
+        assertEquals(LOTE, guardados.stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    void returnsFirstUnsavedRecordOfFailedLanes() {
+        // Falla el carril de los pedidos 3, 11, 19...; su primer evento es el del pedido 3, en la posición 3
+        when(pedidoEventoService.saveMensajes(anyList())).thenAnswer(invocation -> {
+            List<PedidoEventoMensaje> eventos = invocation.getArgument(0);
+            if (eventos.get(0).pedidoId() % LANES == 3)
+                throw new IllegalStateException("base de datos caída");
+            return eventos.size();
+        });
+        // Con un mensaje ilegible al principio del lote, las posiciones van desplazadas en uno
+        List<Integer> posiciones = IntStream.range(1, LOTE + 1).boxed().toList();
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class, () -> parallelService.save(lote(), posiciones));
+        assertEquals(4, e.getIndex());
+        assertEquals("base de datos caída", e.getCause().getMessage());
+    }
+
+    // Eventos de PEDIDOS pedidos; las unidades de la línea numeran los eventos de cada pedido en orden de llegada
+    private static List<PedidoEventoMensaje> lote() {
+        List<PedidoEventoMensaje> eventos = new ArrayList<>(LOTE);
+        for (int i = 0; i < LOTE; i++) {
+            eventos.add(new PedidoEventoMensaje(UUID.randomUUID(), PedidoEventoTipo.MODIFICADO, i % PEDIDOS, 1,
+                    List.of(new PedidoEventoMensaje.Linea(1, i / PEDIDOS + 1, 100)), Instant.now()));
+        }
+        return eventos;
+    }
+
+    private static List<Integer> posiciones() {
+        return IntStream.range(0, LOTE).boxed().toList();
+    }
+}
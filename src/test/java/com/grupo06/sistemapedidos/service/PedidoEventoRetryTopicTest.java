@@ -0,0 +1,127 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.config.KafkaConfig;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+import com.grupo06.sistemapedidos.model.PedidoEvento;
+import com.grupo06.sistemapedidos.repository.PedidoEventoRepository;
+import com.grupo06.sistemapedidos.utilities.PedidoEventoCodec;
+
+/**
+ * Comprueba con un broker Kafka embebido que un lote de eventos que no se puede guardar pasa a los tópicos de
+ * reintento sin detener al listener principal, y que los eventos que agotan los reintentos o no se pueden leer
+ * acaban en el tópico de eventos fallidos con el tópico de origen.
+ * Los listeners usan sus propias transacciones, por eso el test no se ejecuta dentro de una.
+ */
+@DataJpaTest(showSql = false, properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "spring.kafka.consumer.auto-offset-reset=earliest",
+    "pedidos.kafka.batch.max-wait-ms=100",
+    "pedidos.kafka.retry.attempts=3",
+    "pedidos.kafka.retry.delay-ms=1000",
+    "pedidos.kafka.retry.multiplier=2"
+})
+@EmbeddedKafka(partitions = 1, topics = { "pedido-creado", "pedido-modificado", "pedido-cancelado", "pedido-procesado", "pedido-dead-letter" })
+@ImportAutoConfiguration(KafkaAutoConfiguration.class)
+@Import({ KafkaConfig.class, KafkaProducerService.class, KafkaConsumerService.class, PedidoEventoService.class, PedidoEventoParallelService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PedidoEventoRetryTopicTest {
+    // Pedido cuyos eventos no se pueden guardar nunca
+    private static final int SIEMPRE_FALLA = 1;
+    // Pedido cuyo evento falla solo la primera vez
+    private static final int FALLA_UNA_VEZ = 2;
+
+    @Autowired
+    private KafkaProducerService kafkaProducerService;
+    @Autowired
+    private PedidoEventoRepository pedidoEventoRepository;
+    @MockitoSpyBean
+    private PedidoEventoService pedidoEventoService;
+
+    @BeforeEach
+    void setUp() {
+        AtomicBoolean fallado = new AtomicBoolean();
+        doAnswer(invocation -> {
+            List<PedidoEventoMensaje> eventos = invocation.getArgument(0);
+            for (PedidoEventoMensaje evento : eventos) {
+                if (evento.pedidoId() == SIEMPRE_FALLA || evento.pedidoId() == FALLA_UNA_VEZ && fallado.compareAndSet(false, true))
+                    throw new IllegalStateException("base de datos caída");
+            }
+            return invocation.callRealMethod();
+        }).when(pedidoEventoService).saveMensajes(anyList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pedidoEventoRepository.deleteAll();
+    }
+
+    @Test
+    void failedEventsAreRetriedOnDelayedTopicsAndDeadLettered() throws Exception {
+        send(SIEMPRE_FALLA);
+        send(FALLA_UNA_VEZ);
+        kafkaProducerService.sendEvent("pedido-creado", "3", new byte[] { 99, 1 }).get();
+        int siguiente = 4;
+
+        // El siguiente evento se guarda mientras el que siempre falla sigue esperando en los reintentos
+        send(siguiente);
+        await(() -> saved(siguiente));
+        assertTrue(dlt().stream().noneMatch(evento -> evento.getDescripcion().contains("Evento de pedido-creado-0@0 ")));
+
+        // El que falla una vez se guarda en el primer reintento
+        await(() -> saved(FALLA_UNA_VEZ));
+
+        // El ilegible va directamente al tópico de fallidos; el que siempre falla, tras agotar los reintentos,
+        // con el tópico, la partición y el offset originales
+        await(() -> dlt().size() == 2);
+        List<String> fallidos = dlt().stream().map(PedidoEvento::getDescripcion).toList();
+        assertTrue(fallidos.stream().anyMatch(descripcion -> descripcion.startsWith("Evento de pedido-creado-0@0 sin procesar (java.lang.IllegalStateException)")),
+                fallidos.toString());
+        assertTrue(fallidos.stream().anyMatch(descripcion -> descripcion.startsWith("Evento de pedido-creado-0@2 sin procesar (java.lang.IllegalArgumentException)")),
+                fallidos.toString());
+        assertFalse(saved(SIEMPRE_FALLA));
+    }
+
+    private void send(int pedidoId) throws Exception {
+        kafkaProducerService.sendEvent("pedido-creado", String.valueOf(pedidoId), PedidoEventoCodec.encode(new PedidoEventoMensaje(
+                UUID.randomUUID(), PedidoEventoTipo.CREADO, pedidoId, 1, List.of(), Instant.now()))).get();
+    }
+
+    private boolean saved(int pedidoId) {
+        return pedidoEventoRepository.findAll().stream().anyMatch(evento -> Integer.valueOf(pedidoId).equals(evento.getPedidoId()));
+    }
+
+    private List<PedidoEvento> dlt() {
+        return pedidoEventoRepository.findAll().stream().filter(evento -> KafkaConsumerService.DLT_TOPIC.equals(evento.getTopic())).toList();
+    }
+
+    private static void await(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 60_000;
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, "Tiempo de espera agotado");
+            Thread.sleep(50);
+        }
+    }
+}
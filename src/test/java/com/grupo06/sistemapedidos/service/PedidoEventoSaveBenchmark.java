@@ -0,0 +1,92 @@
+package com.grupo06.sistemapedidos.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+import com.grupo06.sistemapedidos.repository.PedidoEventoRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mide el guardado real de lotes de eventos de pedidos en H2 con un único saveAll y repartido en carriles.
+ * No comprueba nada: solo escribe los tiempos en el log. Su nombre no acaba en Test para que no se ejecute con el
+ * resto de pruebas; se lanza con {@code mvn test -Dtest=PedidoEventoSaveBenchmark}.
+ * Los carriles usan sus propias transacciones, por eso no se ejecuta dentro de una.
+ */
+@Slf4j
+@DataJpaTest(showSql = false, properties = {
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.order_inserts=true"
+})
+@Import({ PedidoEventoService.class, PedidoEventoParallelService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PedidoEventoSaveBenchmark {
+    private static final int LOTE = 500;
+    private static final int PEDIDOS = 50;
+    private static final int LOTES = 20;
+    private static final int CALENTAMIENTO = 5;
+
+    @Autowired
+    private PedidoEventoService pedidoEventoService;
+    @Autowired
+    private PedidoEventoParallelService parallelService;
+    @Autowired
+    private PedidoEventoRepository pedidoEventoRepository;
+
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @AfterEach
+    void tearDown() {
+        pedidoEventoRepository.deleteAll();
+    }
+
+    @Test
+    void singleSaveAllAgainstLanes() {
+        List<Integer> posiciones = IntStream.range(0, LOTE).boxed().toList();
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            pedidoEventoService.saveMensajes(lote());
+            parallelService.save(lote(), posiciones);
+        }
+        pedidoEventoRepository.deleteAll();
+
+        long secuencial = 0;
+        long paralelo = 0;
+        for (int i = 0; i < LOTES; i++) {
+            // Eventos nuevos en cada lote: los repetidos se descartan por su ID y no se escribirían
+            List<PedidoEventoMensaje> lote = lote();
+            long inicio = System.nanoTime();
+            pedidoEventoService.saveMensajes(lote);
+            secuencial += System.nanoTime() - inicio;
+
+            lote = lote();
+            inicio = System.nanoTime();
+            parallelService.save(lote, posiciones);
+            paralelo += System.nanoTime() - inicio;
+        }
+
+        log.info("Lotes de {} eventos en H2: un único saveAll {} ms/lote, en carriles {} ms/lote",
+                LOTE, String.format("%.1f", secuencial / 1e6 / LOTES), String.format("%.1f", paralelo / 1e6 / LOTES));
+    }
+
+    private static List<PedidoEventoMensaje> lote() {
+        List<PedidoEventoMensaje> eventos = new ArrayList<>(LOTE);
+        for (int i = 0; i < LOTE; i++) {
+            eventos.add(new PedidoEventoMensaje(UUID.randomUUID(), PedidoEventoTipo.MODIFICADO, i % PEDIDOS, 1,
+                    List.of(new PedidoEventoMensaje.Linea(1, i / PEDIDOS + 1, 100)), Instant.now()));
+        }
+        return eventos;
+    }
+}
@@ -0,0 +1,161 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import com.grupo06.sistemapedidos.dto.CursorPageDTO;
+import com.grupo06.sistemapedidos.dto.PedidoBatchResultDTO;
+import com.grupo06.sistemapedidos.dto.PedidoDTO;
+import com.grupo06.sistemapedidos.enums.RoleEnum;
+import com.grupo06.sistemapedidos.mapper.PedidoMapper;
+import com.grupo06.sistemapedidos.model.Pedido;
+import com.grupo06.sistemapedidos.model.PedidoLinea;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.model.Roles;
+import com.grupo06.sistemapedidos.model.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Comprueba el número de sentencias SQL de las lecturas de pedidos, para que no vuelva a aparecer
+ * el problema N+1 (una consulta por pedido para sus productos y su usuario).
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    // Misma configuración de escrituras en lote que application-demo.properties
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.order_inserts=true"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ PedidoService.class, PedidoMapper.class, ExportService.class, StockService.class, PedidoOutboxService.class })
+class PedidoQueryCountTest {
+    private static final int PEDIDOS = 10;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PedidoService pedidoService;
+    @Autowired
+    private ExportService exportService;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private Statistics statistics;
+    private Integer primerPedido;
+    private Roles role;
+    private List<Producto> productos;
+
+    @BeforeEach
+    void setUp() {
+        role = entityManager.persist(new Roles(RoleEnum.USER, "Usuario"));
+        productos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Producto producto = new Producto();
+            producto.setName("producto" + i);
+            producto.setStock(10);
+            producto.setPrice(100);
+            producto.setDescription("descripcion");
+            productos.add(entityManager.persist(producto));
+        }
+        for (int i = 0; i < PEDIDOS; i++) {
+            // Un usuario distinto por pedido, el caso en el que la carga EAGER hacía una consulta por pedido
+            Usuario usuario = persistUsuario("usuario" + i);
+            Pedido pedido = new Pedido(null, usuario, new ArrayList<>(), null);
+            for (Producto producto : productos.subList(0, 1 + i % 3))
+                pedido.getLineas().add(new PedidoLinea(pedido, producto, 2, producto.getPrice()));
+            entityManager.persist(pedido);
+            if (primerPedido == null)
+                primerPedido = pedido.getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllPedidosUsesTwoStatementsPerPage() {
+        CursorPageDTO<PedidoDTO> page = pedidoService.getAllPedidos(null, PEDIDOS, "asc");
+
+        assertEquals(PEDIDOS, page.getSize());
+        assertEquals(3, page.getItems().get(2).getLineas().size());
+        // Página de pedidos + líneas de toda la página
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getPedidoByIdUsesOneStatement() {
+        PedidoDTO pedido = pedidoService.getPedidoById(primerPedido);
+
+        assertEquals(1, pedido.getLineas().size());
+        assertEquals(2, pedido.getLineas().get(0).getCantidad());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void exportPedidosUsesOneStatement() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(PEDIDOS, exportService.exportPedidos(out));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void postPedidosUsesSetBasedStatements() {
+        // El doble de pedidos que stock: la mitad se crean y la otra mitad se rechazan sin deshacer el lote
+        List<PedidoDTO> lote = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            lote.add(new PedidoDTO(persistUsuario("lote" + i).getId(), List.of(productos.get(0).getId(), productos.get(1).getId()), null));
+        Integer conPedido = entityManager.getEntityManager()
+                .createQuery("SELECT p.usuario.id FROM Pedido p WHERE p.id = :id", Integer.class)
+                .setParameter("id", primerPedido).getSingleResult();
+        lote.add(new PedidoDTO(conPedido, List.of(productos.get(2).getId()), null));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<PedidoBatchResultDTO> resultados = pedidoService.postPedidos(lote);
+        entityManager.flush();
+
+        assertEquals(10, resultados.stream().filter(r -> r.getCode() == 201).count());
+        assertEquals(10, resultados.stream().filter(r -> r.getError() != null && r.getError().getMessage().equals("Insufficient Stock")).count());
+        assertEquals(409, resultados.get(20).getCode());
+        // Usuarios + pedidos existentes + productos + un UPDATE de stock por producto + INSERT de pedidos
+        // + INSERT de pedido_linea + UPDATE del total gastado + INSERT del outbox (los IDs de pedidos salen del bloque
+        // de pedido_seq ya reservado en setUp). pedido_outbox_seq no reserva bloques, para que el ID dé el orden de
+        // publicación: es la única consulta por pedido creado
+        assertEquals(9 + 10, statistics.getPrepareStatementCount());
+        entityManager.clear();
+        assertEquals(200, entityManager.find(Usuario.class, lote.get(0).getUsuario()).getTotalSpent());
+    }
+
+    private Usuario persistUsuario(String name) {
+        Usuario usuario = new Usuario();
+        usuario.setName(name);
+        usuario.setEmail(name + "@pedidos.com");
+        usuario.setPassword("password");
+        usuario.setSignUpDate(LocalDate.now());
+        usuario.setRole(role);
+        return entityManager.persist(usuario);
+    }
+}
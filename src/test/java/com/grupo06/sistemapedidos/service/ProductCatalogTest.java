@@ -0,0 +1,103 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.dto.ProductDTO;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.mapper.ProductMapper;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+
+/**
+ * Comprueba que las búsquedas por nombre de ProductService siguen a las altas, renombrados y borrados, tanto los
+ * hechos en esta instancia (que actualizan el índice del catálogo) como los hechos en otra (directamente en la base
+ * de datos), y que el índice único del nombre rechaza un duplicado que pasa la comprobación del catálogo.
+ *
+ * Sin transacción de test, para que las actualizaciones del índice programadas en afterCommit se ejecuten.
+ */
+@DataJpaTest
+@Import({ ProductService.class, ProductMapper.class, ProductCatalog.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductCatalogTest {
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @MockitoSpyBean
+    private ProductCatalog productCatalog;
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void lookupsFollowLocalCreateRenameAndDelete() {
+        productService.postProduct(producto("Teclado Mecanico"));
+        assertEquals("teclado-mecanico", productService.getProductoByName("Teclado mecanico").getName());
+        Integer id = productRepository.findByName("teclado-mecanico").orElseThrow().getId();
+        assertError(ApiError.PRODUCT_ALREADY_EXISTS, () -> productService.postProduct(producto("teclado mecanico ")));
+
+        productService.updateProductById(id, producto("Teclado"), null);
+        assertError(ApiError.RECORD_NOT_FOUND, () -> productService.getProductoByName("teclado-mecanico"));
+        assertEquals("teclado", productService.getProductoByName("Teclado").getName());
+
+        productService.deleteById(id);
+        assertError(ApiError.RECORD_NOT_FOUND, () -> productService.getProductoByName("teclado"));
+    }
+
+    @Test
+    void lookupsSeeChangesMadeByOtherInstances() {
+        // Otra instancia da de alta un producto: el índice local no lo tiene
+        Producto producto = productRepository.save(new ProductMapper().toEntity(producto("raton")));
+        assertEquals("raton", productService.getProductoByName("raton").getName());
+        assertError(ApiError.PRODUCT_ALREADY_EXISTS, () -> productService.postProduct(producto("Raton")));
+
+        // Y después lo renombra: la entrada local del nombre antiguo ha quedado antigua
+        producto = productRepository.findById(producto.getId()).orElseThrow();
+        producto.setName("raton-inalambrico");
+        productRepository.save(producto);
+        assertError(ApiError.RECORD_NOT_FOUND, () -> productService.getProductoByName("raton"));
+        assertEquals("raton-inalambrico", productService.getProductoByName("raton inalambrico").getName());
+
+        // Y lo borra
+        productRepository.deleteById(producto.getId());
+        assertError(ApiError.RECORD_NOT_FOUND, () -> productService.getProductoByName("raton inalambrico"));
+    }
+
+    @Test
+    void concurrentDuplicateIsRejectedByTheUniqueIndex() {
+        productService.postProduct(producto("monitor"));
+        // Otra alta concurrente con el mismo nombre ha pasado la comprobación antes de que se confirmara la primera
+        doReturn(Optional.empty()).when(productCatalog).findByName(anyString());
+
+        assertError(ApiError.PRODUCT_ALREADY_EXISTS, () -> productService.postProduct(producto("Monitor")));
+        assertEquals(1, productRepository.findAllByName("monitor").size());
+    }
+
+    private static ProductDTO producto(String name) {
+        return new ProductDTO(name, 10, 100, "descripcion", null);
+    }
+
+    private static void assertError(ApiError error, Runnable accion) {
+        assertEquals(error, assertThrows(RequestException.class, accion::run).getApiError());
+    }
+}
@@ -0,0 +1,142 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import com.grupo06.sistemapedidos.dto.ImportReportDTO;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+
+/**
+ * Comprueba la importación masiva por lotes JDBC (la de H2) con productos nuevos, existentes, duplicados dentro de un
+ * lote y entre lotes, y filas inválidas, además del parser de CSV y la reserva de IDs por bloques.
+ *
+ * Los lotes son de dos filas para que los duplicados caigan en lotes distintos. Los recuentos esperados son los
+ * mismos que da la importación con COPY de PostgreSQL, salvo la repetición entre lotes con upsert, que aquí cuenta como
+ * actualizada.
+ */
+@DataJpaTest(properties = "pedidos.import.batch-size=2")
+@ImportAutoConfiguration({ JacksonAutoConfiguration.class, ValidationAutoConfiguration.class })
+@Import({ ProductImportService.class, ProductCatalog.class })
+class ProductImportServiceTest {
+    private static final String CSV = """
+            name,stock,price,description
+            Monitor,1,200,existente
+            Teclado,5,100,"Teclado, primera fila"
+            Raton,3,50,nuevo
+             raton ,4,60,repetido en el mismo lote
+            TECLADO,7,110,repetido en otro lote
+            Cable,x,1,stock inválido
+            """;
+
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private DataSource dataSource;
+
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Test
+    void upsertUpdatesExistingAndKeepsLastDuplicate() throws Exception {
+        persist("monitor", 9);
+
+        ImportReportDTO report = importCsv(true);
+
+        // La repetición de otro lote (TECLADO) cuenta como actualizada, la del mismo lote como ignorada
+        assertReport(report, 6, 2, 2, 1, 1);
+        assertEquals(1, stock("monitor"));
+        assertEquals(7, stock("teclado"));
+        assertEquals(4, stock("raton"));
+        // Los IDs reservados por la importación no chocan con los que reserva Hibernate después
+        persist("altavoz", 1);
+        assertEquals(4, productRepository.count());
+    }
+
+    @Test
+    void insertOnlySkipsExistingAndKeepsFirstDuplicate() throws Exception {
+        persist("monitor", 9);
+
+        ImportReportDTO report = importCsv(false);
+
+        assertReport(report, 6, 2, 0, 3, 1);
+        assertEquals(9, stock("monitor"));
+        assertEquals(5, stock("teclado"));
+        assertEquals(3, stock("raton"));
+        assertEquals("Teclado, primera fila", productRepository.findByName("teclado").orElseThrow().getDescription());
+    }
+
+    @Test
+    void parseCsvLineHandlesQuotedEscapedAndEmptyFields() {
+        assertEquals(List.of("a", "b, c", "d \"e\""), ProductImportService.parseCsvLine("a,\"b, c\",\"d \"\"e\"\"\""));
+        assertEquals(List.of("", "", ""), ProductImportService.parseCsvLine(",,\"\""));
+        assertEquals(List.of("a", ""), ProductImportService.parseCsvLine("a,"));
+        assertEquals(List.of(""), ProductImportService.parseCsvLine(""));
+        assertEquals(List.of("\""), ProductImportService.parseCsvLine("\"\"\"\""));
+    }
+
+    @Test
+    void idAllocatorReservesWholeBlocks() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SEQUENCE import_test_seq START WITH 1 INCREMENT BY 50");
+            ProductImportService.IdAllocator ids = new ProductImportService.IdAllocator(connection, "SELECT NEXT VALUE FOR import_test_seq");
+            List<Integer> reservados = new ArrayList<>();
+            for (int i = 0; i < 102; i++)
+                reservados.add(ids.next());
+
+            // El valor inicial 1 solo reserva el 1; después cada valor V reserva (V - 50, V]: 51, 101 y 151
+            assertEquals(IntStream.rangeClosed(1, 102).boxed().toList(), reservados);
+            try (var rs = statement.executeQuery("SELECT NEXT VALUE FOR import_test_seq")) {
+                rs.next();
+                assertEquals(201, rs.getInt(1));
+            }
+            statement.execute("DROP SEQUENCE import_test_seq");
+        }
+    }
+
+    private ImportReportDTO importCsv(boolean upsert) throws Exception {
+        ImportReportDTO report = productImportService.importProductos(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), false, upsert);
+        // La importación escribe con JDBC, el contexto de persistencia no lo ve
+        entityManager.clear();
+        return report;
+    }
+
+    private void persist(String name, int stock) {
+        Producto producto = new Producto();
+        producto.setName(name);
+        producto.setStock(stock);
+        producto.setPrice(100);
+        producto.setDescription("descripcion");
+        entityManager.persistAndFlush(producto);
+    }
+
+    private int stock(String name) {
+        return productRepository.findByName(name).orElseThrow().getStock();
+    }
+
+    private static void assertReport(ImportReportDTO report, long read, long inserted, long updated, long skipped, long rejected) {
+        assertEquals(List.of(read, inserted, updated, skipped, rejected),
+                List.of(report.getRead(), report.getInserted(), report.getUpdated(), report.getSkipped(), report.getRejected()));
+    }
+}
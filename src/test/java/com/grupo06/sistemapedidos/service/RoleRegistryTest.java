@@ -0,0 +1,88 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.grupo06.sistemapedidos.dto.RolesDTO;
+import com.grupo06.sistemapedidos.enums.ApiError;
+import com.grupo06.sistemapedidos.enums.RoleEnum;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.mapper.RoleMapper;
+import com.grupo06.sistemapedidos.repository.RoleRepository;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Comprueba que las búsquedas de roles por nombre se sirven desde {@link RoleRegistry} sin consultar la base de
+ * datos, que el registro sigue a las altas y bajas de RoleService y que un rollback no lo modifica.
+ *
+ * Sin transacción de test, para que los refrescos programados en afterCommit se ejecuten.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ RoleService.class, RoleMapper.class, RoleRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RoleRegistryTest {
+    @Autowired
+    private RoleService roleService;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void lookupsByNameFollowCreateAndDeleteWithoutQueries() {
+        roleService.createRole(new RolesDTO(RoleEnum.ADMIN, "Administrador"));
+
+        statistics.clear();
+        assertEquals("Administrador", roleService.getRoleByName(RoleEnum.ADMIN).getDescription());
+        assertEquals("Administrador", roleService.getRoleByName(RoleEnum.ADMIN).getDescription());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        roleService.deleteRoleByName(RoleEnum.ADMIN);
+        RequestException e = assertThrows(RequestException.class, () -> roleService.getRoleByName(RoleEnum.ADMIN));
+        assertEquals(ApiError.ROLE_NOT_FOUND, e.getApiError());
+    }
+
+    @Test
+    void rolledBackCreateLeavesRegistryUnchanged() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            roleService.createRole(new RolesDTO(RoleEnum.USER, "Usuario"));
+            status.setRollbackOnly();
+        });
+
+        assertTrue(roleRepository.findByName(RoleEnum.USER).isEmpty());
+        assertThrows(RequestException.class, () -> roleService.getRoleByName(RoleEnum.USER));
+    }
+}
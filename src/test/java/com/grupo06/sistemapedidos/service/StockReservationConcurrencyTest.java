@@ -0,0 +1,107 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.exception.RequestException;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+
+/**
+ * Lanza reservas concurrentes de un único producto y comprueba que nunca se vende más stock del que hay: se
+ * confirman exactamente tantas reservas como unidades había, el resto se rechazan y el stock acaba a cero.
+ * También comprueba que liberar unidades las devuelve al stock.
+ * Cada reserva se confirma en su propia transacción, por eso el test no se ejecuta dentro de una.
+ */
+@DataJpaTest
+@Import(StockService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationConcurrencyTest {
+    private static final int STOCK = 500;
+    private static final int HILOS = 16;
+    private static final int PEDIDOS_POR_HILO = 50;
+
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private Integer productoId;
+
+    @BeforeEach
+    void setUp() {
+        Producto producto = new Producto();
+        producto.setName("producto-popular");
+        producto.setStock(STOCK);
+        producto.setPrice(100);
+        producto.setDescription("descripcion");
+        productoId = productRepository.save(producto).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        AtomicInteger reservados = new AtomicInteger();
+        AtomicInteger rechazados = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> hilos = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            hilos.add(executor.submit(() -> {
+                salida.await();
+                for (int j = 0; j < PEDIDOS_POR_HILO; j++) {
+                    try {
+                        stockService.reserve(Map.of(productoId, 1));
+                        reservados.incrementAndGet();
+                    } catch (RequestException e) {
+                        rechazados.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        salida.countDown();
+        for (Future<?> hilo : hilos)
+            hilo.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        int intentos = HILOS * PEDIDOS_POR_HILO;
+        assertEquals(STOCK, reservados.get());
+        assertEquals(intentos - STOCK, rechazados.get());
+        assertEquals(0, productRepository.findById(productoId).orElseThrow().getStock());
+    }
+
+    @Test
+    void releaseReturnsReservedUnits() {
+        stockService.reserve(Map.of(productoId, 3));
+        stockService.release(Map.of(productoId, 2));
+
+        assertEquals(STOCK - 1, productRepository.findById(productoId).orElseThrow().getStock());
+    }
+}
@@ -0,0 +1,194 @@
+package com.grupo06.sistemapedidos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.grupo06.sistemapedidos.dto.LineaPedidoDTO;
+import com.grupo06.sistemapedidos.dto.PedidoDTO;
+import com.grupo06.sistemapedidos.dto.ReconciliationReportDTO;
+import com.grupo06.sistemapedidos.dto.UsuarioDTO;
+import com.grupo06.sistemapedidos.enums.RoleEnum;
+import com.grupo06.sistemapedidos.mapper.PedidoMapper;
+import com.grupo06.sistemapedidos.mapper.UserMapper;
+import com.grupo06.sistemapedidos.model.Producto;
+import com.grupo06.sistemapedidos.model.Roles;
+import com.grupo06.sistemapedidos.model.Usuario;
+import com.grupo06.sistemapedidos.repository.PedidoRepository;
+import com.grupo06.sistemapedidos.repository.ProductRepository;
+import com.grupo06.sistemapedidos.repository.RoleRepository;
+import com.grupo06.sistemapedidos.repository.UserRepository;
+
+/**
+ * Comprueba que crear, modificar y eliminar pedidos mantiene Usuario.totalSpent, que la API de usuarios no lo
+ * puede escribir, y que la conciliación por tramos en paralelo detecta y corrige las diferencias.
+ * La conciliación usa sus propias transacciones en otros hilos, por eso el test no se ejecuta dentro de una.
+ */
+@DataJpaTest(properties = {
+    "pedidos.reconciliation.chunk-size=3",
+    "pedidos.reconciliation.threads=4"
+})
+@Import({ PedidoService.class, PedidoMapper.class, StockService.class, PedidoOutboxService.class, TotalSpentReconciliationService.class,
+    UserService.class, UserMapper.class, RoleRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TotalSpentReconciliationTest {
+    private static final int USUARIOS = 10;
+
+    @Autowired
+    private PedidoService pedidoService;
+    @Autowired
+    private TotalSpentReconciliationService reconciliationService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PedidoRepository pedidoRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+    @MockitoBean
+    private JwtTokenService jwtTokenService;
+
+    private final List<Integer> usuarios = new ArrayList<>();
+    private Integer barato;
+    private Integer caro;
+
+    @BeforeEach
+    void setUp() {
+        Roles role = roleRepository.save(new Roles(RoleEnum.USER, "Usuario"));
+        for (int i = 0; i < USUARIOS; i++) {
+            Usuario usuario = new Usuario();
+            usuario.setName("usuario" + i);
+            usuario.setEmail("usuario" + i + "@pedidos.com");
+            usuario.setPassword("password");
+            usuario.setSignUpDate(LocalDate.now());
+            usuario.setRole(role);
+            usuarios.add(userRepository.save(usuario).getId());
+        }
+        barato = productRepository.save(producto("barato", 100)).getId();
+        caro = productRepository.save(producto("caro", 250)).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pedidoRepository.deleteAll();
+        userRepository.deleteAll();
+        productRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void orderChangesKeepTotalSpentInSync() {
+        pedidoService.postPedido(new PedidoDTO(usuarios.get(0), List.of(barato, barato, caro), null));
+        assertEquals(450, totalSpent(0));
+
+        Integer pedidoId = pedidoRepository.findByUsuarioId(usuarios.get(0)).get(0).getId();
+        pedidoService.putPedidoById(pedidoId, new PedidoDTO(usuarios.get(0), List.of(caro), null), null);
+        assertEquals(250, totalSpent(0));
+
+        // Cambio de usuario: se resta al anterior y se suma al nuevo
+        pedidoService.putPedidoById(pedidoId, new PedidoDTO(usuarios.get(1), List.of(barato), null), null);
+        assertEquals(0, totalSpent(0));
+        assertEquals(100, totalSpent(1));
+
+        pedidoService.deletePedidoById(pedidoId);
+        assertEquals(0, totalSpent(1));
+    }
+
+    @Test
+    void userApiCannotWriteTotalSpent() {
+        // El rol se ha guardado directamente con el repositorio, sin pasar por RoleService
+        roleRegistry.refresh();
+        UsuarioDTO leido = userService.getUserById(usuarios.get(0));
+        assertEquals(0, leido.getTotalSpent());
+
+        // Un pedido posterior al GET suma su importe; el PUT que devuelve el total leído antes no lo pisa
+        pedidoService.postPedido(new PedidoDTO(usuarios.get(0), List.of(caro), null));
+        leido.setName("renombrado");
+        assertEquals(250, userService.putUserById(usuarios.get(0), leido, null).getTotalSpent());
+        leido.setTotalSpent(9999);
+        assertEquals(250, userService.putUserById(usuarios.get(0), leido, null).getTotalSpent());
+        assertEquals(250, totalSpent(0));
+
+        // Un usuario nuevo empieza en 0 aunque la petición traiga otro total
+        UsuarioDTO nuevo = new UsuarioDTO("nuevo", "nuevo@pedidos.com", LocalDate.now(), 500, RoleEnum.USER);
+        nuevo.setPassword("password");
+        assertEquals(0, userMapper.toEntity(nuevo).getTotalSpent());
+    }
+
+    @Test
+    void reconciliationReportsAndRepairsDrift() {
+        for (int i = 0; i < USUARIOS; i++)
+            pedidoService.postPedido(new PedidoDTO(usuarios.get(i), List.of(barato, caro), null));
+        assertEquals(0, reconciliationService.reconcile(false).getDrifted());
+
+        // Dos usuarios con el total modificado fuera de la aplicación
+        userRepository.addTotalSpent(usuarios.get(2), 40);
+        userRepository.addTotalSpent(usuarios.get(7), -350);
+
+        ReconciliationReportDTO report = reconciliationService.reconcile(false);
+        assertEquals(USUARIOS, report.getChecked());
+        assertEquals(2, report.getDrifted());
+        assertEquals(310, report.getTotalDrift());
+        assertEquals(-40L, report.getDrifts().get(usuarios.get(2)));
+        assertEquals(390, totalSpent(2));
+
+        assertEquals(2, reconciliationService.reconcile(true).getRepaired());
+        assertEquals(350, totalSpent(2));
+        assertEquals(350, totalSpent(7));
+        assertEquals(0, reconciliationService.reconcile(false).getDrifted());
+    }
+
+    @Test
+    void linesKeepPurchasePrice() {
+        pedidoService.postPedido(new PedidoDTO(usuarios.get(0), null, List.of(new LineaPedidoDTO(caro, 3, null)), null));
+        assertEquals(750, totalSpent(0));
+
+        // Subir el precio no cambia el importe de los pedidos ya hechos
+        Producto producto = productRepository.findById(caro).orElseThrow();
+        producto.setPrice(300);
+        productRepository.save(producto);
+        assertEquals(0, reconciliationService.reconcile(false).getDrifted());
+
+        // Al modificar el pedido, la línea que se mantiene conserva su precio y la nueva toma el actual
+        Integer pedidoId = pedidoRepository.findByUsuarioId(usuarios.get(0)).get(0).getId();
+        pedidoService.putPedidoById(pedidoId, new PedidoDTO(usuarios.get(0), List.of(caro, barato), null), null);
+        assertEquals(350, totalSpent(0));
+        assertEquals(0, reconciliationService.reconcile(false).getDrifted());
+    }
+
+    private int totalSpent(int usuario) {
+        return userRepository.findById(usuarios.get(usuario)).orElseThrow().getTotalSpent();
+    }
+
+    private static Producto producto(String name, int price) {
+        Producto producto = new Producto();
+        producto.setName(name);
+        producto.setStock(100);
+        producto.setPrice(price);
+        producto.setDescription("descripcion");
+        return producto;
+    }
+}
@@ -0,0 +1,98 @@
+package com.grupo06.sistemapedidos.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje;
+import com.grupo06.sistemapedidos.dto.PedidoEventoMensaje.Linea;
+import com.grupo06.sistemapedidos.enums.PedidoEventoTipo;
+
+/**
+ * Comprueba el formato binario de los eventos de pedido y lo compara con los mensajes de texto anteriores
+ * ("Nuevo pedido de usuario X con productos {id=unidades, ...}"): cada evento cabe en un tamaño máximo conocido
+ * y en total ocupan menos que los mensajes de texto.
+ */
+class PedidoEventoCodecTest {
+    private static final int EVENTOS = 2_000;
+
+    @Test
+    void roundTrip() {
+        PedidoEventoMensaje evento = new PedidoEventoMensaje(UUID.randomUUID(), PedidoEventoTipo.MODIFICADO, 123_456, 42,
+                List.of(new Linea(7, 1, 1999), new Linea(300, 25, 0), new Linea(Integer.MAX_VALUE, 2, 5)), Instant.ofEpochMilli(1_760_000_000_123L));
+
+        byte[] bytes = PedidoEventoCodec.encode(evento);
+
+        assertEquals(PedidoEventoCodec.SCHEMA_VERSION, PedidoEventoCodec.version(bytes));
+        assertEquals(evento, PedidoEventoCodec.decode(bytes));
+    }
+
+    @Test
+    void linesAreSortedByProduct() {
+        PedidoEventoMensaje evento = new PedidoEventoMensaje(UUID.randomUUID(), PedidoEventoTipo.CREADO, 1, 1,
+                List.of(new Linea(9, 1, 10), new Linea(3, 2, 20)), Instant.now());
+
+        List<Linea> lineas = PedidoEventoCodec.decode(PedidoEventoCodec.encode(evento)).lineas();
+
+        assertEquals(List.of(new Linea(3, 2, 20), new Linea(9, 1, 10)), lineas);
+    }
+
+    @Test
+    void rejectsUnknownVersionAndTruncatedEvents() {
+        byte[] bytes = PedidoEventoCodec.encode(new PedidoEventoMensaje(UUID.randomUUID(), PedidoEventoTipo.CANCELADO, 1, 1,
+                List.of(new Linea(1, 1, 1)), Instant.now()));
+
+        byte[] otraVersion = bytes.clone();
+        otraVersion[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> PedidoEventoCodec.decode(otraVersion));
+        byte[] cortado = Arrays.copyOf(bytes, bytes.length - 2);
+        assertThrows(IllegalArgumentException.class, () -> PedidoEventoCodec.decode(cortado));
+        assertThrows(IllegalArgumentException.class, () -> PedidoEventoCodec.decode(new byte[0]));
+    }
+
+    @Test
+    void binaryStaysWithinSizeBoundAndSmallerThanText() {
+        Random random = new Random(6);
+        long bytesBinario = 0;
+        long bytesTexto = 0;
+        for (int i = 0; i < EVENTOS; i++) {
+            List<Linea> lineas = new ArrayList<>();
+            int productoId = 0;
+            for (int l = 1 + random.nextInt(8); l > 0; l--) {
+                productoId += 1 + random.nextInt(200);
+                lineas.add(new Linea(productoId, 1 + random.nextInt(5), 100 + random.nextInt(10_000)));
+            }
+            PedidoEventoMensaje evento = new PedidoEventoMensaje(UUID.randomUUID(), PedidoEventoTipo.CREADO, 100_000 + i,
+                    1 + random.nextInt(50_000), lineas, Instant.ofEpochMilli(1_760_000_000_000L + i));
+
+            byte[] binario = PedidoEventoCodec.encode(evento);
+            assertEquals(evento, PedidoEventoCodec.decode(binario));
+            // Cabecera: versión, tipo y eventId (18) + fecha (6) + pedidoId (3) + usuarioId (3) + nº de líneas (1).
+            // Cada línea: diferencia de ID hasta 200 (2) + cantidad (1) + precio hasta 10.099 (2)
+            assertTrue(binario.length <= 31 + 5 * lineas.size(), "Evento de " + binario.length + " bytes");
+            bytesBinario += binario.length;
+            bytesTexto += texto(evento).length;
+        }
+        // El binario lleva además el ID del pedido y del evento, la fecha y los precios, y aun así ocupa menos
+        assertTrue(bytesBinario < bytesTexto);
+    }
+
+    /**
+     * Construye el mensaje de texto anterior, que solo tiene el usuario y las unidades.
+     */
+    private static byte[] texto(PedidoEventoMensaje evento) {
+        SortedMap<Integer, Integer> cantidades = new TreeMap<>();
+        evento.lineas().forEach(linea -> cantidades.put(linea.productoId(), linea.cantidad()));
+        return ("Nuevo pedido de usuario " + evento.usuarioId() + " con productos " + cantidades).getBytes(StandardCharsets.UTF_8);
+    }
+}